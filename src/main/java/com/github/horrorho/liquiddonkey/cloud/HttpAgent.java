@@ -26,7 +26,10 @@ package com.github.horrorho.liquiddonkey.cloud;
 import com.github.horrorho.liquiddonkey.exception.BadDataException;
 import com.github.horrorho.liquiddonkey.iofunction.IOBiFunction;
 import com.github.horrorho.liquiddonkey.iofunction.IOFunction;
+import com.github.horrorho.liquiddonkey.http.Throttle;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.SocketTimeoutException;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
@@ -47,11 +50,21 @@ import org.slf4j.LoggerFactory;
 public class HttpAgent {
 
     public static HttpAgent from(HttpClient client, HttpAgent executor) {
-        return from(client, executor.retryCount, executor.retryDelayMs, executor.authenticator);
+        return from(client, executor.retryCount, executor.retryDelayMs, executor.authenticator, executor.throttle);
     }
 
     public static HttpAgent from(HttpClient client, int retryCount, int retryDelayMs, Authenticator authenticator) {
-        return new HttpAgent(client, retryCount, retryDelayMs, authenticator);
+        return from(client, retryCount, retryDelayMs, authenticator, Throttle.from(0, 0));
+    }
+
+    public static HttpAgent from(
+            HttpClient client,
+            int retryCount,
+            int retryDelayMs,
+            Authenticator authenticator,
+            Throttle throttle) {
+
+        return new HttpAgent(client, retryCount, retryDelayMs, authenticator, throttle);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(HttpAgent.class);
@@ -60,12 +73,14 @@ public class HttpAgent {
     private final int retryCount;
     private final int retryDelayMs;
     private final Authenticator authenticator;
+    private final Throttle throttle;
 
-    HttpAgent(HttpClient client, int retryCount, int retryDelayMs, Authenticator authenticator) {
+    HttpAgent(HttpClient client, int retryCount, int retryDelayMs, Authenticator authenticator, Throttle throttle) {
         this.client = Objects.requireNonNull(client);
         this.retryCount = retryCount;
         this.retryDelayMs = retryDelayMs;
         this.authenticator = Objects.requireNonNull(authenticator);
+        this.throttle = Objects.requireNonNull(throttle);
     }
 
     public <T> T execute(IOBiFunction<HttpClient, String, T> function) throws IOException {
@@ -76,6 +91,7 @@ public class HttpAgent {
                     return function.apply(c, token.auth().mmeAuthToken());
                 } catch (HttpResponseException ex) {
                     if (ex.getStatusCode() == 401) {
+                        DownloadMetrics.UNAUTHORIZED.increment();
                         logger.warn("-- execute() > exception: ", ex);
                         execute(cc -> authenticator.reauthenticate(cc, token));
                     } else {
@@ -89,19 +105,51 @@ public class HttpAgent {
     public <T> T execute(IOFunction<HttpClient, T> function) throws IOException {
         int count = 0;
         while (true) {
+            pace();
+            long started = System.nanoTime();
             try {
                 return function.apply(client);
             } catch (BadDataException | SocketTimeoutException ex) {
                 if (count++ < retryCount) {
+                    DownloadMetrics.REQUEST_RETRIES.increment();
                     logger.warn("-- execute() > attempt: {} exception: {}", count, ex);
                     delay();
                 } else {
                     throw ex;
                 }
+            } finally {
+                DownloadMetrics.REQUEST_LATENCY.recordSince(started);
             }
         }
     }
 
+    /**
+     * Executes the specified function once. Failures are not retried here, but left to the caller.
+     *
+     * @param <T> result type
+     * @param function not null
+     * @return the result
+     * @throws IOException
+     */
+    public <T> T attempt(IOFunction<HttpClient, T> function) throws IOException {
+        pace();
+        long started = System.nanoTime();
+        try {
+            return function.apply(client);
+        } finally {
+            DownloadMetrics.REQUEST_LATENCY.recordSince(started);
+        }
+    }
+
+    /**
+     * Returns the throttle applied to requests, and by chunk downloads to the bytes received.
+     *
+     * @return the throttle, not null
+     */
+    public Throttle throttle() {
+        return throttle;
+    }
+
     public String dsPrsID() {
         return authenticator.dsPrsID();
     }
@@ -110,6 +158,15 @@ public class HttpAgent {
         return authenticator.isInvalid();
     }
 
+    void pace() throws InterruptedIOException {
+        try {
+            throttle.request();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        }
+    }
+
     void delay() {
         try {
             TimeUnit.MILLISECONDS.sleep(retryDelayMs);
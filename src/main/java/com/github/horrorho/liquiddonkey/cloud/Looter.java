@@ -33,15 +33,29 @@ import com.github.horrorho.liquiddonkey.cloud.data.Auth;
 import com.github.horrorho.liquiddonkey.cloud.data.Backups;
 import com.github.horrorho.liquiddonkey.cloud.data.Core;
 import com.github.horrorho.liquiddonkey.cloud.data.Cores;
+import com.github.horrorho.liquiddonkey.cloud.data.FilterPipeline;
+import com.github.horrorho.liquiddonkey.cloud.data.ListingCache;
 import com.github.horrorho.liquiddonkey.cloud.data.Snapshot;
 import com.github.horrorho.liquiddonkey.cloud.data.Snapshots;
+import com.github.horrorho.liquiddonkey.cloud.engine.AsyncEngine;
+import com.github.horrorho.liquiddonkey.cloud.engine.ConcurrentEngine;
+import com.github.horrorho.liquiddonkey.cloud.engine.Engine;
 import com.github.horrorho.liquiddonkey.cloud.file.FileFilter;
 import com.github.horrorho.liquiddonkey.cloud.file.LocalFileFilter;
+import com.github.horrorho.liquiddonkey.cloud.file.Manifest;
 import com.github.horrorho.liquiddonkey.cloud.file.Mode;
+import com.github.horrorho.liquiddonkey.cloud.file.SnapshotPaths;
 import com.github.horrorho.liquiddonkey.cloud.outcome.OutcomesProgressPercentage;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.exception.BadDataException;
-import com.github.horrorho.liquiddonkey.http.HttpClientFactory;
+import com.github.horrorho.liquiddonkey.http.ConnectionWarmer;
+import com.github.horrorho.liquiddonkey.http.Throttle;
+import com.github.horrorho.liquiddonkey.http.transport.ApacheTransport;
+import com.github.horrorho.liquiddonkey.http.transport.HttpTransport;
+import com.github.horrorho.liquiddonkey.http.transport.HttpTransports;
+import com.github.horrorho.liquiddonkey.metrics.Metrics;
+import com.github.horrorho.liquiddonkey.metrics.MetricsJmx;
+import com.github.horrorho.liquiddonkey.metrics.MetricsServer;
 import com.github.horrorho.liquiddonkey.settings.config.Config;
 import com.github.horrorho.liquiddonkey.util.Bytes;
 import com.github.horrorho.liquiddonkey.util.MemMonitor;
@@ -61,6 +75,7 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import javax.management.JMException;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -75,15 +90,25 @@ import org.slf4j.LoggerFactory;
 @ThreadSafe
 public final class Looter implements Closeable {
 
-    public static Looter from(Config config, Printer std, Printer err, InputStream in) {
+    public static Looter from(Config config, Printer std, Printer err, InputStream in) throws IOException {
         logger.trace("<< from()");
 
-        CloseableHttpClient client = HttpClientFactory.from(config.http()).client();
+        HttpTransport transport = HttpTransports.from(config.http());
+        CloseableHttpClient client = transport.client();
+        // Only pooled Apache connections can be warmed. Chunk hosts are limited to the engine's concurrency.
+        ConnectionWarmer warmer = transport instanceof ApacheTransport
+                ? ConnectionWarmer.from(
+                        ((ApacheTransport) transport).connectionManager(),
+                        config.engine().prewarmConnections(),
+                        config.engine().threadCount(),
+                        config.http().timeoutMs())
+                : null;
         FileFilter fileFilter = FileFilter.from(config.fileFilter());
 
         Looter looter = new Looter(
                 config,
                 client,
+                warmer,
                 std,
                 err,
                 in,
@@ -97,8 +122,14 @@ public final class Looter implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(Looter.class);
 
+    private static final String NON_EMPTY = "non-empty";
+    private static final String FILTERED = "filtered";
+    private static final String NON_UNDECRYPTABLE = "non-undecryptable";
+    private static final String NON_LOCAL = "non-local";
+
     private final Config config;
     private final CloseableHttpClient client;
+    private final ConnectionWarmer warmer;
     private final Printer std;
     private final Printer err;
     private final InputStream in;
@@ -110,6 +141,7 @@ public final class Looter implements Closeable {
     Looter(
             Config config,
             CloseableHttpClient client,
+            ConnectionWarmer warmer,
             Printer std,
             Printer err,
             InputStream in,
@@ -119,6 +151,7 @@ public final class Looter implements Closeable {
 
         this.config = Objects.requireNonNull(config);
         this.client = Objects.requireNonNull(client);
+        this.warmer = warmer;
         this.std = Objects.requireNonNull(std);
         this.err = Objects.requireNonNull(err);
         this.in = Objects.requireNonNull(in);
@@ -130,55 +163,112 @@ public final class Looter implements Closeable {
     public void loot() throws BadDataException, IOException, InterruptedException {
         logger.trace("<< loot()");
 
-        std.println("Authenticating.");
-
-        // Authenticate
-        Auth auth = config.authentication().hasIdPassword()
-                ? Auth.from(client, config.authentication().id(), config.authentication().password())
-                : Auth.from(config.authentication().dsPrsID(), config.authentication().mmeAuthToken());
-
-        if (config.engine().toDumpToken()) {
-            std.println("Authorization token: " + auth.dsPrsID() + ":" + auth.mmeAuthToken());
-            return;
-        }
-
-        // Core settings.
-        Core core = Cores.from(client, auth);
-        std.println();
-        std.println("AppleId: " + core.appleId());
-        std.println("Full name: " + core.fullName());
-        std.println();
+        // Metrics exposure is best effort and lasts for the duration.
+        MetricsJmx metricsJmx = metricsJmx();
+        MetricsServer metricsServer = metricsServer();
+        try {
 
-        // Use Core auth, it may have a newer mmeAuthToken. 
-        Authenticator authenticator = Authenticator.from(core.auth());
+            std.println("Authenticating.");
 
-        // HttpAgent.
-        HttpAgent agent
-                = HttpAgent.from(client, config.engine().retryCount(), config.engine().retryDelayMs(), authenticator);
+            // Authenticate
+            Auth auth = config.authentication().hasIdPassword()
+                    ? Auth.from(client, config.authentication().id(), config.authentication().password())
+                    : Auth.from(config.authentication().dsPrsID(), config.authentication().mmeAuthToken());
 
-        // Account.
-        Account account = agent.execute((c, mmeAuthToken) -> Accounts.from(c, core, mmeAuthToken));
+            if (config.engine().toDumpToken()) {
+                std.println("Authorization token: " + auth.dsPrsID() + ":" + auth.mmeAuthToken());
+                return;
+            }
 
-        // Available backups.
-        List<Backup> backups = agent.execute((c, mmeAuthToken) -> Backups.from(c, core, mmeAuthToken, account));
+            // Core settings.
+            Core core = Cores.from(client, auth);
+            std.println();
+            std.println("AppleId: " + core.appleId());
+            std.println("Full name: " + core.fullName());
+            std.println();
 
-        // Filter backups. 
-        List<Backup> selected
-                = BackupSelector.from(config.selection().udids(), Backup::mbsBackup, BackupFormatter.create(), std, in)
-                .apply(backups);
+            // Use Core auth, it may have a newer mmeAuthToken. 
+            Authenticator authenticator = Authenticator.from(core.auth());
 
-        // Fetch backups.
-        for (Backup backup : selected) {
-            if (config.debug().toMonitorMemory()) {
-                monitoredBackup(client, core, agent, backup);
-            } else {
-                backup(client, core, agent, backup);
+            // Throttle, global limits are shared with any other jobs and only set if configured.
+            if (config.http().globalBytesPerSecond() > 0) {
+                Throttle.global().setBytesPerSecond(config.http().globalBytesPerSecond());
+            }
+            if (config.http().globalRequestsPerSecond() > 0) {
+                Throttle.global().setRequestsPerSecond(config.http().globalRequestsPerSecond());
+            }
+            Throttle throttle = Throttle.from(config.http().bytesPerSecond(), config.http().requestsPerSecond());
+
+            // HttpAgent.
+            HttpAgent agent = HttpAgent.from(
+                    client,
+                    config.engine().retryCount(),
+                    config.engine().retryDelayMs(),
+                    authenticator,
+                    throttle);
+
+            // Account.
+            Account account = agent.execute((c, mmeAuthToken) -> Accounts.from(c, core, mmeAuthToken));
+
+            // Available backups.
+            List<Backup> backups = agent.execute((c, mmeAuthToken) -> Backups.from(c, core, mmeAuthToken, account));
+
+            // Filter backups. 
+            List<Backup> selected = BackupSelector.from(
+                    config.selection().udids(),
+                    Backup::mbsBackup,
+                    BackupFormatter.create(),
+                    std,
+                    in)
+                    .apply(backups);
+
+            // Fetch backups.
+            for (Backup backup : selected) {
+                if (config.debug().toMonitorMemory()) {
+                    monitoredBackup(client, core, agent, backup);
+                } else {
+                    backup(client, core, agent, backup);
+                }
+            }
+        } finally {
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            if (metricsJmx != null) {
+                metricsJmx.close();
             }
         }
 
         logger.trace(">> loot()");
     }
 
+    MetricsJmx metricsJmx() {
+        if (!config.debug().toRegisterMetricsJmx()) {
+            return null;
+        }
+        try {
+            return MetricsJmx.register(Metrics.global());
+        } catch (JMException ex) {
+            logger.warn("-- metricsJmx() > exception: {}", ex);
+            return null;
+        }
+    }
+
+    MetricsServer metricsServer() {
+        if (config.debug().metricsPort() <= 0) {
+            return null;
+        }
+        try {
+            MetricsServer metricsServer = MetricsServer.from(Metrics.global(), config.debug().metricsPort());
+            logger.info("-- metricsServer() > serving: {}", metricsServer);
+            return metricsServer;
+        } catch (IOException ex) {
+            logger.warn("-- metricsServer() > exception: {}", ex);
+            err.println("Unable to serve metrics on port: " + config.debug().metricsPort() + " " + ex.getMessage());
+            return null;
+        }
+    }
+
     void monitoredBackup(HttpClient client, Core core, HttpAgent agent, Backup backup)
             throws BadDataException, IOException, InterruptedException {
 
@@ -234,8 +324,13 @@ public final class Looter implements Closeable {
 
         // Retrieve file list.
         int limit = config.client().listLimit();
+        ListingCache cache = config.client().toCache()
+                ? ListingCache.from(
+                        config.file().base().resolve(config.client().cacheDirectory()),
+                        config.client().cacheSizeMaxBytes())
+                : null;
         Snapshot snapshot
-                = agent.execute((c, mmeAuthToken) -> Snapshots.from(c, core, mmeAuthToken, backup, id, limit));
+                = agent.execute((c, mmeAuthToken) -> Snapshots.from(c, core, mmeAuthToken, backup, id, limit, cache));
 
         if (snapshot == null) {
             logger.warn("-- snapshot() > snapshot not found: {}", id);
@@ -257,48 +352,73 @@ public final class Looter implements Closeable {
                 .collect(Collectors.groupingBy(Mode::mode, Collectors.counting()));
         logger.info("-- snapshot() > modes: {}", modes);
 
-        // Non-empty files filter.
-        snapshot = Snapshots.from(snapshot, file -> file.getSize() != 0 && file.hasSignature());
-        logger.info("-- snapshot() > filtered non empty, remaining: {}", snapshot.filesCount());
-        std.println("Files(non-empty): " + snapshot.filesCount());
+        // Local paths, resolved on demand as files pass the filters rather than for the whole snapshot up front.
+        SnapshotPaths paths = SnapshotPaths.lazy(snapshot, config.file());
 
-        // User filter
-        snapshot = Snapshots.from(snapshot, filter);
-        logger.info("-- snapshot() > filtered configured, remaining: {}", snapshot.filesCount());
-        std.println("Files(filtered): " + snapshot.filesCount());
-        if (toReport) {
-            csvWriter.files(sorted(snapshot), path.resolve("snapshot_" + id + "_filtered.csv"));
+        // Local manifest
+        Manifest manifest = config.file().toUseManifest()
+                ? Manifest.from(paths.folder())
+                : null;
+        if (manifest != null && manifest.exists() && config.file().toReconcileManifest()) {
+            long a = System.currentTimeMillis();
+            int drifted = manifest.reconcile();
+            long b = System.currentTimeMillis();
+            logger.info("-- snapshot() > reconciled manifest, drifted: {} delay(ms): {}", drifted, b - a);
         }
 
-        // Undecryptable filter
-        Snapshot undecryptable = Snapshots.from(snapshot, nonUndecryptableFilter.negate());
-        snapshot = Snapshots.from(snapshot, nonUndecryptableFilter);
-        logger.info("-- snapshot() > filtered undecryptable, remaining: {}", snapshot.filesCount());
-        std.println("Files(non-undecryptable): " + snapshot.filesCount());
+        // Filters, cheapest first.
+        FilterPipeline pipeline = FilterPipeline.create()
+                .filterIndex(NON_EMPTY, catalog -> i -> catalog.size(i) != 0 && catalog.hasSignature(i))
+                .filter(FILTERED, filter)
+                .filter(NON_UNDECRYPTABLE, nonUndecryptableFilter);
 
-        // Dump undecryptables
-//        Map<ICloud.MBSFile, Outcome> undecryptableOutcomes = undecryptables.stream()
-//                .collect(Collectors.toMap(Function.identity(), file -> Outcome.FAILED_DECRYPT_NO_KEY));
-//        outcomesConsumer.accept(undecryptableOutcomes);
-        if (toReport) {
-            csvWriter.files(sorted(undecryptable), path.resolve("snapshot_" + id + "_undecryptable.csv"));
-        }
-
-        // Local filter
         if (config.engine().toForceOverwrite()) {
             logger.debug("-- snapshot() > forced overwrite");
         } else {
-            long a = System.currentTimeMillis();
-            snapshot = LocalFileFilter.from(snapshot, config.file()).apply(snapshot);
-            long b = System.currentTimeMillis();
-            logger.info("-- snapshot() > filtered local, remaining: {} delay(ms): {}", snapshot.filesCount(), b - a);
-            std.println("Files(non-local): " + snapshot.filesCount());
+            // Unencrypted files are verified against their chunk checksums at download time.
+            Predicate<ICloud.MBSFile> scope = config.engine().toVerifyLocal()
+                    ? file -> file.getAttributes().hasEncryptionKey()
+                    : file -> true;
+            pipeline = pipeline.filter(NON_LOCAL, LocalFileFilter.from(paths, manifest, config.file()).nonLocal(scope));
+        }
+
+        long a = System.currentTimeMillis();
+        FilterPipeline.Result filtered = pipeline.apply(snapshot);
+        long b = System.currentTimeMillis();
+        logger.info("-- snapshot() > filtered: {} delay(ms): {}", filtered, b - a);
+
+        snapshot = filtered.snapshot();
+
+        std.println("Files(non-empty): " + filtered.remaining(NON_EMPTY));
+        std.println("Files(filtered): " + filtered.remaining(FILTERED));
+        if (toReport) {
+            csvWriter.files(sorted(filtered.retained(FILTERED)), path.resolve("snapshot_" + id + "_filtered.csv"));
+        }
+
+        std.println("Files(non-undecryptable): " + filtered.remaining(NON_UNDECRYPTABLE));
+        if (toReport) {
+            csvWriter.files(sorted(filtered.rejected(NON_UNDECRYPTABLE)),
+                    path.resolve("snapshot_" + id + "_undecryptable.csv"));
+        }
+
+        if (!config.engine().toForceOverwrite()) {
+            std.println("Files(non-local): " + filtered.remaining(NON_LOCAL));
+        }
+
+        if (manifest != null) {
+            manifest.write();
         }
 
         if (snapshot.filesCount() == 0) {
             return;
         }
 
+        // Directory tree
+        a = System.currentTimeMillis();
+        int directories = paths.createDirectories(snapshot.files());
+        b = System.currentTimeMillis();
+        logger.info("-- snapshot() > created directories: {} delay(ms): {}", directories, b - a);
+
         // Retrieve
         Outcomes outcomes = Outcomes.create();
         OutcomesProgressPercentage progress = OutcomesProgressPercentage.from(snapshot, std);
@@ -307,8 +427,25 @@ public final class Looter implements Closeable {
         std.println("Retrieving: " + Bytes.humanize(progress.totalBytes()));
 
         // Fetch files
-        SnapshotDownloader.from(config.engine(), config.file())
-                .download(agent, core, snapshot, outcomesConsumer);
+        try {
+            Engine engine = config.engine().toAsync()
+                    ? AsyncEngine.from(config.engine(), config.http())
+                    : ConcurrentEngine.from(config.engine());
+
+            // The asynchronous engine has its own connection pool.
+            SnapshotDownloader.from(
+                    engine,
+                    config.engine(),
+                    config.file(),
+                    paths,
+                    manifest,
+                    config.engine().toAsync() ? null : warmer)
+                    .download(agent, core, snapshot, outcomesConsumer);
+        } finally {
+            if (manifest != null) {
+                manifest.write();
+            }
+        }
 
         std.println();
         std.println("Completed:");
@@ -26,6 +26,7 @@ package com.github.horrorho.liquiddonkey.cloud;
 import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
 import com.github.horrorho.liquiddonkey.cloud.data.Snapshot;
 import com.github.horrorho.liquiddonkey.cloud.file.CloudFileWriter;
+import com.github.horrorho.liquiddonkey.cloud.file.Manifest;
 import com.github.horrorho.liquiddonkey.iofunction.IOFunction;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud.MBSFile;
@@ -35,6 +36,7 @@ import com.github.horrorho.liquiddonkey.util.Bytes;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -44,6 +46,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
@@ -67,10 +70,28 @@ public final class SignatureManager {
      * @return a new instance, not null
      */
     public static SignatureManager from(Snapshot snapshot, FileConfig fileConfig) {
-        logger.trace("<< from() < dsPrsId: {} udid: {} snapshot: {} fileConfig: {}",
-                snapshot.dsPrsID(), snapshot.backupUDID(), snapshot.snapshotID(), fileConfig);
+        return from(snapshot, CloudFileWriter.from(snapshot, fileConfig));
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param snapshot not null
+     * @param fileConfig not null
+     * @param paths the file to local path function, not null
+     * @param manifest the manifest to record written files, may be null
+     * @return a new instance, not null
+     */
+    public static SignatureManager
+            from(Snapshot snapshot, FileConfig fileConfig, Function<MBSFile, Path> paths, Manifest manifest) {
+
+        return from(snapshot, CloudFileWriter.from(snapshot, fileConfig, paths, manifest));
+    }
+
+    static SignatureManager from(Snapshot snapshot, CloudFileWriter cloudWriter) {
+        logger.trace("<< from() < dsPrsId: {} udid: {} snapshot: {} cloudWriter: {}",
+                snapshot.dsPrsID(), snapshot.backupUDID(), snapshot.snapshotID(), cloudWriter);
 
-        CloudFileWriter cloudWriter = CloudFileWriter.from(snapshot, fileConfig);
         Map<ByteString, Set<ICloud.MBSFile>> signatures = snapshot.files().stream()
                 .collect(Collectors.groupingByConcurrent(ICloud.MBSFile::getSignature, Collectors.toSet()));
 
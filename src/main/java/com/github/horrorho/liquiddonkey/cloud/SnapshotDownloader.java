@@ -26,28 +26,42 @@ package com.github.horrorho.liquiddonkey.cloud;
 import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
 import com.github.horrorho.liquiddonkey.cloud.data.Core;
 import com.github.horrorho.liquiddonkey.cloud.engine.ConcurrentEngine;
+import com.github.horrorho.liquiddonkey.cloud.engine.Engine;
+import com.github.horrorho.liquiddonkey.cloud.engine.Reauthorizer;
 import com.github.horrorho.liquiddonkey.cloud.data.FileGroups;
 import com.github.horrorho.liquiddonkey.cloud.data.Snapshot;
 import com.github.horrorho.liquiddonkey.cloud.data.Snapshots;
+import com.github.horrorho.liquiddonkey.cloud.file.LocalFileVerifier;
+import com.github.horrorho.liquiddonkey.cloud.file.Manifest;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import com.github.horrorho.liquiddonkey.cloud.store.ContainerScheduler;
 import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.http.ConnectionWarmer;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
 import com.github.horrorho.liquiddonkey.settings.config.EngineConfig;
 import com.github.horrorho.liquiddonkey.settings.config.FileConfig;
+import com.github.horrorho.liquiddonkey.util.Bytes;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
+import org.apache.http.HttpHost;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,27 +81,84 @@ public final class SnapshotDownloader {
         ConcurrentEngine engine = ConcurrentEngine.from(engineConfig);
         Function<Snapshot, SignatureManager> signatureManagers = s -> SignatureManager.from(s, fileConfig);
 
-        return new SnapshotDownloader(engine, signatureManagers);
+        return new SnapshotDownloader(
+                engine,
+                signatureManagers,
+                null,
+                engineConfig.toScheduleContainers(),
+                engineConfig.reauthorizeMax(),
+                engineConfig.retryRounds(),
+                null);
     }
 
+    /**
+     * Returns a new instance.
+     *
+     * @param engine not null
+     * @param engineConfig not null
+     * @param fileConfig not null
+     * @param paths the file to local path function, not null
+     * @param manifest the manifest, may be null
+     * @param warmer the engine's connection warmer, may be null
+     * @return a new instance, not null
+     */
     public static SnapshotDownloader from(
-            ConcurrentEngine engine,
+            Engine engine,
+            EngineConfig engineConfig,
+            FileConfig fileConfig,
+            Function<ICloud.MBSFile, Path> paths,
+            Manifest manifest,
+            ConnectionWarmer warmer) {
+
+        Function<Snapshot, SignatureManager> signatureManagers
+                = s -> SignatureManager.from(s, fileConfig, paths, manifest);
+        LocalFileVerifier verifier = engineConfig.toVerifyLocal()
+                ? LocalFileVerifier.from(paths, manifest, fileConfig.setLastModifiedTimestamp())
+                : null;
+
+        return new SnapshotDownloader(
+                engine,
+                signatureManagers,
+                verifier,
+                engineConfig.toScheduleContainers(),
+                engineConfig.reauthorizeMax(),
+                engineConfig.retryRounds(),
+                warmer);
+    }
+
+    public static SnapshotDownloader from(
+            Engine engine,
             Function<Snapshot, SignatureManager> signatureWriters) {
 
-        return new SnapshotDownloader(engine, signatureWriters);
+        return new SnapshotDownloader(engine, signatureWriters, null, true, 0, 0, null);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(SnapshotDownloader.class);
 
-    private final ConcurrentEngine engine;
+    private final Engine engine;
     private final Function<Snapshot, SignatureManager> signatureManagers;
+    private final LocalFileVerifier verifier;
+    private final boolean toScheduleContainers;
+    private final int reauthorizeMax;
+    private final int retryRounds;
+    private final ConnectionWarmer warmer;
 
     SnapshotDownloader(
-            ConcurrentEngine engine,
-            Function<Snapshot, SignatureManager> signatureWriters) {
+            Engine engine,
+            Function<Snapshot, SignatureManager> signatureWriters,
+            LocalFileVerifier verifier,
+            boolean toScheduleContainers,
+            int reauthorizeMax,
+            int retryRounds,
+            ConnectionWarmer warmer) {
 
         this.engine = Objects.requireNonNull(engine);
         this.signatureManagers = Objects.requireNonNull(signatureWriters);
+        this.verifier = verifier;
+        this.toScheduleContainers = toScheduleContainers;
+        this.reauthorizeMax = reauthorizeMax;
+        this.retryRounds = retryRounds;
+        this.warmer = warmer;
     }
 
     public void download( 
@@ -100,7 +171,93 @@ public final class SnapshotDownloader {
         logger.trace("<< download() < dsPrsID: {} udid: {} snapshot: {}",
                 snapshot.dsPrsID(), snapshot.backupUDID(), snapshot.snapshotID());
 
+        rounds(snapshot,
+                outcomes,
+                agent::authenticatorIsInvalid,
+                (s, consumer, toVerify) -> download(agent, core, s, consumer, toVerify));
+
+        logger.trace(">> download()");
+    }
+
+    /**
+     * Downloads the specified snapshot in rounds. Download failures are held back and their files retried in
+     * subsequent rounds, only the last round reports them. Should a round throw, the failures held back are reported
+     * before the exception propagates. Reported outcomes are recorded in {@link DownloadMetrics}.
+     *
+     * @param snapshot not null
+     * @param outcomes not null
+     * @param isInvalid whether the authenticator is invalid, in which case no further rounds are attempted, not null
+     * @param round the round download, not null
+     * @throws BadDataException
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    void rounds(
+            Snapshot snapshot,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomes,
+            BooleanSupplier isInvalid,
+            Round round
+    ) throws BadDataException, IOException, InterruptedException {
+
+        outcomes = outcomes.andThen(DownloadMetrics::record);
+
+        int count = 0;
+        while (true) {
+            Map<ICloud.MBSFile, Outcome> failed = new ConcurrentHashMap<>();
+            boolean isLastRound = count >= retryRounds;
+
+            boolean isCompleted = false;
+            try {
+                round.download(snapshot, isLastRound ? outcomes : defer(outcomes, failed), count == 0);
+                isCompleted = true;
+            } finally {
+                if (!isCompleted && !failed.isEmpty()) {
+                    logger.warn("-- rounds() > round: {} aborted, reporting held back failures: {}",
+                            count, failed.size());
+                    outcomes.accept(new HashMap<>(failed));
+                }
+            }
+
+            if (failed.isEmpty()) {
+                break;
+            }
+
+            if (isInvalid.getAsBoolean()) {
+                outcomes.accept(failed);
+                break;
+            }
+
+            count++;
+            logger.info("-- rounds() > retry round: {} failed files: {}", count, failed.size());
+
+            Set<ICloud.MBSFile> retry = new HashSet<>(failed.keySet());
+            snapshot = Snapshots.from(snapshot, retry::contains);
+        }
+    }
+
+    static Consumer<Map<ICloud.MBSFile, Outcome>>
+            defer(Consumer<Map<ICloud.MBSFile, Outcome>> outcomes, Map<ICloud.MBSFile, Outcome> failed) {
+
+        return map -> {
+            Map<ICloud.MBSFile, Outcome> passed = new HashMap<>();
+            map.forEach((file, outcome) -> (outcome == Outcome.FAILED_DOWNLOAD ? failed : passed).put(file, outcome));
+
+            if (!passed.isEmpty()) {
+                outcomes.accept(passed);
+            }
+        };
+    }
+
+    void download(
+            HttpAgent agent,
+            Core core,
+            Snapshot snapshot,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomes,
+            boolean toVerify
+    ) throws BadDataException, IOException, InterruptedException {
+
         boolean isCompleted = false;
+        toVerify &= verifier != null;
 
         while (!isCompleted && !snapshot.files().isEmpty() && !agent.authenticatorIsInvalid()) {
             logger.debug("-- download() > loop, files: {}", snapshot.filesCount());
@@ -113,6 +270,15 @@ public final class SnapshotDownloader {
             // Store manager
             ChunkManager storeManager = ChunkManager.from(fileGroups.getFileGroupsList());
 
+            // Files the server reports as errored are failed up front.
+            snapshot = prune(snapshot, fileGroups, storeManager, outcomes);
+
+            // Verify local files, once.
+            if (toVerify) {
+                verify(snapshot, fileGroups, storeManager, outcomes);
+                toVerify = false;
+            }
+
             // Filter snapshots to reflect downloadbles.  
             // ICloud.MBSFiles may be non-downloadable, e.g. directories, empty files.
             Set<ByteString> downloadables = storeManager.remainingSignatures();
@@ -125,23 +291,53 @@ public final class SnapshotDownloader {
             logger.debug("-- download() > loaded signatures, StoreManager: {} SignatureManager: {}",
                     storeManager.remainingSignatures().size(), signatureManager.remainingSignatures().size());
 
+            DownloadMetrics.STORE_BYTES.set(storeManager::size);
             try {
                 
                 List<ChunkServer.StorageHostChunkList> collect = fileGroups.getFileGroupsList()
                         .stream()
                         .map(x -> x.getStorageHostChunkListList())
                         .flatMap(Collection::stream)
+                        .filter(storeManager::isReferenced)
                         .collect(Collectors.toList());
-                
+
+                if (toScheduleContainers) {
+                    collect = schedule(storeManager, collect);
+                }
+
+                if (warmer != null) {
+                    warm(collect);
+                }
+
+                // Expired container authorizations are refreshed for the remaining signatures.
+                Snapshot authorize = snapshot;
+                Reauthorizer reauthorizer = reauthorizeMax > 0
+                        ? Reauthorizer.from(
+                                signatures -> agent.execute((client, mmeAuthToken) -> FileGroups.from(
+                                                client,
+                                                core,
+                                                mmeAuthToken,
+                                                Snapshots.from(authorize,
+                                                        file -> signatures.contains(file.getSignature())))),
+                                storeManager,
+                                collect,
+                                reauthorizeMax)
+                        : null;
+
                 // Execute.
-                engine.execute(agent, storeManager, signatureManager, outcomes, collect);
+                engine.execute(agent, storeManager, signatureManager, outcomes, collect, reauthorizer);
                 isCompleted = true;
                 
             } catch (TimeoutException ex) {
                 logger.warn("-- download() > exception: {}", ex);
                 isCompleted = false;
+
+            } finally {
+                DownloadMetrics.STORE_BYTES.set(null);
             }
 
+            logger.info("-- download() > peak store size: {}", storeManager.peak());
+
             // Mismatches are possible.
             // DataWriters may have left the Store but termination occured before the contents were consumed.
             logger.debug("-- download() > remaining signatures, StoreManager: {} SignatureManager: {}",
@@ -156,7 +352,92 @@ public final class SnapshotDownloader {
             logger.debug("-- download() > end loop, is completed: {} remaining files: {}",
                     isCompleted,  snapshot.filesCount());
         } 
+    }
 
-        logger.trace(">> download()");
+    List<ChunkServer.StorageHostChunkList>
+            schedule(ChunkManager storeManager, List<ChunkServer.StorageHostChunkList> containers) {
+
+        long a = System.currentTimeMillis();
+        ContainerScheduler.Schedule schedule
+                = ContainerScheduler.from(storeManager.remainingSignatureToChunks()).schedule(containers);
+        long b = System.currentTimeMillis();
+
+        logger.info("-- schedule() > containers: {} predicted peak store size: {} (unscheduled: {}) delay(ms): {}",
+                containers.size(), schedule.predictedPeak(), schedule.unscheduledPeak(), b - a);
+
+        return schedule.containers();
+    }
+
+    void warm(List<ChunkServer.StorageHostChunkList> containers) throws InterruptedException {
+        // As addressed by the ChunksClient.
+        Set<HttpHost> hosts = containers.stream()
+                .map(ChunkServer.StorageHostChunkList::getHostInfo)
+                .map(hostInfo -> new HttpHost(hostInfo.getHostname(), -1, hostInfo.getScheme()))
+                .collect(Collectors.toSet());
+
+        warmer.warm(hosts);
+    }
+
+    Snapshot prune(
+            Snapshot snapshot,
+            ChunkServer.FileGroups fileGroups,
+            ChunkManager storeManager,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomes) {
+
+        Map<ByteString, String> errors = FileGroups.errors(fileGroups);
+        if (errors.isEmpty()) {
+            return snapshot;
+        }
+
+        errors.entrySet().stream().forEach(entry
+                -> logger.warn("-- prune() > server error, signature: {} error: {}",
+                        Bytes.hex(entry.getKey()), entry.getValue()));
+
+        // Containers referenced solely by errored signatures are subsequently unreferenced.
+        storeManager.exclude(errors.keySet());
+
+        Map<ICloud.MBSFile, Outcome> failed = snapshot.files().stream()
+                .filter(file -> errors.containsKey(file.getSignature()))
+                .collect(Collectors.toMap(Function.identity(), file -> Outcome.FAILED_SERVER, (a, b) -> a));
+
+        logger.info("-- prune() > server errored signatures: {} files: {}", errors.size(), failed.size());
+
+        if (!failed.isEmpty()) {
+            outcomes.accept(failed);
+        }
+        return Snapshots.from(snapshot, file -> !errors.containsKey(file.getSignature()));
+    }
+
+    void verify(
+            Snapshot snapshot,
+            ChunkServer.FileGroups fileGroups,
+            ChunkManager storeManager,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomes) {
+
+        long a = System.currentTimeMillis();
+        Map<ICloud.MBSFile, Outcome> verified = verifier.verify(snapshot.files(), fileGroups.getFileGroupsList());
+        long b = System.currentTimeMillis();
+
+        Set<ByteString> signatures = verified.keySet().stream()
+                .map(ICloud.MBSFile::getSignature)
+                .collect(Collectors.toSet());
+        storeManager.exclude(signatures);
+
+        logger.info("-- verify() > verified local files: {} signatures: {} delay(ms): {}",
+                verified.size(), signatures.size(), b - a);
+
+        if (!verified.isEmpty()) {
+            outcomes.accept(verified);
+        }
+    }
+
+    /**
+     * A single download round.
+     */
+    @FunctionalInterface
+    interface Round {
+
+        void download(Snapshot snapshot, Consumer<Map<ICloud.MBSFile, Outcome>> outcomes, boolean toVerify)
+                throws BadDataException, IOException, InterruptedException;
     }
 }
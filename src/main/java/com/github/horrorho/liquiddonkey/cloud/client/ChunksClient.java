@@ -24,15 +24,24 @@
 package com.github.horrorho.liquiddonkey.cloud.client;
 
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.http.LeaseResponseConsumer;
+import com.github.horrorho.liquiddonkey.http.Progress;
+import com.github.horrorho.liquiddonkey.http.ProgressEntity;
 import com.github.horrorho.liquiddonkey.http.ResponseHandlerFactory;
+import com.github.horrorho.liquiddonkey.http.Throttle;
+import com.github.horrorho.liquiddonkey.util.ByteArrayPool;
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.Future;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.http.client.HttpClient;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,14 +60,21 @@ public final class ChunksClient {
 
     private static final Logger logger = LoggerFactory.getLogger(ChunksClient.class);
 
-    private static final ChunksClient instance
-            = new ChunksClient(ResponseHandlerFactory.toByteArray(), Headers.create());
+    // Retains enough for a few typical containers per thread.
+    private static final long POOL_RETAINED_MAX_BYTES = 64 * 1024 * 1024;
+
+    private static final ChunksClient instance = new ChunksClient(
+            ResponseHandlerFactory.toByteArray(),
+            ByteArrayPool.from(POOL_RETAINED_MAX_BYTES),
+            Headers.create());
 
     private final ResponseHandler<byte[]> byteArrayResponseHandler;
+    private final ByteArrayPool pool;
     private final Headers headers;
 
-    ChunksClient(ResponseHandler<byte[]> byteArrayResponseHandler, Headers headers) {
+    ChunksClient(ResponseHandler<byte[]> byteArrayResponseHandler, ByteArrayPool pool, Headers headers) {
         this.byteArrayResponseHandler = Objects.requireNonNull(byteArrayResponseHandler);
+        this.pool = Objects.requireNonNull(pool);
         this.headers = Objects.requireNonNull(headers);
     }
 
@@ -93,4 +109,83 @@ public final class ChunksClient {
     public ResponseHandler<byte[]> responseHandler() {
         return byteArrayResponseHandler;
     }
+
+    /**
+     * Returns a pooled response handler for the specified container, sized from the entity content length or failing
+     * that the sum of the container's chunk lengths. The caller must close the returned lease once done.
+     *
+     * @param chunks, not null
+     * @return pooled response handler, not null
+     */
+    public ResponseHandler<ByteArrayPool.Lease> responseHandler(ChunkServer.StorageHostChunkList chunks) {
+        return ResponseHandlerFactory.toLease(pool, length(chunks));
+    }
+
+    /**
+     * Returns a pooled response handler for the specified container that also records the bytes received into the
+     * specified progress. The caller must close the returned lease once done.
+     *
+     * @param chunks, not null
+     * @param progress, not null
+     * @return pooled response handler, not null
+     */
+    public ResponseHandler<ByteArrayPool.Lease>
+            responseHandler(ChunkServer.StorageHostChunkList chunks, Progress progress) {
+
+        return responseHandler(chunks, Objects.requireNonNull(progress), null);
+    }
+
+    /**
+     * Returns a pooled response handler for the specified container that records the bytes received into the specified
+     * progress and paces them to the specified throttle, throttle waits being recorded as paused. The caller must close
+     * the returned lease once done.
+     *
+     * @param chunks, not null
+     * @param progress, not null
+     * @param throttle, may be null if unthrottled
+     * @return pooled response handler, not null
+     */
+    public ResponseHandler<ByteArrayPool.Lease>
+            responseHandler(ChunkServer.StorageHostChunkList chunks, Progress progress, Throttle throttle) {
+
+        Objects.requireNonNull(progress);
+        ResponseHandler<ByteArrayPool.Lease> responseHandler = responseHandler(chunks);
+
+        return response -> {
+            if (response.getEntity() != null) {
+                response.setEntity(ProgressEntity.from(response.getEntity(), progress, throttle));
+            }
+            return responseHandler.handleResponse(response);
+        };
+    }
+
+    /**
+     * Queries the server without blocking. Chunk data is passed to the callback as a pooled lease, which the callback
+     * must close once done.
+     *
+     * @param client, not null
+     * @param chunks, not null
+     * @param callback, not null
+     * @return the request future, not null
+     */
+    public Future<ByteArrayPool.Lease> get(
+            HttpAsyncClient client,
+            ChunkServer.StorageHostChunkList chunks,
+            FutureCallback<ByteArrayPool.Lease> callback) {
+
+        logger.trace("<< get() < chunks count: {}", chunks.getChunkInfoCount());
+
+        Future<ByteArrayPool.Lease> future = client.execute(
+                HttpAsyncMethods.create(get(chunks)),
+                LeaseResponseConsumer.from(pool, length(chunks)),
+                callback);
+
+        logger.trace(">> get()");
+        return future;
+    }
+
+    int length(ChunkServer.StorageHostChunkList chunks) {
+        long length = chunks.getChunkInfoList().stream().mapToLong(ChunkServer.ChunkInfo::getChunkLength).sum();
+        return (int) Math.min(length, Integer.MAX_VALUE);
+    }
 }
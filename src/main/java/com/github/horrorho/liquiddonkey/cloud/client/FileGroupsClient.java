@@ -29,6 +29,7 @@ import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ProtoBufArray;
 import com.github.horrorho.liquiddonkey.exception.BadDataException;
 import com.github.horrorho.liquiddonkey.http.ResponseHandlerFactory;
+import com.github.horrorho.liquiddonkey.http.WriterEntity;
 import com.github.horrorho.liquiddonkey.settings.Markers;
 import com.github.horrorho.liquiddonkey.util.Bytes;
 import java.io.IOException;
@@ -107,18 +108,13 @@ public final class FileGroupsClient {
                 .map(file -> ICloud.MBSFile.newBuilder().setFileID(file.getFileID()).build())
                 .collect(Collectors.toList());
 
-        byte[] encoded;
-        try {
-            encoded = ProtoBufArray.encode(postData);
-        } catch (IOException ex) {
-            throw new BadDataException(ex);
-        }
-
         String uri = path(mobileBackupUrl, "mbs", dsPrsID, udid, snapshot, "getFiles");
 
         HttpPost post = new HttpPost(uri);
         headers.mobileBackupHeaders(dsPrsID, mmeAuthToken).stream().forEach(post::addHeader);
-        post.setEntity(new ByteArrayEntity(encoded));
+        post.setEntity(WriterEntity.from(
+                output -> ProtoBufArray.encode(postData, output),
+                ProtoBufArray.size(postData)));
         List<ICloud.MBSFileAuthToken> tokens = client.execute(post, mbsFileAuthTokenListHandler);
 
         logger.debug(marker, "-- getFiles() > tokens: {}", tokens);
@@ -32,6 +32,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.http.NameValuePair;
@@ -55,20 +57,22 @@ import org.slf4j.MarkerFactory;
 public final class SnapshotClient {
 
     public static SnapshotClient create() {
-        return new SnapshotClient(defaultMbsFileListHandler, Headers.create());
+        return new SnapshotClient(defaultMbsFileListHandlers, Headers.create());
     }
 
     private static final Logger logger = LoggerFactory.getLogger(SnapshotClient.class);
     private static final Marker marker = MarkerFactory.getMarker(Markers.CLIENT);
 
-    private static final ResponseHandler<List<ICloud.MBSFile>> defaultMbsFileListHandler
-            = ResponseHandlerFactory.of(inputStream -> ProtoBufArray.decode(inputStream, ICloud.MBSFile.PARSER));
+    // Files are decoded straight into the consumer, the handler returns the number of files decoded.
+    private static final Function<Consumer<ICloud.MBSFile>, ResponseHandler<Integer>> defaultMbsFileListHandlers
+            = consumer -> ResponseHandlerFactory.of(inputStream
+                    -> ProtoBufArray.decode(inputStream, ICloud.MBSFile.PARSER, consumer));
 
-    private final ResponseHandler<List<ICloud.MBSFile>> mbsFileListHandler;
+    private final Function<Consumer<ICloud.MBSFile>, ResponseHandler<Integer>> mbsFileListHandlers;
     private final Headers headers;
 
-    SnapshotClient(ResponseHandler<List<ICloud.MBSFile>> mbsFileListHandler, Headers headers) {
-        this.mbsFileListHandler = Objects.requireNonNull(mbsFileListHandler);
+    SnapshotClient(Function<Consumer<ICloud.MBSFile>, ResponseHandler<Integer>> mbsFileListHandlers, Headers headers) {
+        this.mbsFileListHandlers = Objects.requireNonNull(mbsFileListHandlers);
         this.headers = Objects.requireNonNull(headers);
     }
 
@@ -87,7 +91,8 @@ public final class SnapshotClient {
         NameValuePair limitParameter = new BasicNameValuePair("limit", Integer.toString(listLimit));
 
         List<ICloud.MBSFile> files = new ArrayList<>();
-        List<ICloud.MBSFile> part;
+        ResponseHandler<Integer> mbsFileListHandler = mbsFileListHandlers.apply(files::add);
+        int part;
         int offset = 0;
         do {
             String uri = path(mobileBackupUrl, "mbs", dsPrsID, udid, Integer.toString(id), "listFiles");
@@ -98,9 +103,8 @@ public final class SnapshotClient {
             HttpUriRequest get = builder.build();
             part = client.execute(get, mbsFileListHandler);
 
-            files.addAll(part);
             offset += listLimit;
-        } while (!part.isEmpty());
+        } while (part != 0);
 
         logger.debug(marker, "-- files() > files: {}", files);
         logger.trace(">> files() > {}", files.size());
@@ -31,6 +31,7 @@ import com.google.protobuf.ByteString;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -89,6 +90,32 @@ public final class FileGroups {
         return fileGroups;
     }
 
+    /**
+     * Returns the signatures the server has reported file or file chunk errors for, mapped to an error description.
+     * Such files cannot be assembled and should not be downloaded.
+     *
+     * @param fileGroups not null
+     * @return signature to error description map, not null
+     */
+    public static Map<ByteString, String> errors(ChunkServer.FileGroups fileGroups) {
+        Map<ByteString, String> errors = new HashMap<>();
+
+        fileGroups.getFileErrorList().stream().forEach(error
+                -> errors.put(error.getFileChecksum(), description(error.getErrorResponse())));
+
+        fileGroups.getFileChunkErrorList().stream()
+                .filter(error -> error.getChunkErrorCount() > 0)
+                .forEach(error -> errors.putIfAbsent(error.getFileChecksum(), "chunk: "
+                                + error.getChunkError(0).getChunkIndex()
+                                + " " + description(error.getChunkError(0).getErrorResponse())));
+
+        return errors;
+    }
+
+    static String description(ChunkServer.ErrorResponse response) {
+        return response.getDomain() + "(" + response.getErrorCode() + ") " + response.getErrorDescription();
+    }
+
     static ICloud.MBSFileAuthTokens fileIdToSignatureAuthTokens(
             Collection<ICloud.MBSFile> files,
             Collection<ICloud.MBSFileAuthToken> fileIdAuthTokens) {
@@ -0,0 +1,315 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.data;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * FilterPipeline.
+ * <p>
+ * Chains named filter stages and applies them in a single parallel pass over a snapshot's {@link FileCatalog}. Files
+ * are tested against each stage in turn until rejected, so stages should be added cheapest first. Files are passed
+ * through the stages in chunks, with per-stage reject counts and chunk timings recorded, as is the stage at which
+ * each file was rejected, allowing the snapshot at any stage to be recovered without further passes.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class FilterPipeline {
+
+    /**
+     * Returns a new instance with no stages.
+     *
+     * @return a new instance, not null
+     */
+    public static FilterPipeline create() {
+        return new FilterPipeline(Collections.emptyList());
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(FilterPipeline.class);
+
+    private static final int STAGES_MAX = Byte.MAX_VALUE;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final List<Stage> stages;
+
+    FilterPipeline(List<Stage> stages) {
+        this.stages = Objects.requireNonNull(stages);
+    }
+
+    /**
+     * Returns a new pipeline with the specified file predicate stage appended.
+     *
+     * @param name the stage name, unique, not null
+     * @param predicate files that match are retained, not null
+     * @return a new instance, not null
+     */
+    public FilterPipeline filter(String name, Predicate<ICloud.MBSFile> predicate) {
+        Objects.requireNonNull(predicate);
+        return filterIndex(name, catalog -> index -> predicate.test(catalog.file(index)));
+    }
+
+    /**
+     * Returns a new pipeline with the specified catalog index predicate stage appended. Suited to predicates that
+     * only test the catalog columns.
+     *
+     * @param name the stage name, unique, not null
+     * @param predicates catalog to index predicate function, indices that match are retained, not null
+     * @return a new instance, not null
+     */
+    public FilterPipeline filterIndex(String name, Function<FileCatalog, IntPredicate> predicates) {
+        if (stages.stream().anyMatch(stage -> stage.name.equals(name))) {
+            throw new IllegalArgumentException("Duplicate stage: " + name);
+        }
+        if (stages.size() == STAGES_MAX) {
+            throw new IllegalStateException("Too many stages");
+        }
+
+        List<Stage> list = new ArrayList<>(stages);
+        list.add(new Stage(name, predicates));
+        return new FilterPipeline(Collections.unmodifiableList(list));
+    }
+
+    /**
+     * Applies the pipeline to the specified snapshot.
+     *
+     * @param snapshot not null
+     * @return the result, not null
+     * @throws IOException if a stage throws an UncheckedIOException
+     */
+    public Result apply(Snapshot snapshot) throws IOException {
+        logger.trace("<< apply() < files: {} stages: {}", snapshot.filesCount(), stages.size());
+
+        FileCatalog catalog = snapshot.catalog();
+        int count = stages.size();
+
+        IntPredicate[] predicates = stages.stream()
+                .map(stage -> stage.predicates.apply(catalog))
+                .toArray(IntPredicate[]::new);
+        LongAdder[] rejects = new LongAdder[count];
+        LongAdder[] nanos = new LongAdder[count];
+        Arrays.setAll(rejects, i -> new LongAdder());
+        Arrays.setAll(nanos, i -> new LongAdder());
+
+        // Stage index at which the file was rejected, or the stage count if retained.
+        byte[] rejectedAt = new byte[catalog.size()];
+        Arrays.fill(rejectedAt, (byte) count);
+
+        // Stages are timed over chunks of files, a clock read per file per stage would rival cheap predicates.
+        int[] indices = snapshot.indices().toArray();
+        int chunks = (indices.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        try {
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int from = chunk * CHUNK_SIZE;
+                int[] live = Arrays.copyOfRange(indices, from, Math.min(from + CHUNK_SIZE, indices.length));
+                int size = live.length;
+
+                for (int i = 0; i < count && size > 0; i++) {
+                    long a = System.nanoTime();
+                    int retained = 0;
+                    for (int j = 0; j < size; j++) {
+                        int index = live[j];
+                        if (predicates[i].test(index)) {
+                            live[retained++] = index;
+                        } else {
+                            rejectedAt[index] = (byte) i;
+                        }
+                    }
+                    nanos[i].add(System.nanoTime() - a);
+                    rejects[i].add(size - retained);
+                    size = retained;
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        Result result = new Result(snapshot, stages, rejectedAt, rejects, nanos);
+
+        logger.trace(">> apply() > {}", result);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FilterPipeline{" + "stages=" + stages + '}';
+    }
+
+    @Immutable
+    @ThreadSafe
+    static final class Stage {
+
+        private final String name;
+        private final Function<FileCatalog, IntPredicate> predicates;
+
+        Stage(String name, Function<FileCatalog, IntPredicate> predicates) {
+            this.name = Objects.requireNonNull(name);
+            this.predicates = Objects.requireNonNull(predicates);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * FilterPipeline result.
+     */
+    @Immutable
+    @ThreadSafe
+    public static final class Result {
+
+        private final Snapshot snapshot;
+        private final List<Stage> stages;
+        private final byte[] rejectedAt;
+        private final LongAdder[] rejects;
+        private final LongAdder[] nanos;
+
+        Result(Snapshot snapshot, List<Stage> stages, byte[] rejectedAt, LongAdder[] rejects, LongAdder[] nanos) {
+            this.snapshot = Objects.requireNonNull(snapshot);
+            this.stages = Objects.requireNonNull(stages);
+            this.rejectedAt = Objects.requireNonNull(rejectedAt);
+            this.rejects = Objects.requireNonNull(rejects);
+            this.nanos = Objects.requireNonNull(nanos);
+        }
+
+        /**
+         * Returns the snapshot of files retained by all stages.
+         *
+         * @return the snapshot, not null
+         */
+        public Snapshot snapshot() {
+            return select(index -> rejectedAt[index] == stages.size());
+        }
+
+        /**
+         * Returns the snapshot of files retained by the specified stage and those preceding it.
+         *
+         * @param stage the stage name, not null
+         * @return the snapshot, not null
+         * @throws IllegalArgumentException if no such stage exists
+         */
+        public Snapshot retained(String stage) {
+            int i = indexOf(stage);
+            return select(index -> rejectedAt[index] > i);
+        }
+
+        /**
+         * Returns the snapshot of files rejected by the specified stage.
+         *
+         * @param stage the stage name, not null
+         * @return the snapshot, not null
+         * @throws IllegalArgumentException if no such stage exists
+         */
+        public Snapshot rejected(String stage) {
+            int i = indexOf(stage);
+            return select(index -> rejectedAt[index] == i);
+        }
+
+        /**
+         * Returns the number of files rejected by the specified stage.
+         *
+         * @param stage the stage name, not null
+         * @return the number of files rejected
+         * @throws IllegalArgumentException if no such stage exists
+         */
+        public long rejects(String stage) {
+            return rejects[indexOf(stage)].sum();
+        }
+
+        /**
+         * Returns the number of files retained by the specified stage and those preceding it.
+         *
+         * @param stage the stage name, not null
+         * @return the number of files retained
+         * @throws IllegalArgumentException if no such stage exists
+         */
+        public long remaining(String stage) {
+            int i = indexOf(stage);
+            long remaining = snapshot.filesCount();
+            for (int j = 0; j <= i; j++) {
+                remaining -= rejects[j].sum();
+            }
+            return remaining;
+        }
+
+        /**
+         * Returns the time spent testing files against the specified stage, summed across threads.
+         *
+         * @param stage the stage name, not null
+         * @return the time in milliseconds
+         * @throws IllegalArgumentException if no such stage exists
+         */
+        public long delayMs(String stage) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos[indexOf(stage)].sum());
+        }
+
+        int indexOf(String stage) {
+            for (int i = 0; i < stages.size(); i++) {
+                if (stages.get(i).name.equals(stage)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("No such stage: " + stage);
+        }
+
+        Snapshot select(IntPredicate predicate) {
+            BitSet selection = new BitSet(rejectedAt.length);
+            snapshot.indices().filter(predicate).forEach(selection::set);
+            return new Snapshot(snapshot, selection);
+        }
+
+        @Override
+        public String toString() {
+            return "Result{"
+                    + "files=" + snapshot.filesCount()
+                    + ", rejects=" + stages.stream()
+                    .map(stage -> stage.name + ":" + rejects(stage.name) + "(" + delayMs(stage.name) + "ms)")
+                    .collect(Collectors.joining(" "))
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.data;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ProtoBufArray;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ListingCache.
+ * <p>
+ * On-disk cache of committed snapshot file listings. Committed snapshots are immutable, so listings are keyed by
+ * dsPrsID, backup UDID, snapshot id, committed and last-modified timestamps and never go stale. Listings are stored as
+ * {@link ProtoBufArray} segments behind a header carrying the key, file count and a CRC32 of the content, and are
+ * discarded if they fail validation. The cache is bounded in size, with the least recently used listings evicted
+ * first. File last-modified timestamps serve as access times.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class ListingCache {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param directory the cache directory, created on demand, not null
+     * @param sizeMaxBytes the maximum cache size in bytes
+     * @return a new instance, not null
+     */
+    public static ListingCache from(Path directory, long sizeMaxBytes) {
+        return new ListingCache(directory, sizeMaxBytes);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingCache.class);
+
+    private static final String EXTENSION = ".listing";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int MAGIC = 0x4C444C43; // LDLC
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Path directory;
+    private final long sizeMaxBytes;
+
+    ListingCache(Path directory, long sizeMaxBytes) {
+        this.directory = Objects.requireNonNull(directory);
+        this.sizeMaxBytes = sizeMaxBytes;
+    }
+
+    /**
+     * Returns the cached listing for the specified snapshot.
+     *
+     * @param dsPrsID not null
+     * @param udid the backup UDID, not null
+     * @param snapshot not null
+     * @return the cached listing, or null if not cached or the snapshot is not committed
+     */
+    public List<ICloud.MBSFile> get(String dsPrsID, String udid, ICloud.MBSSnapshot snapshot) {
+        logger.trace("<< get() < dsPrsID: {} udid: {} snapshot: {}", dsPrsID, udid, snapshot.getSnapshotID());
+
+        if (snapshot.getCommitted() == 0) {
+            logger.trace(">> get() > uncommitted");
+            return null;
+        }
+
+        String key = key(dsPrsID, udid, snapshot);
+        Path file = directory.resolve(key + EXTENSION);
+        List<ICloud.MBSFile> files;
+
+        try {
+            files = read(file, key);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+
+        } catch (NoSuchFileException ex) {
+            files = null;
+
+        } catch (IOException ex) {
+            logger.warn("-- get() > invalid listing, discarding: {} exception: {}", file, ex);
+            delete(file);
+            files = null;
+        }
+
+        logger.trace(">> get() > files: {}", files == null ? null : files.size());
+        return files;
+    }
+
+    /**
+     * Caches the listing for the specified snapshot. Uncommitted snapshots are ignored. Failures are logged.
+     *
+     * @param dsPrsID not null
+     * @param udid the backup UDID, not null
+     * @param snapshot not null
+     * @param files the snapshot listing, not null
+     */
+    public void put(String dsPrsID, String udid, ICloud.MBSSnapshot snapshot, List<ICloud.MBSFile> files) {
+        logger.trace("<< put() < dsPrsID: {} udid: {} snapshot: {} files: {}",
+                dsPrsID, udid, snapshot.getSnapshotID(), files.size());
+
+        if (snapshot.getCommitted() == 0) {
+            logger.trace(">> put() > uncommitted");
+            return;
+        }
+
+        String key = key(dsPrsID, udid, snapshot);
+        Path file = directory.resolve(key + EXTENSION);
+        Path temp = null;
+
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, key, TEMP_EXTENSION);
+            write(temp, key, files);
+
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                logger.debug("-- put() > atomic move not supported: {}", ex);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            evict();
+
+        } catch (IOException ex) {
+            logger.warn("-- put() > failed to cache listing: {} exception: {}", file, ex);
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+
+        logger.trace(">> put()");
+    }
+
+    void evict() throws IOException {
+        List<Path> listings;
+        try (Stream<Path> stream = Files.list(directory)) {
+            listings = stream.filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .collect(Collectors.toList());
+        }
+
+        List<Listing> entries = new ArrayList<>();
+        long total = 0;
+        for (Path listing : listings) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(listing, BasicFileAttributes.class);
+                entries.add(new Listing(listing, attributes));
+                total += attributes.size();
+            } catch (NoSuchFileException ex) {
+                logger.debug("-- evict() > no such file: {}", listing);
+            }
+        }
+
+        // Least recently used first.
+        entries.sort(Comparator.comparing(entry -> entry.attributes.lastModifiedTime()));
+
+        for (Listing entry : entries) {
+            if (total <= sizeMaxBytes) {
+                break;
+            }
+            logger.debug("-- evict() > evicting: {}", entry.path);
+            delete(entry.path);
+            total -= entry.attributes.size();
+        }
+    }
+
+    static String key(String dsPrsID, String udid, ICloud.MBSSnapshot snapshot) {
+        return dsPrsID
+                + "_" + udid
+                + "_" + snapshot.getSnapshotID()
+                + "_" + snapshot.getCommitted()
+                + "_" + snapshot.getLastModified();
+    }
+
+    static List<ICloud.MBSFile> read(Path file, String key) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            DataInputStream header = new DataInputStream(input);
+
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Bad listing magic");
+            }
+
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported listing version: " + version);
+            }
+
+            long crc = header.readLong();
+
+            CheckedInputStream checked = new CheckedInputStream(input, new CRC32());
+            DataInputStream content = new DataInputStream(checked);
+
+            String stored = content.readUTF();
+            if (!stored.equals(key)) {
+                throw new IOException("Listing key mismatch: " + stored);
+            }
+
+            int count = content.readInt();
+            List<ICloud.MBSFile> files = new ArrayList<>(count);
+            ProtoBufArray.decode(content, ICloud.MBSFile.PARSER, files::add);
+
+            if (files.size() != count) {
+                throw new IOException("Listing count mismatch: " + files.size() + " expected: " + count);
+            }
+
+            if (checked.getChecksum().getValue() != crc) {
+                throw new IOException("Listing checksum mismatch");
+            }
+
+            return files;
+        }
+    }
+
+    static void write(Path file, String key, List<ICloud.MBSFile> files) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            // Content first, the header is written once the checksum is known.
+            channel.position(HEADER_SIZE);
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), new CRC32());
+            DataOutputStream content = new DataOutputStream(checked);
+
+            content.writeUTF(key);
+            content.writeInt(files.size());
+            ProtoBufArray.encode(files, content);
+            content.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(checked.getChecksum().getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            logger.warn("-- delete() > path: {} exception: {}", path, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ListingCache{" + "directory=" + directory + ", sizeMaxBytes=" + sizeMaxBytes + '}';
+    }
+
+    static final class Listing {
+
+        private final Path path;
+        private final BasicFileAttributes attributes;
+
+        Listing(Path path, BasicFileAttributes attributes) {
+            this.path = path;
+            this.attributes = attributes;
+        }
+    }
+}
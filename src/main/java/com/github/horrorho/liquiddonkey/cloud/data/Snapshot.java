@@ -24,14 +24,23 @@
 package com.github.horrorho.liquiddonkey.cloud.data;
 
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import java.util.AbstractCollection;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
 /**
  * Snapshot.
+ * <p>
+ * Files are held as a selection over an immutable {@link FileCatalog}, shared between a snapshot and those filtered
+ * from it.
  *
  * @author Ahseya
  */
@@ -40,22 +49,32 @@ import net.jcip.annotations.ThreadSafe;
 public class Snapshot extends Backup {
 
     private final ICloud.MBSSnapshot mbsSnapshot;
-    private final Set<ICloud.MBSFile> files;
+    private final FileCatalog catalog;
+    private final BitSet selection;
+    private final int filesCount;
     private final Backup backup;
 
     Snapshot(Backup backup, ICloud.MBSSnapshot mbsSnapshot, Collection<ICloud.MBSFile> files) {
+        this(backup, mbsSnapshot, FileCatalog.from(files), null);
+    }
+
+    Snapshot(Backup backup, ICloud.MBSSnapshot mbsSnapshot, FileCatalog catalog, BitSet selection) {
         super(backup);
         this.mbsSnapshot = mbsSnapshot;
-        this.files = new HashSet<>(files);
+        this.catalog = catalog;
+        this.selection = selection == null
+                ? catalog.all()
+                : (BitSet) selection.clone();
+        this.filesCount = this.selection.cardinality();
         this.backup = backup;
     }
 
-    Snapshot(Snapshot snapshot, Collection<ICloud.MBSFile> files) {
-        this(snapshot.backup, snapshot.mbsSnapshot, files);
+    Snapshot(Snapshot snapshot, BitSet selection) {
+        this(snapshot.backup, snapshot.mbsSnapshot, snapshot.catalog, selection);
     }
 
     Snapshot(Snapshot snapshot) {
-        this(snapshot.backup, snapshot.mbsSnapshot, snapshot.files());
+        this(snapshot.backup, snapshot.mbsSnapshot, snapshot.catalog, snapshot.selection);
     }
 
     public final int snapshotID() {
@@ -66,21 +85,103 @@ public class Snapshot extends Backup {
         return mbsSnapshot;
     }
 
-    public final Set<ICloud.MBSFile> files() {
-        return new HashSet<>(files);
+    /**
+     * Returns an unmodifiable view of the selected files. No copy is made.
+     *
+     * @return the selected files, not null
+     */
+    public final Collection<ICloud.MBSFile> files() {
+        return new FilesView();
     }
 
     public final int filesCount() {
-        return files.size();
+        return filesCount;
+    }
+
+    /**
+     * Returns the file catalog.
+     *
+     * @return the file catalog, not null
+     */
+    public final FileCatalog catalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the indices of the selected files in the catalog.
+     *
+     * @return the indices of the selected files, not null
+     */
+    public final IntStream indices() {
+        return selection.stream();
+    }
+
+    /**
+     * Returns a copy of the selection.
+     *
+     * @return a copy of the selection, not null
+     */
+    public final BitSet selection() {
+        return (BitSet) selection.clone();
     }
-    
+
     @Override
     public String toString() {
         return "Snapshot{"
                 + "dsPrsID=" + dsPrsID()
                 + "udid=" + backupUDID()
                 + "mbsSnapshot=" + mbsSnapshot
-                + ", files=" + files.size()
+                + ", files=" + filesCount
                 + '}';
     }
+
+    final class FilesView extends AbstractCollection<ICloud.MBSFile> {
+
+        @Override
+        public Iterator<ICloud.MBSFile> iterator() {
+            return new Iterator<ICloud.MBSFile>() {
+                int index = selection.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return index >= 0;
+                }
+
+                @Override
+                public ICloud.MBSFile next() {
+                    if (index < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    ICloud.MBSFile file = catalog.file(index);
+                    index = selection.nextSetBit(index + 1);
+                    return file;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return filesCount;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return filesCount == 0;
+        }
+
+        @Override
+        public Spliterator<ICloud.MBSFile> spliterator() {
+            return Spliterators.spliterator(iterator(), filesCount, Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+
+        @Override
+        public Stream<ICloud.MBSFile> stream() {
+            return indices().mapToObj(catalog::file);
+        }
+
+        @Override
+        public Stream<ICloud.MBSFile> parallelStream() {
+            return indices().parallel().mapToObj(catalog::file);
+        }
+    }
 }
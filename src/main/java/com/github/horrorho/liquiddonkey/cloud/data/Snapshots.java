@@ -27,9 +27,11 @@ import com.github.horrorho.liquiddonkey.cloud.client.SnapshotClient;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.http.client.HttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,15 +44,66 @@ import org.slf4j.LoggerFactory;
 public class Snapshots {
 
     public static final Snapshot from(Snapshot snapshot, Predicate<ICloud.MBSFile> predicate) {
-        List<ICloud.MBSFile> filtered = snapshot.files().stream().filter(predicate).collect(Collectors.toList());
-        return new Snapshot(snapshot, filtered);
-    } 
+        return from(snapshot, predicate, false);
+    }
+
+    public static final Snapshot from(Snapshot snapshot, Predicate<ICloud.MBSFile> predicate, boolean isParallel) {
+        FileCatalog catalog = snapshot.catalog();
+        return select(snapshot, index -> predicate.test(catalog.file(index)), isParallel);
+    }
+
+    /**
+     * Returns a new snapshot with the selected files, by catalog index, that match the specified predicate. Files are
+     * not copied.
+     *
+     * @param snapshot not null
+     * @param predicate catalog index predicate, not null
+     * @param isParallel to test in parallel
+     * @return a new snapshot, not null
+     */
+    public static final Snapshot select(Snapshot snapshot, IntPredicate predicate, boolean isParallel) {
+        IntStream indices = isParallel
+                ? snapshot.indices().parallel()
+                : snapshot.indices();
+
+        BitSet selection = new BitSet(snapshot.catalog().size());
+        indices.filter(predicate).forEachOrdered(selection::set);
+
+        return new Snapshot(snapshot, selection);
+    }
 
     public static final Snapshot from(HttpClient client, Core core, String mmeAuthToken, Backup backup, int id, int listLimit)
             throws IOException {
 
-        logger.trace("<< from() < dsPrsID: {} udid: {} id: {} listLimit: {}",
-                backup.dsPrsID(), backup.backupUDID(), id, listLimit);
+        return from(client, core, mmeAuthToken, backup, id, listLimit, null);
+    }
+
+    /**
+     * Returns the specified snapshot. Committed snapshot listings are retrieved from, or added to, the specified
+     * cache.
+     *
+     * @param client not null
+     * @param core not null
+     * @param mmeAuthToken not null
+     * @param backup not null
+     * @param id the snapshot id
+     * @param listLimit the list files page size
+     * @param cache the listing cache, may be null
+     * @return the snapshot, or null if no such snapshot exists
+     * @throws IOException
+     */
+    public static final Snapshot from(
+            HttpClient client,
+            Core core,
+            String mmeAuthToken,
+            Backup backup,
+            int id,
+            int listLimit,
+            ListingCache cache
+    ) throws IOException {
+
+        logger.trace("<< from() < dsPrsID: {} udid: {} id: {} listLimit: {} cache: {}",
+                backup.dsPrsID(), backup.backupUDID(), id, listLimit, cache);
 
         if (!core.dsPrsID().equals(backup.dsPrsID())) {
             logger.error("-- from() > dsPrsID mismatch, core: {} backup: {}", core.dsPrsID(), backup.dsPrsID());
@@ -65,14 +118,26 @@ public class Snapshots {
         if (mbsSnapshot == null) {
             snapshot = null;
         } else {
-            List<ICloud.MBSFile> files = snapshotClient.files(
-                    client,
-                    core.dsPrsID(),
-                    mmeAuthToken,
-                    core.mobileBackupUrl(),
-                    backup.backupUDID(),
-                    mbsSnapshot.getSnapshotID(),
-                    listLimit);
+            List<ICloud.MBSFile> files = cache == null
+                    ? null
+                    : cache.get(backup.dsPrsID(), backup.backupUDID(), mbsSnapshot);
+
+            if (files == null) {
+                files = snapshotClient.files(
+                        client,
+                        core.dsPrsID(),
+                        mmeAuthToken,
+                        core.mobileBackupUrl(),
+                        backup.backupUDID(),
+                        mbsSnapshot.getSnapshotID(),
+                        listLimit);
+
+                if (cache != null) {
+                    cache.put(backup.dsPrsID(), backup.backupUDID(), mbsSnapshot, files);
+                }
+            } else {
+                logger.debug("-- from() > cached listing: {}", id);
+            }
 
             snapshot = new Snapshot(backup, mbsSnapshot, files);
         }
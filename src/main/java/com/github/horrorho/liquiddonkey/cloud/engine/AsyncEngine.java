@@ -0,0 +1,415 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.HttpAgent;
+import com.github.horrorho.liquiddonkey.cloud.SignatureManager;
+import com.github.horrorho.liquiddonkey.cloud.client.ChunksClient;
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.http.HostHealth;
+import com.github.horrorho.liquiddonkey.http.HttpClientFactory;
+import com.github.horrorho.liquiddonkey.iofunction.IOSupplier;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
+import com.github.horrorho.liquiddonkey.settings.config.EngineConfig;
+import com.github.horrorho.liquiddonkey.settings.config.HttpConfig;
+import com.github.horrorho.liquiddonkey.util.ByteArrayPool;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AsyncEngine.
+ * <p>
+ * Downloads containers over a non-blocking client, so many containers may be in flight on a few I/O threads. The
+ * number in flight is bounded by the maximum connection count. Completed containers are decrypted and written by a
+ * pool of engine threads. On a 401 expired authorizations are refreshed through the {@link Reauthorizer}, if any, on an
+ * engine thread and the replacement containers queued, otherwise the 401 is fatal.
+ * <p>
+ * Unlike the {@link ConcurrentEngine}, requests are neither watched for stalls, circuit broken per host nor hedged.
+ * Slow or failing hosts are left to the client's socket timeouts and to {@link Retries}.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class AsyncEngine implements Engine {
+
+    public static AsyncEngine from(EngineConfig engineConfig, HttpConfig httpConfig) {
+        return new AsyncEngine(
+                HttpClientFactory.from(httpConfig)::asyncClient,
+                httpConfig.maxConnections(),
+                engineConfig.threadCount(),
+                () -> Retries.from(engineConfig),
+                engineConfig.timeoutMs());
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncEngine.class);
+
+    private static final long DISPATCH_POLL_MS = 10;
+
+    private final IOSupplier<CloseableHttpAsyncClient> clients;
+    private final int maxInFlight;
+    private final int threads;
+    private final Supplier<Retries> retries;
+    private final long executorTimeoutMs;
+    private final ChunksClient chunksClient = ChunksClient.create();
+
+    AsyncEngine(
+            IOSupplier<CloseableHttpAsyncClient> clients,
+            int maxInFlight,
+            int threads,
+            Supplier<Retries> retries,
+            long executorTimeoutMs) {
+
+        this.clients = Objects.requireNonNull(clients);
+        this.maxInFlight = maxInFlight;
+        this.threads = threads;
+        this.retries = Objects.requireNonNull(retries);
+        this.executorTimeoutMs = executorTimeoutMs;
+    }
+
+    @Override
+    public void execute(
+            HttpAgent agent,
+            ChunkManager storeManager,
+            SignatureManager signatureManager,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
+            List<ChunkServer.StorageHostChunkList> chunkListList,
+            Reauthorizer reauthorizer
+    ) throws InterruptedException, IOException, TimeoutException {
+
+        Retries retry = retries.get();
+        // Completions only, requests are neither watched nor circuit broken, see EngineConfig.
+        Watchdog watchdog = Watchdog.from(0, 0);
+        HostHealth health = HostHealth.from(0, 0);
+
+        execute(
+                retry,
+                () -> new Donkey(agent, chunksClient, storeManager, signatureManager, retry, watchdog, health, null),
+                outcomesConsumer,
+                chunkListList,
+                reauthorizer);
+    }
+
+    void execute(
+            Retries retry,
+            Supplier<Donkey> donkeys,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
+            List<ChunkServer.StorageHostChunkList> chunkListList,
+            Reauthorizer reauthorizer
+    ) throws InterruptedException, IOException, TimeoutException {
+
+        logger.trace("<< execute() < chunks count: {}", chunkListList.size());
+
+        if (chunkListList.isEmpty()) {
+            logger.trace(">> execute() > empty");
+            return;
+        }
+
+        // Also schedules retries after their backoff delay.
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads);
+
+        try (CloseableHttpAsyncClient client = clients.get()) {
+            client.start();
+
+            Execution execution
+                    = new Execution(client, executor, retry, donkeys, outcomesConsumer, reauthorizer, chunkListList);
+
+            logger.debug("-- execute() > dispatching, timeout (ms): {}", executorTimeoutMs);
+            if (!execution.dispatch(executorTimeoutMs)) {
+                logger.warn("-- execute() > timed out");
+                throw new TimeoutException("Async engine timed out");
+            }
+
+            Exception ex = execution.fatal();
+            logger.debug("-- execute() > fatal: {}", ex);
+
+            if (ex != null) {
+                if (ex instanceof IOException) {
+                    throw (IOException) ex;
+                }
+
+                if (ex instanceof InterruptedException) {
+                    throw (InterruptedException) ex;
+                }
+
+                if (ex instanceof RuntimeException) {
+                    throw (RuntimeException) ex;
+                }
+
+                throw new IllegalStateException(ex);
+            }
+
+        } finally {
+            // Closing the client aborts any requests in flight.
+            logger.debug("-- execute() > shutting down");
+            executor.shutdownNow();
+        }
+
+        logger.trace(">> execute()");
+    }
+
+    /**
+     * State of a single execute() call.
+     */
+    @ThreadSafe
+    final class Execution {
+
+        private final CloseableHttpAsyncClient client;
+        private final ScheduledExecutorService executor;
+        private final Retries retry;
+        private final Supplier<Donkey> donkeys;
+        private final Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer;
+        private final Reauthorizer reauthorizer;
+        private final BlockingQueue<ChunkServer.StorageHostChunkList> queue;
+        private final Semaphore inFlight;
+        private final AtomicInteger pending;
+        private final CountDownLatch done;
+        private final AtomicReference<Exception> fatal;
+
+        Execution(
+                CloseableHttpAsyncClient client,
+                ScheduledExecutorService executor,
+                Retries retry,
+                Supplier<Donkey> donkeys,
+                Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
+                Reauthorizer reauthorizer,
+                List<ChunkServer.StorageHostChunkList> chunkListList) {
+
+            this.client = Objects.requireNonNull(client);
+            this.executor = Objects.requireNonNull(executor);
+            this.retry = Objects.requireNonNull(retry);
+            this.donkeys = Objects.requireNonNull(donkeys);
+            this.outcomesConsumer = Objects.requireNonNull(outcomesConsumer);
+            this.reauthorizer = reauthorizer;
+            this.queue = new LinkedBlockingQueue<>(chunkListList);
+            this.inFlight = new Semaphore(maxInFlight);
+            this.pending = new AtomicInteger(chunkListList.size());
+            this.done = new CountDownLatch(1);
+            this.fatal = new AtomicReference<>(null);
+        }
+
+        /**
+         * Submits queued containers, replacements included, as in-flight permits allow until all are complete or a
+         * fatal exception occurs.
+         *
+         * @param timeoutMs the timeout in milliseconds
+         * @return false if timed out
+         * @throws InterruptedException
+         */
+        boolean dispatch(long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (done.getCount() != 0) {
+                long remainingMs = deadline - System.currentTimeMillis();
+                if (remainingMs <= 0) {
+                    return false;
+                }
+
+                ChunkServer.StorageHostChunkList chunkList
+                        = queue.poll(Math.min(remainingMs, DISPATCH_POLL_MS), TimeUnit.MILLISECONDS);
+                if (chunkList == null) {
+                    continue;
+                }
+
+                if (!inFlight.tryAcquire(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+                if (fatal.get() != null) {
+                    break;
+                }
+                submit(chunkList);
+            }
+            return true;
+        }
+
+        Exception fatal() {
+            return fatal.get();
+        }
+
+        void submit(ChunkServer.StorageHostChunkList chunkList) {
+            if (reauthorizer != null && reauthorizer.isStale(chunkList)) {
+                // Superseded by a refreshed authorization.
+                logger.debug("-- submit() > stale: {}", chunkList.getHostInfo().getUri());
+                finish();
+                return;
+            }
+
+            long started = System.nanoTime();
+            chunksClient.get(client, chunkList, new FutureCallback<ByteArrayPool.Lease>() {
+
+                @Override
+                public void completed(ByteArrayPool.Lease lease) {
+                    DownloadMetrics.REQUEST_LATENCY.recordSince(started);
+                    DownloadMetrics.FETCHED_BYTES.add(lease.length());
+                    try {
+                        executor.execute(() -> decrypt(chunkList, lease));
+                    } catch (RejectedExecutionException ex) {
+                        // Shutting down.
+                        lease.close();
+                        fail(chunkList, ex);
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    DownloadMetrics.REQUEST_LATENCY.recordSince(started);
+                    retryOrFail(chunkList, ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    fail(chunkList, new CancellationException("Cancelled"));
+                }
+            });
+        }
+
+        void decrypt(ChunkServer.StorageHostChunkList chunkList, ByteArrayPool.Lease lease) {
+            try (ByteArrayPool.Lease data = lease) {
+                // Donkeys are not thread safe, one per completion.
+                outcomesConsumer.accept(donkeys.get().complete(chunkList, data.array(), data.length()));
+                finish();
+
+            } catch (BadDataException ex) {
+                retryOrFail(chunkList, ex);
+
+            } catch (IOException | InterruptedException | RuntimeException ex) {
+                fatal(ex);
+            }
+        }
+
+        void retryOrFail(ChunkServer.StorageHostChunkList chunkList, Exception ex) {
+            try {
+                boolean isUnauthorized = ex instanceof HttpResponseException
+                        && ((HttpResponseException) ex).getStatusCode() == 401;
+
+                if (isUnauthorized) {
+                    DownloadMetrics.UNAUTHORIZED.increment();
+                    if (reauthorizer == null) {
+                        outcomesConsumer.accept(donkeys.get().fail(ex, chunkList));
+                        fatal(ex);
+                        return;
+                    }
+                    // Refreshing blocks, keep it off the I/O threads.
+                    try {
+                        executor.execute(() -> reauthorize(chunkList, ex));
+                    } catch (RejectedExecutionException rejected) {
+                        // Shutting down.
+                        fail(chunkList, ex);
+                    }
+                    return;
+                }
+
+                long delayMs = fatal.get() == null ? retry.backoffMs(chunkList) : -1;
+                if (delayMs >= 0) {
+                    logger.warn("-- retryOrFail() > delay(ms): {} exception: {}", delayMs, ex);
+                    DownloadMetrics.CONTAINERS_RETRIED.increment();
+                    try {
+                        executor.schedule(() -> submit(chunkList), delayMs, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException rejected) {
+                        // Shutting down.
+                        fail(chunkList, ex);
+                    }
+                    return;
+                }
+
+                // Retries exhausted. Unlike an unauthorized request, this fails the container rather than the run,
+                // connection failures included.
+                fail(chunkList, ex);
+
+            } catch (RuntimeException re) {
+                fatal(re);
+            }
+        }
+
+        void reauthorize(ChunkServer.StorageHostChunkList chunkList, Exception ex) {
+            try {
+                if (reauthorizer.reauthorize(chunkList, this::replace)) {
+                    finish();
+                    return;
+                }
+                outcomesConsumer.accept(donkeys.get().fail(ex, chunkList));
+                fatal(ex);
+
+            } catch (IOException | RuntimeException e) {
+                fatal(e);
+            }
+        }
+
+        void replace(List<ChunkServer.StorageHostChunkList> replacements) {
+            // Pending before the superseded container finishes.
+            pending.addAndGet(replacements.size());
+            queue.addAll(replacements);
+        }
+
+        void fail(ChunkServer.StorageHostChunkList chunkList, Exception ex) {
+            try {
+                outcomesConsumer.accept(donkeys.get().fail(ex, chunkList));
+                finish();
+
+            } catch (RuntimeException re) {
+                fatal(re);
+            }
+        }
+
+        void finish() {
+            inFlight.release();
+            if (pending.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        }
+
+        void fatal(Exception ex) {
+            logger.warn("-- fatal() > exception: ", ex);
+            fatal.compareAndSet(null, ex);
+            inFlight.release();
+            done.countDown();
+        }
+    }
+}
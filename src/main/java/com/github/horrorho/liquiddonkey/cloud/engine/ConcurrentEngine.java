@@ -30,19 +30,31 @@ import com.github.horrorho.liquiddonkey.cloud.client.ChunksClient;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import com.github.horrorho.liquiddonkey.http.HostHealth;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
 import com.github.horrorho.liquiddonkey.settings.config.EngineConfig;
-import com.github.horrorho.liquiddonkey.util.SyncSupplier;
+import com.github.horrorho.liquiddonkey.util.VirtualThreads;
+import com.github.horrorho.liquiddonkey.util.WorkQueue;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import net.jcip.annotations.Immutable;
@@ -57,56 +69,162 @@ import org.slf4j.LoggerFactory;
  */
 @Immutable
 @ThreadSafe
-public class ConcurrentEngine {
+public class ConcurrentEngine implements Engine {
 
     public static ConcurrentEngine from(EngineConfig config) {
-        return from(config.threadCount(), config.threadStaggerDelayMs(), config.retryCount(), config.timeoutMs());
+        return from(
+                config.threadCount(),
+                config.threadStaggerDelayMs(),
+                () -> Retries.from(config),
+                () -> Hedging.from(config),
+                () -> Watchdog.from(config),
+                () -> HostHealth.from(config.circuitFailureThreshold(), config.circuitOpenMs()),
+                config.timeoutMs(),
+                config.toUseVirtualThreads());
     }
 
     public static ConcurrentEngine from(int threads, int staggerMs, int retryCount, long executorTimeoutMs) {
-        return new ConcurrentEngine(threads, staggerMs, retryCount, executorTimeoutMs);
+        return from(threads, staggerMs, retryCount, executorTimeoutMs, false);
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param threads the thread count, or the concurrent container limit if using virtual threads
+     * @param staggerMs the thread start stagger delay, not applicable to virtual threads
+     * @param retryCount the container retry count
+     * @param executorTimeoutMs the execution timeout
+     * @param toUseVirtualThreads to run each container on a virtual thread, if supported by the runtime
+     * @return a new instance, not null
+     */
+    public static ConcurrentEngine
+            from(int threads, int staggerMs, int retryCount, long executorTimeoutMs, boolean toUseVirtualThreads) {
+
+        // No backoff, host retry budget, hedging, watchdog or circuit breakers.
+        return from(
+                threads,
+                staggerMs,
+                () -> Retries.from(retryCount, 0, 0, 0),
+                () -> Hedging.from(false, 0, 0),
+                () -> Watchdog.from(0, 0),
+                () -> HostHealth.from(0, 0),
+                executorTimeoutMs,
+                toUseVirtualThreads);
+    }
+
+    static ConcurrentEngine from(
+            int threads,
+            int staggerMs,
+            Supplier<Retries> retries,
+            Supplier<Hedging> hedges,
+            Supplier<Watchdog> watchdogs,
+            Supplier<HostHealth> healths,
+            long executorTimeoutMs,
+            boolean toUseVirtualThreads) {
+
+        if (toUseVirtualThreads && !VirtualThreads.isSupported()) {
+            logger.warn("-- from() > virtual threads unsupported by this build or runtime, using platform threads");
+        }
+
+        return new ConcurrentEngine(
+                threads,
+                staggerMs,
+                retries,
+                hedges,
+                watchdogs,
+                healths,
+                executorTimeoutMs,
+                toUseVirtualThreads && VirtualThreads.isSupported(),
+                VirtualThreads::newExecutor);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ConcurrentEngine.class);
 
+    private static final long DISPATCH_SLEEP_MS = 10;
+
     private final int threads;
     private final int staggerMs;
-    private final int retryCount;
+    private final Supplier<Retries> retries;
+    private final Supplier<Hedging> hedges;
+    private final Supplier<Watchdog> watchdogs;
+    private final Supplier<HostHealth> healths;
     private final long executorTimeoutMs;
+    private final boolean toUseVirtualThreads;
+    private final Supplier<ExecutorService> virtualExecutors;
     private final ChunksClient chunksClient = ChunksClient.create();
 
-    ConcurrentEngine(int threads, int staggerMs, int retryCount, long executorTimeoutMs) {
+    ConcurrentEngine(
+            int threads,
+            int staggerMs,
+            Supplier<Retries> retries,
+            Supplier<Hedging> hedges,
+            Supplier<Watchdog> watchdogs,
+            Supplier<HostHealth> healths,
+            long executorTimeoutMs,
+            boolean toUseVirtualThreads,
+            Supplier<ExecutorService> virtualExecutors) {
+
         this.threads = threads;
         this.staggerMs = staggerMs;
-        this.retryCount = retryCount;
+        this.retries = Objects.requireNonNull(retries);
+        this.hedges = Objects.requireNonNull(hedges);
+        this.watchdogs = Objects.requireNonNull(watchdogs);
+        this.healths = Objects.requireNonNull(healths);
         this.executorTimeoutMs = executorTimeoutMs;
+        this.toUseVirtualThreads = toUseVirtualThreads;
+        this.virtualExecutors = Objects.requireNonNull(virtualExecutors);
     }
 
+    @Override
     public void execute(
             HttpAgent agent,
             ChunkManager storeManager,
             SignatureManager signatureManager,
             Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
-            List<ChunkServer.StorageHostChunkList> chunkListList
+            List<ChunkServer.StorageHostChunkList> chunkListList,
+            Reauthorizer reauthorizer
     ) throws InterruptedException, IOException, TimeoutException {
 
-        
-        
-        
-        
         List<ChunkServer.StorageHostChunkList> chunks = chunkListList.stream().collect(Collectors.toList());
         logger.debug("-- execute() > chunks count: {}", chunks.size());
 
-        SyncSupplier<ChunkServer.StorageHostChunkList> syncSupplier = SyncSupplier.from(chunks);
+        WorkQueue<ChunkServer.StorageHostChunkList> queue = WorkQueue.from(chunks);
         AtomicReference<Exception> fatal = new AtomicReference(null);
+        // Retries are re-queued onto the work queue once due.
+        Retries retry = retries.get().open(queue);
+        Hedging hedging = hedges.get();
+        Watchdog watchdog = watchdogs.get();
+        HostHealth health = healths.get();
+
+        Supplier<Donkey> donkeys = () -> new Donkey(
+                agent, chunksClient, storeManager, signatureManager, retry, watchdog, health, reauthorizer);
 
-        Supplier<Donkey> donkeys
-                = () -> new Donkey(agent, chunksClient, storeManager, signatureManager, retryCount);
+        // Virtual runners hold a concurrency permit, so they don't idle awaiting retries or stragglers.
+        Function<WorkQueue<ChunkServer.StorageHostChunkList>, Runner> runners = work -> new Runner(
+                work, retry, hedging, health, !toUseVirtualThreads, outcomesConsumer, fatal, donkeys.get());
 
-        Supplier<Runner> runners = ()
-                -> new Runner(syncSupplier, outcomesConsumer, fatal, donkeys.get());
+        DownloadMetrics.QUEUE_DEPTH.set(() -> queue.size() + retry.size());
+
+        Exception ex;
+        try {
+            ex = execute(queue, retry, runners, fatal);
 
-        Exception ex = execute(runners, fatal);
+            if (ex == null) {
+                // Final sweep, a last attempt for deferred and outstanding delayed containers.
+                List<ChunkServer.StorageHostChunkList> sweep = retry.sweep();
+                if (!sweep.isEmpty()) {
+                    logger.info("-- execute() > final retry sweep, containers: {}", sweep.size());
+                    queue.addAll(sweep);
+                    ex = execute(queue, retry, runners, fatal);
+                }
+            }
+        } finally {
+            DownloadMetrics.QUEUE_DEPTH.set(null);
+            retry.close();
+            watchdog.close();
+            List<ChunkServer.StorageHostChunkList> drained = queue.drain();
+            logger.debug("-- execute() > drained: {}", drained.size());
+        }
         logger.debug("-- execute() > fatal: {}", ex);
         
         if (ex != null) {
@@ -126,6 +244,115 @@ public class ConcurrentEngine {
         }
     }
 
+    Exception execute(
+            WorkQueue<ChunkServer.StorageHostChunkList> queue,
+            Retries retry,
+            Function<WorkQueue<ChunkServer.StorageHostChunkList>, Runner> runners,
+            AtomicReference<Exception> fatal
+    ) throws InterruptedException, TimeoutException {
+
+        return toUseVirtualThreads
+                ? executeVirtual(queue, retry, runners, fatal)
+                : execute(() -> runners.apply(queue), fatal);
+    }
+
+    Exception executeVirtual(
+            WorkQueue<ChunkServer.StorageHostChunkList> queue,
+            Retries retry,
+            Function<WorkQueue<ChunkServer.StorageHostChunkList>, Runner> runnersFunction,
+            AtomicReference<Exception> fatal
+    ) throws InterruptedException, TimeoutException {
+
+        logger.trace("<< executeVirtual() < chunks: {} concurrency: {}", queue.size(), threads);
+
+        // One virtual thread per container, concurrency bounded by permits rather than the thread count. Containers are
+        // taken in dispatch order by whichever thread acquires a permit, so the schedule order is kept however the
+        // threads start. Runners are created once running, so idle threads don't hold Donkeys.
+        Semaphore permits = new Semaphore(threads);
+        Queue<ChunkServer.StorageHostChunkList> pending = new ConcurrentLinkedQueue<>();
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger dispatched = new AtomicInteger(0);
+        Set<Runner> runners = ConcurrentHashMap.newKeySet();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(executorTimeoutMs);
+
+        ExecutorService executor = virtualExecutors.get();
+        logger.debug("-- executeVirtual() > executor created");
+
+        Runnable task = () -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                logger.debug("-- executeVirtual() > interrupted");
+                running.decrementAndGet();
+                return;
+            }
+            try {
+                Runner runner = runnersFunction.apply(WorkQueue.from(Collections.singletonList(pending.remove())));
+                runners.add(runner);
+                try {
+                    runner.run();
+                } finally {
+                    runners.remove(runner);
+                }
+            } finally {
+                permits.release();
+                running.decrementAndGet();
+            }
+        };
+
+        Consumer<ChunkServer.StorageHostChunkList> dispatch = chunkList -> {
+            pending.add(chunkList);
+            running.incrementAndGet();
+            dispatched.incrementAndGet();
+            executor.execute(task);
+        };
+
+        try {
+            // Virtual runners don't idle. Backed off retries and reauthorized replacements are dispatched here as they
+            // are queued, while containers are outstanding. A container retries before its runner completes, and a
+            // retry is queued before it ceases to be pending, so once none are running or pending any is queued.
+            while (fatal.get() == null) {
+                if (System.nanoTime() - deadline > 0) {
+                    logger.warn("-- executeVirtual() > timed out");
+                    throw new TimeoutException("Concurrent engine timed out");
+                }
+
+                ChunkServer.StorageHostChunkList chunkList = queue.poll();
+                if (chunkList != null) {
+                    dispatch.accept(chunkList);
+                    continue;
+                }
+
+                if (running.get() == 0 && !retry.isPending() && queue.size() == 0) {
+                    break;
+                }
+                TimeUnit.MILLISECONDS.sleep(DISPATCH_SLEEP_MS);
+            }
+
+            logger.debug("-- executeVirtual() > runners dispatched: {}", dispatched.get());
+            executor.shutdown();
+
+            long timeoutNanos = Math.max(0, deadline - System.nanoTime());
+            logger.debug("-- executeVirtual() > awaiting termination, timeout (ms): {}",
+                    TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+            if (!executor.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                logger.warn("-- executeVirtual() > timed out");
+                throw new TimeoutException("Concurrent engine timed out");
+            }
+
+            Exception ex = fatal.get();
+            logger.trace(">> executeVirtual() > fatal: {}", ex);
+            return ex;
+
+        } finally {
+            logger.debug("-- executeVirtual() > shutting down");
+            executor.shutdownNow();
+
+            // Kill running Runners (aborting any http requests in progress).
+            runners.forEach(Runner::kill);
+        }
+    }
+
     Exception execute(Supplier<Runner> runnersSupplier, AtomicReference<Exception> fatal)
             throws InterruptedException, TimeoutException {
 
@@ -32,11 +32,17 @@ import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.cloud.store.DataWriter;
 import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
 import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.http.HostHealth;
+import com.github.horrorho.liquiddonkey.http.Progress;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
+import com.github.horrorho.liquiddonkey.util.ByteArrayPool;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import net.jcip.annotations.NotThreadSafe;
 import org.apache.http.client.HttpResponseException;
@@ -58,7 +64,10 @@ class Donkey {
     private final ChunksClient chunksClient;
     private final ChunkManager storeManager;
     private final SignatureManager signatureManager;
-    private final int retryCount;
+    private final Retries retries;
+    private final Watchdog watchdog;
+    private final HostHealth health;
+    private final Reauthorizer reauthorizer;
     private final AtomicReference<HttpUriRequest> request;
 
     Donkey(
@@ -66,14 +75,20 @@ class Donkey {
             ChunksClient chunksClient,
             ChunkManager storeManager,
             SignatureManager signatureManager,
-            int retryCount,
+            Retries retries,
+            Watchdog watchdog,
+            HostHealth health,
+            Reauthorizer reauthorizer,
             AtomicReference<HttpUriRequest> request) {
 
         this.agent = Objects.requireNonNull(agent);
         this.chunksClient = Objects.requireNonNull(chunksClient);
         this.storeManager = Objects.requireNonNull(storeManager);
         this.signatureManager = Objects.requireNonNull(signatureManager);
-        this.retryCount = retryCount;
+        this.retries = Objects.requireNonNull(retries);
+        this.watchdog = Objects.requireNonNull(watchdog);
+        this.health = Objects.requireNonNull(health);
+        this.reauthorizer = reauthorizer;
         this.request = request;
     }
 
@@ -82,63 +97,156 @@ class Donkey {
             ChunksClient chunksClient,
             ChunkManager storeManager,
             SignatureManager signatureManager,
-            int retryCount) {
+            Retries retries,
+            Watchdog watchdog,
+            HostHealth health,
+            Reauthorizer reauthorizer) {
 
-        this(agent, chunksClient, storeManager, signatureManager, retryCount, new AtomicReference());
+        this(agent,
+                chunksClient,
+                storeManager,
+                signatureManager,
+                retries,
+                watchdog,
+                health,
+                reauthorizer,
+                new AtomicReference());
     }
 
-    Map<ICloud.MBSFile, Outcome> process(ChunkServer.StorageHostChunkList chunkList)
-            throws InterruptedException, IOException {
-
+    /**
+     * Downloads, stores and writes the specified in-flight container, either as the primary or as a hedged request.
+     * The first response wins, losing requests are aborted. On failure the container is returned to the retries by the
+     * last running attempt, failing only once the retries no longer accept it.
+     *
+     * @param flight the in-flight container, not null
+     * @return the outcomes of completed or failed files, not null
+     * @throws InterruptedException
+     * @throws IOException on an unrecoverable error
+     */
+    Map<ICloud.MBSFile, Outcome> process(Hedging.InFlight flight) throws InterruptedException, IOException {
+        ChunkServer.StorageHostChunkList chunkList = flight.chunkList();
         logger.trace("<< process() < chunk list: {}", chunkList.getHostInfo().getUri());
+        String host = chunkList.getHostInfo().getHostname();
 
-        request.set(chunksClient.get(chunkList));
-        int count = 0;
+        HttpUriRequest local = chunksClient.get(chunkList);
+        request.set(local);
+        flight.join(local);
 
-        while (true) {
-            Map<ByteString, DataWriter> writers;
+        if (reauthorizer != null && reauthorizer.isStale(chunkList)) {
+            // Superseded by a refreshed authorization.
+            logger.debug("-- process() > stale: {}", chunkList.getHostInfo().getUri());
+            flight.leave(local);
+            return Collections.emptyMap();
+        }
+        Progress progress = watchdog.watch(local);
 
+        long started = System.nanoTime();
+        ByteArrayPool.Lease data;
+        try {
             if (request.get() == null || Thread.currentThread().isInterrupted()) {
                 throw new InterruptedException("Interrupted");
             }
+            // A single attempt, failures are retried through Retries.
+            data = agent.attempt(client
+                    -> client.execute(local, chunksClient.responseHandler(chunkList, progress, agent.throttle())));
 
-            try {
-                byte[] data = agent.execute(client -> client.execute(request.get(), chunksClient.responseHandler()));
-                writers = storeManager.put(chunkList.getChunkInfoList(), data);
-
-            } catch (HttpResponseException ex) {
-                if (ex.getStatusCode() == 401) {
-                    fail(ex, chunkList);
-                    throw ex;
-                }
-                if (++count >= retryCount) {
-                    // TODO consider aggression option
-                    return fail(ex, chunkList);
+        } catch (HttpResponseException ex) {
+            boolean isLast = flight.leave(local);
+            if (ex.getStatusCode() == 401) {
+                DownloadMetrics.UNAUTHORIZED.increment();
+                // Expired authorization, refreshed containers replace the remaining work.
+                if (reauthorizer != null && reauthorizer.reauthorize(chunkList, retries::addAll)) {
+                    return Collections.emptyMap();
                 }
-                logger.warn("-- process() > count: {} exception: {}", count, ex);
-                continue;
+                fail(ex, chunkList);
+                throw ex;
+            }
+            if (ex.getStatusCode() >= 500 || ex.getStatusCode() == 429) {
+                health.failure(host);
+            }
+            // Only the last running attempt retries, a hedged attempt may yet succeed.
+            return isLast ? retry(ex, chunkList) : Collections.emptyMap();
 
-            } catch (BadDataException ex) {
-                if (++count >= retryCount) {
-                    return fail(ex, chunkList);
-                }
-                logger.warn("-- process() > count: {} exception: {}", count, ex);
-                continue;
+        } catch (BadDataException ex) {
+            return flight.leave(local) ? retry(ex, chunkList) : Collections.emptyMap();
+
+        } catch (IOException | InterruptedException | RuntimeException ex) {
+            boolean isLast = flight.leave(local);
+            if (ex instanceof IOException && flight.isWon()) {
+                // Aborted by the winning attempt.
+                logger.debug("-- process() > lost: {}", chunkList.getHostInfo().getUri());
+                return Collections.emptyMap();
+            }
+            if (ex instanceof IOException && request.get() != null) {
+                // Connection failure or aborted by the watchdog, retried later rather than in the HttpClient. Killed
+                // requests are cleared beforehand and fall through.
+                health.failure(host);
+                return isLast ? retry(ex, chunkList) : Collections.emptyMap();
+            }
+            throw ex;
+
+        } finally {
+            watchdog.unwatch(local);
+        }
+        health.success(host);
+        DownloadMetrics.FETCHED_BYTES.add(data.length());
+
+        boolean isWon = flight.win(local);
+        flight.leave(local);
+
+        Map<ByteString, DataWriter> writers;
+        try (ByteArrayPool.Lease lease = data) {
+            if (!isWon) {
+                logger.debug("-- process() > lost: {}", chunkList.getHostInfo().getUri());
+                return Collections.emptyMap();
             }
+            flight.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
 
-            Map<ICloud.MBSFile, Outcome> outcomes;
+            // Chunks are decrypted into the store, the container data is released on return.
+            writers = storeManager.put(chunkList.getChunkInfoList(), lease.array(), lease.length());
 
-            outcomes = write(chunkList, writers);
-            logger.trace(">> process() >  outcomes: {}", outcomes.size());
-            return outcomes;
+        } catch (BadDataException ex) {
+            return retry(ex, chunkList);
+        }
+
+        Map<ICloud.MBSFile, Outcome> outcomes = write(chunkList, writers);
+        logger.trace(">> process() >  outcomes: {}", outcomes.size());
+        return outcomes;
+    }
+
+    Map<ICloud.MBSFile, Outcome> retry(Exception ex, ChunkServer.StorageHostChunkList chunkList) {
+        if (retries.retry(chunkList)) {
+            logger.warn("-- retry() > chunkList: {} exception: {}", chunkList.getHostInfo().getUri(), ex);
+            return Collections.emptyMap();
         }
+        return fail(ex, chunkList);
+    }
+
+    /**
+     * Stores and writes a container's data, fetched elsewhere.
+     *
+     * @param chunkList the container, not null
+     * @param data the container data, not null
+     * @param length the length of the valid container data
+     * @return the outcomes of completed files, not null
+     * @throws BadDataException if the container data is bad
+     * @throws InterruptedException
+     * @throws IOException on a file write error
+     */
+    Map<ICloud.MBSFile, Outcome> complete(ChunkServer.StorageHostChunkList chunkList, byte[] data, int length)
+            throws BadDataException, InterruptedException, IOException {
+
+        Map<ByteString, DataWriter> writers = storeManager.put(chunkList.getChunkInfoList(), data, length);
+        return write(chunkList, writers);
     }
 
     Map<ICloud.MBSFile, Outcome> write(ChunkServer.StorageHostChunkList chunkList, Map<ByteString, DataWriter> writers)
             throws InterruptedException, IOException {
 
         try {
-            return signatureManager.write(writers);
+            Map<ICloud.MBSFile, Outcome> outcomes = signatureManager.write(writers);
+            DownloadMetrics.CONTAINERS_COMPLETED.increment();
+            return outcomes;
 
         } catch (IOException ex) {
             logger.error("-- writer() > exception: ", ex);
@@ -159,6 +267,7 @@ class Donkey {
 
     Map<ICloud.MBSFile, Outcome> fail(Exception ex, ChunkServer.StorageHostChunkList chunkList) {
         logger.warn("-- fail() > chunkList: {} exception: {}", chunkList.getHostInfo().getUri(), ex);
+        DownloadMetrics.CONTAINERS_FAILED.increment();
         Set<ByteString> failedSignatures = storeManager.fail(chunkList.getChunkInfoList());
         return signatureManager.fail(failedSignatures);
     }
@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.HttpAgent;
+import com.github.horrorho.liquiddonkey.cloud.SignatureManager;
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Engine.
+ * <p>
+ * Downloads chunk containers, passing the outcomes of completed files to the outcomes consumer.
+ *
+ * @author Ahseya
+ */
+public interface Engine {
+
+    /**
+     * Downloads the specified containers. Unauthorized containers are fatal.
+     *
+     * @param agent not null
+     * @param storeManager not null
+     * @param signatureManager not null
+     * @param outcomesConsumer not null
+     * @param chunkListList the containers, not null
+     * @throws InterruptedException
+     * @throws IOException on a fatal exception
+     * @throws TimeoutException if the engine timed out before completion
+     */
+    default void execute(
+            HttpAgent agent,
+            ChunkManager storeManager,
+            SignatureManager signatureManager,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
+            List<ChunkServer.StorageHostChunkList> chunkListList
+    ) throws InterruptedException, IOException, TimeoutException {
+
+        execute(agent, storeManager, signatureManager, outcomesConsumer, chunkListList, null);
+    }
+
+    /**
+     * Downloads the specified containers.
+     *
+     * @param agent not null
+     * @param storeManager not null
+     * @param signatureManager not null
+     * @param outcomesConsumer not null
+     * @param chunkListList the containers, not null
+     * @param reauthorizer refreshes expired container authorizations, or null if unauthorized containers are fatal
+     * @throws InterruptedException
+     * @throws IOException on a fatal exception
+     * @throws TimeoutException if the engine timed out before completion
+     */
+    void execute(
+            HttpAgent agent,
+            ChunkManager storeManager,
+            SignatureManager signatureManager,
+            Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
+            List<ChunkServer.StorageHostChunkList> chunkListList,
+            Reauthorizer reauthorizer
+    ) throws InterruptedException, IOException, TimeoutException;
+}
@@ -0,0 +1,269 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.settings.config.EngineConfig;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hedging.
+ * <p>
+ * Tracks in-flight containers and the latency distribution per host. Idle runners may issue a single duplicate, hedged
+ * request for a container that has been in flight longer than the host's latency percentile, or the minimum delay if
+ * too few samples are available. The first response wins and the losing request is aborted.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Hedging {
+
+    public static Hedging from(EngineConfig config) {
+        return from(config.toHedge(), config.hedgePercentile(), config.hedgeDelayMinimumMs());
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param isEnabled to issue hedged requests
+     * @param percentile the host latency percentile after which a container may be hedged
+     * @param delayMinimumMs the minimum delay after which a container may be hedged
+     * @return a new instance, not null
+     */
+    public static Hedging from(boolean isEnabled, int percentile, long delayMinimumMs) {
+        return new Hedging(isEnabled, percentile, delayMinimumMs, HostLatencies.from(SAMPLES));
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Hedging.class);
+
+    private static final int SAMPLES = 64;
+    private static final int SAMPLES_MINIMUM = 16;
+
+    private final boolean isEnabled;
+    private final int percentile;
+    private final long delayMinimumMs;
+    private final HostLatencies latencies;
+    private final ConcurrentMap<ChunkServer.StorageHostChunkList, InFlight> inFlight;
+
+    Hedging(boolean isEnabled, int percentile, long delayMinimumMs, HostLatencies latencies) {
+        this.isEnabled = isEnabled;
+        this.percentile = percentile;
+        this.delayMinimumMs = delayMinimumMs;
+        this.latencies = Objects.requireNonNull(latencies);
+        this.inFlight = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers the specified container as in flight.
+     *
+     * @param chunkList not null
+     * @return the in-flight container, not null
+     */
+    public InFlight start(ChunkServer.StorageHostChunkList chunkList) {
+        InFlight flight = new InFlight(chunkList);
+        inFlight.put(chunkList, flight);
+        return flight;
+    }
+
+    /**
+     * Returns an in-flight container to hedge, if any. Each container is hedged at most once.
+     *
+     * @return the in-flight container to hedge, or null if none
+     */
+    public InFlight hedge() {
+        if (!isEnabled) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        for (InFlight flight : inFlight.values()) {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - flight.startNanos);
+
+            if (elapsedMs >= thresholdMs(flight.host()) && flight.hedge()) {
+                logger.debug("-- hedge() > container: {} elapsed(ms): {}", flight.chunkList.getHostInfo().getUri(),
+                        elapsedMs);
+                return flight;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether containers are in flight and may yet be hedged.
+     *
+     * @return true if containers are in flight and may yet be hedged
+     */
+    public boolean isHedgeable() {
+        return isEnabled && inFlight.values().stream().anyMatch(flight -> !flight.isHedged.get());
+    }
+
+    /**
+     * Records a successful request latency.
+     *
+     * @param host not null
+     * @param latencyMs the latency in milliseconds
+     */
+    public void record(String host, long latencyMs) {
+        latencies.record(host, latencyMs);
+    }
+
+    long thresholdMs(String host) {
+        return latencies.samples(host) < SAMPLES_MINIMUM
+                ? delayMinimumMs
+                : Math.max(delayMinimumMs, latencies.percentile(host, percentile));
+    }
+
+    void end(InFlight flight) {
+        inFlight.remove(flight.chunkList, flight);
+    }
+
+    @Override
+    public String toString() {
+        return "Hedging{"
+                + "isEnabled=" + isEnabled
+                + ", percentile=" + percentile
+                + ", delayMinimumMs=" + delayMinimumMs
+                + ", inFlight=" + inFlight.size()
+                + '}';
+    }
+
+    /**
+     * In-flight container, the primary and at most one hedged request.
+     */
+    @ThreadSafe
+    public final class InFlight {
+
+        private final ChunkServer.StorageHostChunkList chunkList;
+        private final long startNanos;
+        private final AtomicBoolean isHedged;
+        private final AtomicBoolean isWon;
+        private final AtomicInteger running;
+        private final Set<HttpUriRequest> requests;
+
+        InFlight(ChunkServer.StorageHostChunkList chunkList) {
+            this.chunkList = Objects.requireNonNull(chunkList);
+            this.startNanos = System.nanoTime();
+            this.isHedged = new AtomicBoolean(false);
+            this.isWon = new AtomicBoolean(false);
+            this.running = new AtomicInteger(1);
+            this.requests = ConcurrentHashMap.newKeySet();
+        }
+
+        public ChunkServer.StorageHostChunkList chunkList() {
+            return chunkList;
+        }
+
+        String host() {
+            return chunkList.getHostInfo().getHostname();
+        }
+
+        boolean hedge() {
+            if (!isHedged.compareAndSet(false, true)) {
+                return false;
+            }
+
+            // Only join attempts that are still running.
+            while (true) {
+                int count = running.get();
+                if (count == 0 || isWon.get()) {
+                    return false;
+                }
+                if (running.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Registers the specified request.
+         *
+         * @param request not null
+         */
+        public void join(HttpUriRequest request) {
+            requests.add(request);
+            if (isWon.get()) {
+                // Lost before it began.
+                request.abort();
+            }
+        }
+
+        /**
+         * Claims the response for the specified request, aborting all others.
+         *
+         * @param request not null
+         * @return true if won, false if another request has already won
+         */
+        public boolean win(HttpUriRequest request) {
+            if (!isWon.compareAndSet(false, true)) {
+                return false;
+            }
+
+            requests.stream()
+                    .filter(other -> other != request)
+                    .forEach(other -> {
+                        logger.debug("-- win() > aborting: {}", other.getURI());
+                        other.abort();
+                    });
+            return true;
+        }
+
+        public boolean isWon() {
+            return isWon.get();
+        }
+
+        /**
+         * Records the winning request latency.
+         *
+         * @param latencyMs the latency in milliseconds
+         */
+        public void record(long latencyMs) {
+            Hedging.this.record(host(), latencyMs);
+        }
+
+        /**
+         * Ends the specified request's attempt.
+         *
+         * @param request not null
+         * @return true if this was the last running attempt
+         */
+        public boolean leave(HttpUriRequest request) {
+            requests.remove(request);
+            boolean isLast = running.decrementAndGet() == 0;
+            if (isLast) {
+                end(this);
+            }
+            return isLast;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * HostLatencies.
+ * <p>
+ * Per host ring buffers of the most recent request latencies.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class HostLatencies {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param capacity the samples retained per host
+     * @return a new instance, not null
+     */
+    public static HostLatencies from(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Bad capacity: " + capacity);
+        }
+        return new HostLatencies(capacity);
+    }
+
+    private final int capacity;
+    private final ConcurrentMap<String, Ring> rings;
+
+    HostLatencies(int capacity) {
+        this.capacity = capacity;
+        this.rings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Records a latency sample for the specified host.
+     *
+     * @param host not null
+     * @param latencyMs the latency in milliseconds
+     */
+    public void record(String host, long latencyMs) {
+        rings.computeIfAbsent(host, key -> new Ring(capacity)).add(latencyMs);
+    }
+
+    /**
+     * Returns the number of samples retained for the specified host.
+     *
+     * @param host not null
+     * @return the number of samples retained
+     */
+    public int samples(String host) {
+        Ring ring = rings.get(host);
+        return ring == null ? 0 : ring.size();
+    }
+
+    /**
+     * Returns the specified percentile of the retained samples for the specified host, nearest rank.
+     *
+     * @param host not null
+     * @param percentile the percentile, 0 to 100 inclusive
+     * @return the percentile latency in milliseconds, or -1 if no samples are retained
+     */
+    public long percentile(String host, int percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Bad percentile: " + percentile);
+        }
+
+        Ring ring = rings.get(host);
+        long[] samples = ring == null ? new long[0] : ring.samples();
+        if (samples.length == 0) {
+            return -1;
+        }
+
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(percentile / 100.0 * samples.length);
+        return samples[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "HostLatencies{" + "capacity=" + capacity + ", hosts=" + rings.keySet() + '}';
+    }
+
+    @ThreadSafe
+    static final class Ring {
+
+        private final long[] samples;
+        private int index;
+        private int size;
+
+        Ring(int capacity) {
+            this.samples = new long[capacity];
+            this.index = 0;
+            this.size = 0;
+        }
+
+        synchronized void add(long sample) {
+            samples[index] = sample;
+            index = (index + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long[] samples() {
+            return Arrays.copyOf(samples, size());
+        }
+    }
+}
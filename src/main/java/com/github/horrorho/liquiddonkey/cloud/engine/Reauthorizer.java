@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import com.github.horrorho.liquiddonkey.iofunction.IOFunction;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reauthorizer.
+ * <p>
+ * Refreshes expired container authorizations. On a chunk host 401 the FileGroups of the remaining signatures are
+ * requested afresh, single flight, and the required containers passed on as replacements. Containers of the previous
+ * authorizations are then stale and are skipped, so concurrent 401s on them do not trigger further refreshes.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Reauthorizer {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param fileGroups the remaining signatures to fresh FileGroups function, not null
+     * @param storeManager not null
+     * @param containers the initial containers, not null
+     * @param refreshMax the maximum number of refreshes
+     * @return a new instance, not null
+     */
+    public static Reauthorizer from(
+            IOFunction<Set<ByteString>, ChunkServer.FileGroups> fileGroups,
+            ChunkManager storeManager,
+            Collection<ChunkServer.StorageHostChunkList> containers,
+            int refreshMax) {
+
+        Set<ChunkServer.StorageHostChunkList> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        current.addAll(containers);
+
+        return new Reauthorizer(fileGroups, storeManager, current, refreshMax);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Reauthorizer.class);
+
+    private final IOFunction<Set<ByteString>, ChunkServer.FileGroups> fileGroups;
+    private final ChunkManager storeManager;
+    private final int refreshMax;
+    private final Lock lock;
+    private final Set<ChunkServer.StorageHostChunkList> stale;
+    @GuardedBy("lock")
+    private Set<ChunkServer.StorageHostChunkList> current;
+    @GuardedBy("lock")
+    private int refreshes;
+
+    Reauthorizer(
+            IOFunction<Set<ByteString>, ChunkServer.FileGroups> fileGroups,
+            ChunkManager storeManager,
+            Set<ChunkServer.StorageHostChunkList> current,
+            int refreshMax) {
+
+        this.fileGroups = Objects.requireNonNull(fileGroups);
+        this.storeManager = Objects.requireNonNull(storeManager);
+        this.refreshMax = refreshMax;
+        this.lock = new ReentrantLock(false);
+        this.stale = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        this.current = Objects.requireNonNull(current);
+        this.refreshes = 0;
+    }
+
+    /**
+     * Returns whether the specified container's authorization has been superseded.
+     *
+     * @param chunkList not null
+     * @return true if superseded
+     */
+    public boolean isStale(ChunkServer.StorageHostChunkList chunkList) {
+        return stale.contains(chunkList);
+    }
+
+    /**
+     * Refreshes the authorizations following a 401 on the specified container, unless already refreshed since. Other
+     * callers block until the refresh completes.
+     *
+     * @param chunkList the unauthorized container, not null
+     * @param replacements the replacement containers consumer, not null
+     * @return true if the container has been superseded, false if the refresh limit has been reached
+     * @throws IOException
+     */
+    public boolean reauthorize(
+            ChunkServer.StorageHostChunkList chunkList,
+            Consumer<List<ChunkServer.StorageHostChunkList>> replacements) throws IOException {
+
+        logger.trace("<< reauthorize() < chunkList: {}", chunkList.getHostInfo().getUri());
+
+        lock.lock();
+        try {
+            if (isStale(chunkList)) {
+                logger.trace(">> reauthorize() > already refreshed");
+                return true;
+            }
+
+            if (refreshes >= refreshMax) {
+                logger.warn("-- reauthorize() > refresh limit reached: {}", refreshMax);
+                return false;
+            }
+            refreshes++;
+
+            Set<ByteString> signatures = storeManager.remainingSignatures();
+            logger.info("-- reauthorize() > refreshing: {} signatures: {}", refreshes, signatures.size());
+
+            List<ChunkServer.StorageHostChunkList> containers = fileGroups.apply(signatures)
+                    .getFileGroupsList()
+                    .stream()
+                    .map(ChunkServer.FileChecksumStorageHostChunkLists::getStorageHostChunkListList)
+                    .flatMap(Collection::stream)
+                    .filter(storeManager::isRequired)
+                    .collect(Collectors.toList());
+
+            stale.addAll(current);
+            current = Collections.newSetFromMap(new IdentityHashMap<>());
+            current.addAll(containers);
+
+            replacements.accept(containers);
+
+            logger.trace(">> reauthorize() > replacements: {}", containers.size());
+            return true;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Reauthorizer{" + "refreshMax=" + refreshMax + ", stale=" + stale.size() + '}';
+    }
+}
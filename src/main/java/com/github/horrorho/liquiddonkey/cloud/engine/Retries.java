@@ -0,0 +1,348 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
+import com.github.horrorho.liquiddonkey.settings.config.EngineConfig;
+import com.github.horrorho.liquiddonkey.util.WorkQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retries.
+ * <p>
+ * Failed containers are returned here rather than retried in place. Each is delayed with exponential backoff and
+ * jitter, timed by a scheduler thread that re-queues it onto the execution's {@link WorkQueue} once due, so workers
+ * only ever poll the lock-free queue. Containers that exhaust their retries, or whose host exhausts its retry budget,
+ * are deferred to a single final sweep at the end of the run. Once swept, no further containers are accepted.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Retries implements AutoCloseable {
+
+    public static Retries from(EngineConfig config) {
+        return from(
+                config.retryCount(),
+                config.retryBackoffBaseMs(),
+                config.retryBackoffMaxMs(),
+                config.hostRetryBudget());
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param retryCount the retries per container before it is deferred to the final sweep
+     * @param backoffBaseMs the delay before the first retry
+     * @param backoffMaxMs the maximum delay
+     * @param hostRetryBudget the retries per host before its containers are deferred to the final sweep, or 0 if
+     * unlimited
+     * @return a new instance, not null
+     */
+    public static Retries from(int retryCount, long backoffBaseMs, long backoffMaxMs, int hostRetryBudget) {
+        return new Retries(retryCount, backoffBaseMs, backoffMaxMs, hostRetryBudget);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Retries.class);
+
+    private final int retryCount;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final int hostRetryBudget;
+    private final ConcurrentMap<ChunkServer.StorageHostChunkList, AtomicInteger> attempts;
+    private final ConcurrentMap<String, AtomicInteger> hostRetries;
+    private final Set<Entry> scheduled;
+    private final ConcurrentLinkedQueue<ChunkServer.StorageHostChunkList> deferred;
+    private volatile WorkQueue<ChunkServer.StorageHostChunkList> queue;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile boolean isSwept;
+
+    Retries(int retryCount, long backoffBaseMs, long backoffMaxMs, int hostRetryBudget) {
+        this.retryCount = retryCount;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.hostRetryBudget = hostRetryBudget;
+        this.attempts = new ConcurrentHashMap<>();
+        this.hostRetries = new ConcurrentHashMap<>();
+        this.scheduled = ConcurrentHashMap.newKeySet();
+        this.deferred = new ConcurrentLinkedQueue<>();
+        this.queue = null;
+        this.scheduler = null;
+        this.isSwept = false;
+    }
+
+    /**
+     * Opens this instance, containers being re-queued onto the specified queue once due. Required before containers
+     * are retried, postponed or added.
+     *
+     * @param queue not null
+     * @return this instance, not null
+     */
+    public Retries open(WorkQueue<ChunkServer.StorageHostChunkList> queue) {
+        if (this.queue != null) {
+            throw new IllegalStateException("Already open");
+        }
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "retries");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+
+        this.scheduler = executor;
+        this.queue = Objects.requireNonNull(queue);
+        return this;
+    }
+
+    /**
+     * Accepts the specified failed container for a later retry.
+     *
+     * @param chunkList not null
+     * @return true if accepted, false if the final sweep has passed and the container should be failed
+     */
+    public boolean retry(ChunkServer.StorageHostChunkList chunkList) {
+        if (isSwept) {
+            return false;
+        }
+
+        long delayMs = backoffMs(chunkList);
+        if (delayMs < 0) {
+            deferred.add(chunkList);
+        } else {
+            schedule(chunkList, delayMs);
+        }
+        DownloadMetrics.CONTAINERS_RETRIED.increment();
+        return true;
+    }
+
+    /**
+     * Postpones the specified container, not yet attempted, by the specified delay. Attempts are not counted.
+     *
+     * @param chunkList not null
+     * @param delayMs the delay in milliseconds
+     * @return true if postponed, false if the final sweep has passed and the container should be attempted now
+     */
+    public boolean postpone(ChunkServer.StorageHostChunkList chunkList, long delayMs) {
+        if (isSwept) {
+            return false;
+        }
+
+        schedule(chunkList, delayMs);
+        return true;
+    }
+
+    /**
+     * Adds the specified containers to the queue, available immediately. Attempts are not counted.
+     *
+     * @param chunkLists not null
+     */
+    public void addAll(Collection<ChunkServer.StorageHostChunkList> chunkLists) {
+        queue().addAll(chunkLists);
+    }
+
+    void schedule(ChunkServer.StorageHostChunkList chunkList, long delayMs) {
+        WorkQueue<ChunkServer.StorageHostChunkList> target = queue();
+        Entry entry = new Entry(chunkList);
+        scheduled.add(entry);
+
+        try {
+            scheduler.schedule(() -> {
+                // Queued before it ceases to be pending, so idle workers don't see neither.
+                if (entry.claim()) {
+                    target.requeue(chunkList);
+                }
+                scheduled.remove(entry);
+            }, delayMs, TimeUnit.MILLISECONDS);
+
+        } catch (RejectedExecutionException ex) {
+            // Closed.
+            scheduled.remove(entry);
+            deferred.add(chunkList);
+        }
+    }
+
+    WorkQueue<ChunkServer.StorageHostChunkList> queue() {
+        WorkQueue<ChunkServer.StorageHostChunkList> target = queue;
+        if (target == null) {
+            throw new IllegalStateException("Not open");
+        }
+        return target;
+    }
+
+    /**
+     * Counts a failed attempt of the specified container and returns its backoff delay.
+     *
+     * @param chunkList not null
+     * @return the delay in milliseconds, or -1 if the container has exhausted its retries or its host its budget
+     */
+    public long backoffMs(ChunkServer.StorageHostChunkList chunkList) {
+        int attempt = attempts.computeIfAbsent(chunkList, key -> new AtomicInteger(0)).incrementAndGet();
+        String host = chunkList.getHostInfo().getHostname();
+
+        if (attempt > retryCount || !isWithinBudget(host)) {
+            logger.debug("-- backoffMs() > exhausted, attempt: {} host: {}", attempt, host);
+            return -1;
+        }
+
+        long delayMs = delayMs(attempt);
+        logger.debug("-- backoffMs() > attempt: {} host: {} delay(ms): {}", attempt, host, delayMs);
+        return delayMs;
+    }
+
+    /**
+     * Returns the backoff delay for the specified attempt, with equal jitter.
+     *
+     * @param attempt the failed attempt count, from 1
+     * @return the delay in milliseconds
+     */
+    public long delayMs(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        long delay = Math.min(backoffMaxMs, backoffBaseMs << shift);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    /**
+     * Returns whether the specified host has retry budget remaining, consuming a unit if so.
+     *
+     * @param host not null
+     * @return true if the host has retry budget remaining
+     */
+    public boolean isWithinBudget(String host) {
+        if (hostRetryBudget <= 0) {
+            return true;
+        }
+
+        int used = hostRetries.computeIfAbsent(host, key -> new AtomicInteger(0)).incrementAndGet();
+        if (used == hostRetryBudget + 1) {
+            logger.warn("-- isWithinBudget() > host retry budget exhausted: {}", host);
+        }
+        return used <= hostRetryBudget;
+    }
+
+    /**
+     * Returns whether containers are awaiting a delayed retry.
+     *
+     * @return true if containers are awaiting a delayed retry
+     */
+    public boolean isPending() {
+        return !scheduled.isEmpty();
+    }
+
+    /**
+     * Closes and returns the containers for the final sweep, those deferred and those still delayed. Subsequent
+     * failures are not accepted.
+     *
+     * @return the containers for the final sweep, not null
+     */
+    public List<ChunkServer.StorageHostChunkList> sweep() {
+        isSwept = true;
+
+        List<ChunkServer.StorageHostChunkList> sweep = new ArrayList<>();
+        scheduled.forEach(entry -> {
+            if (entry.claim()) {
+                sweep.add(entry.chunkList);
+            }
+        });
+        scheduled.clear();
+
+        ChunkServer.StorageHostChunkList chunkList;
+        while ((chunkList = deferred.poll()) != null) {
+            sweep.add(chunkList);
+        }
+
+        logger.debug("-- sweep() > containers: {}", sweep.size());
+        return sweep;
+    }
+
+    /**
+     * Returns the number of containers awaiting retry.
+     *
+     * @return the number of containers awaiting retry
+     */
+    public int size() {
+        return scheduled.size() + deferred.size();
+    }
+
+    /**
+     * Stops the scheduler. Containers still delayed are not re-queued.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = scheduler;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Retries{"
+                + "retryCount=" + retryCount
+                + ", backoffBaseMs=" + backoffBaseMs
+                + ", backoffMaxMs=" + backoffMaxMs
+                + ", hostRetryBudget=" + hostRetryBudget
+                + ", scheduled=" + scheduled.size()
+                + ", deferred=" + deferred.size()
+                + '}';
+    }
+
+    @ThreadSafe
+    static final class Entry {
+
+        private final ChunkServer.StorageHostChunkList chunkList;
+        private final AtomicBoolean isClaimed = new AtomicBoolean(false);
+
+        Entry(ChunkServer.StorageHostChunkList chunkList) {
+            this.chunkList = Objects.requireNonNull(chunkList);
+        }
+
+        /**
+         * Claims the entry, either for its re-queue once due or for the sweep.
+         *
+         * @return true if claimed, false if already claimed
+         */
+        boolean claim() {
+            return !isClaimed.getAndSet(true);
+        }
+    }
+}
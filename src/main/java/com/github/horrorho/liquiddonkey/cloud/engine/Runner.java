@@ -26,10 +26,13 @@ package com.github.horrorho.liquiddonkey.cloud.engine;
 import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
-import com.github.horrorho.liquiddonkey.util.SyncSupplier;
+import com.github.horrorho.liquiddonkey.http.HostHealth;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
+import com.github.horrorho.liquiddonkey.util.WorkQueue;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import net.jcip.annotations.NotThreadSafe;
@@ -46,20 +49,34 @@ class Runner implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(Runner.class);
 
-    private final SyncSupplier<ChunkServer.StorageHostChunkList> chunks;
+    private static final long IDLE_SLEEP_MS = 10;
+
+    private final WorkQueue<ChunkServer.StorageHostChunkList> chunks;
+    private final Retries retries;
+    private final Hedging hedging;
+    private final HostHealth health;
+    private final boolean toIdle;
     private final Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer;
     private final AtomicReference<Exception> fatal;
     private volatile boolean isAlive;
     private final Donkey donkey;
 
     Runner(
-            SyncSupplier<ChunkServer.StorageHostChunkList> chunks,
+            WorkQueue<ChunkServer.StorageHostChunkList> chunks,
+            Retries retries,
+            Hedging hedging,
+            HostHealth health,
+            boolean toIdle,
             Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
             AtomicReference<Exception> fatal,
             Donkey donkey,
             boolean isAlive) {
 
         this.chunks = Objects.requireNonNull(chunks);
+        this.retries = Objects.requireNonNull(retries);
+        this.hedging = Objects.requireNonNull(hedging);
+        this.health = Objects.requireNonNull(health);
+        this.toIdle = toIdle;
         this.outcomesConsumer = Objects.requireNonNull(outcomesConsumer);
         this.fatal = Objects.requireNonNull(fatal);
         this.donkey = Objects.requireNonNull(donkey);
@@ -67,18 +84,23 @@ class Runner implements Runnable {
     }
 
     Runner(
-            SyncSupplier<ChunkServer.StorageHostChunkList> chunks,
+            WorkQueue<ChunkServer.StorageHostChunkList> chunks,
+            Retries retries,
+            Hedging hedging,
+            HostHealth health,
+            boolean toIdle,
             Consumer<Map<ICloud.MBSFile, Outcome>> outcomesConsumer,
             AtomicReference<Exception> fatal,
             Donkey donkey) {
 
-        this(chunks, outcomesConsumer, fatal, donkey, true);
+        this(chunks, retries, hedging, health, toIdle, outcomesConsumer, fatal, donkey, true);
     }
 
     @Override
     public void run() {
         logger.trace("<< run()");
 
+        DownloadMetrics.ACTIVE_RUNNERS.increment();
         try {
             while (isAlive) {
                 Exception ex = fatal.get();
@@ -87,21 +109,71 @@ class Runner implements Runnable {
                     break;
                 }
 
-                ChunkServer.StorageHostChunkList chunkList = chunks.get();
-                if (chunkList == null) {
+                Hedging.InFlight flight = next();
+                if (flight == null) {
                     logger.debug("-- run() > depleted");
                     break;
                 }
 
                 outcomesConsumer.accept(
-                        donkey.process(chunkList));
+                        donkey.process(flight));
             }
         } catch (IOException | InterruptedException | RuntimeException ex) {
             fatal.compareAndSet(null, ex);
             logger.warn("-- run() > exception: ", ex);
+        } finally {
+            DownloadMetrics.ACTIVE_RUNNERS.decrement();
         }
 
-        logger.trace(">> run() > fatal: {} isAlive: {}", fatal == null ? null : fatal.get().getMessage(), isAlive);
+        logger.trace(">> run() > fatal: {} isAlive: {}", fatal.get(), isAlive);
+    }
+
+    Hedging.InFlight next() throws InterruptedException {
+        while (true) {
+            // Retries are re-queued onto the work queue once their backoff has expired.
+            ChunkServer.StorageHostChunkList chunkList = chunks.poll();
+            if (chunkList != null) {
+                if (isAvailable(chunkList)) {
+                    return hedging.start(chunkList);
+                }
+                continue;
+            }
+
+            // Idle, hedge a straggler.
+            Hedging.InFlight flight = hedging.hedge();
+            if (flight != null) {
+                return flight;
+            }
+
+            if (!toIdle || !isAlive || fatal.get() != null) {
+                return null;
+            }
+
+            if (!retries.isPending() && !hedging.isHedgeable()) {
+                // A retry is queued before it ceases to be pending, so it may have been queued since the poll.
+                if (chunks.size() == 0) {
+                    return null;
+                }
+                continue;
+            }
+
+            TimeUnit.MILLISECONDS.sleep(IDLE_SLEEP_MS);
+        }
+    }
+
+    boolean isAvailable(ChunkServer.StorageHostChunkList chunkList) {
+        String host = chunkList.getHostInfo().getHostname();
+        if (health.isAvailable(host)) {
+            return true;
+        }
+
+        // Open circuit, postponed until the host may be probed.
+        long delayMs = health.retryAfterMs(host);
+        if (retries.postpone(chunkList, delayMs)) {
+            logger.debug("-- isAvailable() > postponed, host: {} delay(ms): {}", host, delayMs);
+            return false;
+        }
+        return true;
     }
 
     void kill() {
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.http.Progress;
+import com.github.horrorho.liquiddonkey.settings.config.EngineConfig;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watchdog.
+ * <p>
+ * Aborts watched requests whose throughput falls below a minimum over a window. Time paused by a throttle is excluded
+ * from the window. An aborted request fails with an IOException while its {@link Donkey} still holds it, which the
+ * Donkey retries as a connection failure rather than treating it as fatal.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Watchdog implements AutoCloseable {
+
+    public static Watchdog from(EngineConfig config) {
+        return from(config.watchdogMinimumBytesPerSecond(), config.watchdogWindowMs());
+    }
+
+    /**
+     * Returns a new, started instance.
+     *
+     * @param minimumBytesPerSecond the minimum throughput in bytes per second, or 0 to disable
+     * @param windowMs the window length in milliseconds
+     * @return a new instance, not null
+     */
+    public static Watchdog from(long minimumBytesPerSecond, long windowMs) {
+        Watchdog instance = new Watchdog(minimumBytesPerSecond, windowMs);
+        instance.start();
+        return instance;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Watchdog.class);
+
+    private static final long PERIOD_MS_MAXIMUM = 1000;
+
+    private final long minimumBytesPerSecond;
+    private final long windowMs;
+    private final ConcurrentMap<HttpUriRequest, Progress> watched;
+    private final ScheduledExecutorService executor;
+
+    Watchdog(long minimumBytesPerSecond, long windowMs) {
+        this.minimumBytesPerSecond = minimumBytesPerSecond;
+        this.windowMs = windowMs;
+        this.watched = new ConcurrentHashMap<>();
+        this.executor = isEnabled(minimumBytesPerSecond, windowMs)
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    static boolean isEnabled(long minimumBytesPerSecond, long windowMs) {
+        return minimumBytesPerSecond > 0 && windowMs > 0;
+    }
+
+    void start() {
+        if (executor != null) {
+            long periodMs = Math.min(PERIOD_MS_MAXIMUM, windowMs);
+            executor.scheduleWithFixedDelay(this::check, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Watches the specified request.
+     *
+     * @param request not null
+     * @return the request progress, to be updated as bytes are received, not null
+     */
+    public Progress watch(HttpUriRequest request) {
+        Progress progress = Progress.create();
+        if (executor != null) {
+            watched.put(request, progress);
+        }
+        return progress;
+    }
+
+    /**
+     * Stops watching the specified request.
+     *
+     * @param request not null
+     */
+    public void unwatch(HttpUriRequest request) {
+        watched.remove(request);
+    }
+
+    void check() {
+        watched.forEach((request, progress) -> {
+            if (progress.isBelow(windowMs, minimumBytesPerSecond) && watched.remove(request, progress)) {
+                logger.warn("-- check() > stalled, aborting: {} {}", request.getURI(), progress);
+                request.abort();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        watched.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "Watchdog{"
+                + "minimumBytesPerSecond=" + minimumBytesPerSecond
+                + ", windowMs=" + windowMs
+                + ", watched=" + watched.size()
+                + '}';
+    }
+}
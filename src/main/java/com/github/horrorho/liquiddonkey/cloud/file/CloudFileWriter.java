@@ -30,18 +30,22 @@ import com.github.horrorho.liquiddonkey.exception.BadDataException;
 import com.github.horrorho.liquiddonkey.iofunction.IOFunction;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud.MBSFile;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
 import com.github.horrorho.liquiddonkey.settings.config.FileConfig;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import net.jcip.annotations.NotThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,27 +70,46 @@ public final class CloudFileWriter {
      * @return a new instance, not null
      */
     public static CloudFileWriter from(Snapshot snapshot, FileConfig fileConfig) {
+        return from(snapshot, fileConfig, SnapshotDirectory.from(snapshot, fileConfig), null);
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param snapshot not null
+     * @param fileConfig not null
+     * @param paths the file to local path function, not null
+     * @param manifest the manifest to record written files, may be null
+     * @return a new instance, not null
+     */
+    public static CloudFileWriter
+            from(Snapshot snapshot, FileConfig fileConfig, Function<MBSFile, Path> paths, Manifest manifest) {
+
         return new CloudFileWriter(
                 FileDecrypter.create(),
                 snapshot.keyBagManager(),
-                SnapshotDirectory.from(snapshot, fileConfig),
+                paths,
+                manifest,
                 fileConfig.setLastModifiedTimestamp());
     }
 
     private final FileDecrypter decrypter;
     private final KeyBagManager keyBag;
-    private final SnapshotDirectory directory;
+    private final Function<MBSFile, Path> paths;
+    private final Manifest manifest;
     private final boolean setLastModifiedTime;
 
     CloudFileWriter(
             FileDecrypter decrypter,
             KeyBagManager keyBagTools,
-            SnapshotDirectory directory,
+            Function<MBSFile, Path> paths,
+            Manifest manifest,
             boolean setLastModifiedTime) {
 
         this.decrypter = Objects.requireNonNull(decrypter);
         this.keyBag = Objects.requireNonNull(keyBagTools);
-        this.directory = Objects.requireNonNull(directory);
+        this.paths = Objects.requireNonNull(paths);
+        this.manifest = manifest;
         this.setLastModifiedTime = setLastModifiedTime;
     }
 
@@ -124,9 +147,12 @@ public final class CloudFileWriter {
     public Outcome write(ICloud.MBSFile file, IOFunction<OutputStream, Long> writer) throws IOException {
         logger.trace("<< write() < file: {}", file.getRelativePath());
 
-        Path path = directory.apply(file);
+        Path path = paths.apply(file);
 
+        long started = System.nanoTime();
         long written = createDirectoryWriteFile(path, writer);
+        DownloadMetrics.WRITE_TIME.recordSince(started);
+        DownloadMetrics.WRITTEN_BYTES.add(written);
         logger.debug("-- write() > path: {} written: {}", path, written);
 
         Outcome result;
@@ -142,6 +168,10 @@ public final class CloudFileWriter {
             setLastModifiedTime(path, file);
         }
 
+        if (manifest != null) {
+            record(path, file, result);
+        }
+
         logger.trace(">> write() > file: {} result: {}", file.getRelativePath(), result);
         return result;
     }
@@ -160,7 +190,10 @@ public final class CloudFileWriter {
         }
 
         try {
+            long started = System.nanoTime();
             decrypter.decrypt(path, key, file.getAttributes().getDecryptedSize());
+            DownloadMetrics.DECRYPT_FILE_TIME.recordSince(started);
+            DownloadMetrics.DECRYPTED_FILE_BYTES.add(file.getAttributes().getDecryptedSize());
             logger.debug("-- decrypt() > success: {}", file.getRelativePath());
             return Outcome.WRITTEN_DECRYPT;
 
@@ -171,13 +204,31 @@ public final class CloudFileWriter {
     }
 
     long createDirectoryWriteFile(Path path, IOFunction<OutputStream, Long> writer) throws IOException {
-        Files.createDirectories(path.getParent());
+        OutputStream outputStream;
+        try {
+            outputStream = Files.newOutputStream(path, CREATE, WRITE, TRUNCATE_EXISTING);
+
+        } catch (NoSuchFileException ex) {
+            // Directories are usually created ahead, see SnapshotPaths#createDirectories.
+            logger.debug("-- createDirectoryWriteFile() > creating directories: {}", path.getParent());
+            Files.createDirectories(path.getParent());
+            outputStream = Files.newOutputStream(path, CREATE, WRITE, TRUNCATE_EXISTING);
+        }
 
-        try (OutputStream output = Files.newOutputStream(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+        try (OutputStream output = outputStream) {
             return writer.apply(output);
         }
     }
 
+    void record(Path path, MBSFile file, Outcome result) throws IOException {
+        if (result.isSuccess()) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            manifest.put(path, attributes, file.getSignature());
+        } else {
+            manifest.remove(path);
+        }
+    }
+
     void setLastModifiedTime(Path path, MBSFile file) throws IOException {
         if (Files.exists(path)) {
             long lastModifiedTimestamp = file.getAttributes().getLastModified();
@@ -31,26 +31,30 @@ import com.github.horrorho.liquiddonkey.iofunction.IOPredicate;
 import com.github.horrorho.liquiddonkey.settings.config.FileConfig;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Predicate;
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * LocalFileFilter. Tests whether files are available locally.
  * <p>
- * Currently compares the file location, file size and last-modified timestamp.
+ * Currently compares the file location, file size and last-modified timestamp. If a {@link Manifest} was loaded, the
+ * signatures are compared instead and a matching entry is confirmed with a single stat of the local file, its
+ * existence and size, in place of a directory walk. Entries for files that were deleted or resized are removed.
+ * Otherwise the snapshot folder is indexed with a single directory walk and local files are recorded in the manifest
+ * as they are matched. Snapshots are filtered in parallel.
  * <p>
  * Ideally the 160-bit file checksum would be employed, but the algorithm remains elusive.
  *
  * @author Ahseya
  */
-@NotThreadSafe
+@ThreadSafe
 public final class LocalFileFilter implements IOPredicate<ICloud.MBSFile>, IOFunction<Snapshot, Snapshot> {
 
     /**
@@ -61,11 +65,35 @@ public final class LocalFileFilter implements IOPredicate<ICloud.MBSFile>, IOFun
      * @return a new instance, not null
      */
     public static LocalFileFilter from(Snapshot snapshot, FileConfig config) {
+        return from(SnapshotDirectory.from(snapshot, config), config.setLastModifiedTimestamp(), config.isCombined());
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param paths, not null
+     * @param config, not null
+     * @return a new instance, not null
+     */
+    public static LocalFileFilter from(SnapshotPaths paths, FileConfig config) {
+        return from(paths, null, config);
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param paths, not null
+     * @param manifest, may be null
+     * @param config, not null
+     * @return a new instance, not null
+     */
+    public static LocalFileFilter from(SnapshotPaths paths, Manifest manifest, FileConfig config) {
         return new LocalFileFilter(
-                SnapshotDirectory.from(snapshot, config),
+                paths,
+                paths.folder(),
+                manifest,
                 config.setLastModifiedTimestamp(),
-                config.isCombined()
-        );
+                config.isCombined());
     }
 
     /**
@@ -80,30 +108,65 @@ public final class LocalFileFilter implements IOPredicate<ICloud.MBSFile>, IOFun
             boolean toCheckLastModifiedTimestamp,
             boolean isCombined) {
 
-        return new LocalFileFilter(directory, toCheckLastModifiedTimestamp, isCombined);
+        // SnapshotDirectory is not thread safe.
+        ThreadLocal<SnapshotDirectory> directories
+                = ThreadLocal.withInitial(() -> SnapshotDirectory.from(directory));
+
+        return new LocalFileFilter(
+                file -> directories.get().apply(file),
+                directory.folder(),
+                null,
+                toCheckLastModifiedTimestamp,
+                isCombined);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(LocalFileFilter.class);
 
-    private final SnapshotDirectory directory;
+    private final Function<ICloud.MBSFile, Path> directory;
+    private final Path folder;
+    private final Manifest manifest;
     private final boolean toCheckLastModifiedTimestamp;
     private final boolean isCombined;
 
-    LocalFileFilter(SnapshotDirectory directory, boolean toCheckLastModifiedTimestamp, boolean isCombined) {
+    LocalFileFilter(
+            Function<ICloud.MBSFile, Path> directory,
+            Path folder,
+            Manifest manifest,
+            boolean toCheckLastModifiedTimestamp,
+            boolean isCombined) {
+
         this.directory = Objects.requireNonNull(directory);
+        this.folder = Objects.requireNonNull(folder);
+        this.manifest = manifest;
         this.toCheckLastModifiedTimestamp = toCheckLastModifiedTimestamp;
         this.isCombined = isCombined;
     }
 
     @Override
     public boolean test(ICloud.MBSFile remote) throws IOException, SecurityException {
+        return test(remote, null);
+    }
+
+    boolean test(ICloud.MBSFile remote, LocalFileIndex index) throws IOException {
         logger.trace("<< test() < file: {}", remote.getRelativePath());
 
         Path local = directory.apply(remote);
 
-        boolean isLocal = isCombined
-                ? testExists(local, remote) && !(testLastModified(local, remote) < 0) // Last modified equal or after.
-                : testExists(local, remote) && testSize(local, remote) && (testLastModified(local, remote) == 0);
+        boolean isLocal;
+        if (manifest != null && manifest.exists()) {
+            Manifest.Entry entry = manifest.get(local);
+            isLocal = testManifest(entry, remote) && testStat(local, entry);
+
+        } else {
+            LocalFileIndex.Attributes attributes = index == null
+                    ? LocalFileIndex.Attributes.read(local)
+                    : index.get(local);
+
+            isLocal = testLocal(attributes, remote);
+            if (isLocal && manifest != null) {
+                manifest.put(local, attributes.size(), attributes.lastModified(), remote.getSignature());
+            }
+        }
 
         logger.trace(">> test() > is local: {}", isLocal);
         return isLocal;
@@ -111,31 +174,95 @@ public final class LocalFileFilter implements IOPredicate<ICloud.MBSFile>, IOFun
 
     @Override
     public Snapshot apply(Snapshot snapshot) throws IOException {
+        return apply(snapshot, file -> true);
+    }
+
+    /**
+     * Filters the specified snapshot. Only files within the specified scope are tested, other files are retained.
+     *
+     * @param snapshot not null
+     * @param scope not null
+     * @return the filtered snapshot, not null
+     * @throws IOException
+     */
+    public Snapshot apply(Snapshot snapshot, Predicate<ICloud.MBSFile> scope) throws IOException {
+        Predicate<ICloud.MBSFile> nonLocal = nonLocal(scope);
         try {
-            Predicate<ICloud.MBSFile> localFilterUnchecked = file -> {
-                try {
-                    return !test(file);
-                } catch (IOException ex) {
-                    throw new UncheckedIOException(ex);
-                }
-            };
-            snapshot = Snapshots.from(snapshot, localFilterUnchecked);
+            snapshot = Snapshots.from(snapshot, nonLocal, true);
         } catch (UncheckedIOException ex) {
             throw ex.getCause();
         }
         return snapshot;
     }
 
-    boolean testExists(Path local, ICloud.MBSFile remote) throws IOException {
-        boolean match = Files.exists(local);
+    /**
+     * Returns a thread safe predicate that matches files that are not available locally, indexing the snapshot folder
+     * first if required. Only files within the specified scope are tested, other files are matched.
+     *
+     * @param scope not null
+     * @return the predicate, throws UncheckedIOException on IOException, not null
+     * @throws IOException
+     */
+    public Predicate<ICloud.MBSFile> nonLocal(Predicate<ICloud.MBSFile> scope) throws IOException {
+        LocalFileIndex index;
+        if (manifest != null && manifest.exists()) {
+            index = null;
+        } else {
+            long a = System.currentTimeMillis();
+            index = LocalFileIndex.walk(folder);
+            long b = System.currentTimeMillis();
+            logger.debug("-- nonLocal() > indexed: {} files delay(ms): {}", index.size(), b - a);
+        }
+
+        return file -> {
+            try {
+                return !scope.test(file) || !test(file, index);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+    }
+
+    boolean testLocal(LocalFileIndex.Attributes local, ICloud.MBSFile remote) {
+        return isCombined
+                ? testExists(local, remote) && !(testLastModified(local, remote) < 0) // Last modified equal or after.
+                : testExists(local, remote) && testSize(local.size(), remote) && (testLastModified(local, remote) == 0);
+    }
+
+    boolean testManifest(Manifest.Entry entry, ICloud.MBSFile remote) {
+        if (entry == null) {
+            logger.debug("-- testManifest() < match: false no entry file: {}", remote.getRelativePath());
+            return false;
+        }
+
+        boolean signature = entry.signature().equals(remote.getSignature());
+        boolean match = isCombined
+                ? signature || entry.lastModified() >= remote.getAttributes().getLastModified() * 1000
+                : signature && testSize(entry.size(), remote);
+
+        logger.debug("-- testManifest() < match: {} entry: {} file: {}", match, entry, remote.getRelativePath());
+        return match;
+    }
+
+    boolean testStat(Path local, Manifest.Entry entry) throws IOException {
+        LocalFileIndex.Attributes attributes = LocalFileIndex.Attributes.read(local);
+        boolean match = attributes != null && attributes.size() == entry.size();
+        if (!match) {
+            manifest.remove(local);
+        }
+
+        logger.debug("-- testStat() < match: {} attributes: {} file: {}", match, attributes, local);
+        return match;
+    }
+
+    boolean testExists(LocalFileIndex.Attributes local, ICloud.MBSFile remote) {
+        boolean match = local != null;
 
-        logger.debug("-- testExists() < match: {} local: {} file: {}",
-                match, local, remote.getRelativePath());
+        logger.debug("-- testExists() < match: {} file: {}", match, remote.getRelativePath());
         return match;
     }
 
-    boolean testSize(Path local, ICloud.MBSFile remote) throws IOException {
-        Long localSize = Files.size(local);
+    boolean testSize(Long localSize, ICloud.MBSFile remote) {
         Long remoteSize = remote.hasSize()
                 ? remote.getSize()
                 : null;
@@ -149,8 +276,8 @@ public final class LocalFileFilter implements IOPredicate<ICloud.MBSFile>, IOFun
         return match;
     }
 
-    int testLastModified(Path local, ICloud.MBSFile remote) throws IOException {
-        FileTime localTimestamp = Files.getLastModifiedTime(local);
+    int testLastModified(LocalFileIndex.Attributes local, ICloud.MBSFile remote) {
+        FileTime localTimestamp = FileTime.fromMillis(local.lastModified());
         FileTime remoteTimestamp = FileTime.from(remote.getAttributes().getLastModified(), TimeUnit.SECONDS);
         int comparision = localTimestamp.compareTo(remoteTimestamp);
 
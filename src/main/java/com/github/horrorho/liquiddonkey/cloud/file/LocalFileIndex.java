@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LocalFileIndex.
+ * <p>
+ * In-memory index of the regular files beneath a folder, built with a single directory walk. Attributes are read in
+ * bulk during the walk rather than with a stat per file. Symbolic links are followed, links to regular files are
+ * indexed under the link path with the attributes of their target. Link cycles are logged and skipped.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class LocalFileIndex {
+
+    /**
+     * Returns a new instance indexing the specified folder. Absent folders return an empty index.
+     *
+     * @param folder not null
+     * @return a new instance, not null
+     * @throws IOException
+     */
+    public static LocalFileIndex walk(Path folder) throws IOException {
+        logger.trace("<< walk() < folder: {}", folder);
+
+        Map<Path, Attributes> index = new HashMap<>();
+
+        if (Files.isDirectory(folder)) {
+            SimpleFileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile()) {
+                        index.put(file, Attributes.from(attributes));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                    logger.warn("-- visitFileFailed() > file: {} exception: {}", file, ex);
+                    return FileVisitResult.CONTINUE;
+                }
+            };
+
+            // Links are followed, as they are by Files#exists and Attributes#read.
+            Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
+        } else {
+            logger.debug("-- walk() > no such folder: {}", folder);
+        }
+
+        LocalFileIndex instance = new LocalFileIndex(index);
+
+        logger.trace(">> walk() > files: {}", index.size());
+        return instance;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileIndex.class);
+
+    private final Map<Path, Attributes> index;
+
+    LocalFileIndex(Map<Path, Attributes> index) {
+        this.index = Objects.requireNonNull(index);
+    }
+
+    /**
+     * Returns the attributes of the specified file.
+     *
+     * @param path not null
+     * @return the attributes, or null if the file was not indexed
+     */
+    public Attributes get(Path path) {
+        return index.get(path);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public String toString() {
+        return "LocalFileIndex{" + "index=" + index.size() + '}';
+    }
+
+    /**
+     * Compact file attributes.
+     */
+    @Immutable
+    @ThreadSafe
+    public static final class Attributes {
+
+        /**
+         * Returns the attributes of the specified file.
+         *
+         * @param path not null
+         * @return the attributes, or null if no such file exists
+         * @throws IOException
+         */
+        public static Attributes read(Path path) throws IOException {
+            try {
+                return from(Files.readAttributes(path, BasicFileAttributes.class));
+            } catch (NoSuchFileException ex) {
+                return null;
+            }
+        }
+
+        static Attributes from(BasicFileAttributes attributes) {
+            return new Attributes(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        private final long size;
+        private final long lastModified;
+
+        Attributes(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Returns the last-modified timestamp.
+         *
+         * @return the last-modified timestamp in milliseconds
+         */
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String toString() {
+            return "Attributes{" + "size=" + size + ", lastModified=" + lastModified + '}';
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.util.Bytes;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import net.jcip.annotations.ThreadSafe;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LocalFileVerifier.
+ * <p>
+ * Verifies local files against the chunk checksums of their remote counterparts. Local files are memory mapped, in
+ * windows of at most 2 GB, and their chunk ranges re-hashed, in parallel, with the chunk server double SHA-256
+ * checksum. Only unencrypted files can be verified as encrypted files are stored decrypted. Chunks without a checksum
+ * cannot be verified.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class LocalFileVerifier {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param paths the file to local path function, not null
+     * @param manifest the manifest to record verified files, may be null
+     * @param setLastModifiedTime to set the last-modified timestamp of verified files
+     * @return a new instance, not null
+     */
+    public static LocalFileVerifier from(
+            Function<ICloud.MBSFile, Path> paths,
+            Manifest manifest,
+            boolean setLastModifiedTime) {
+
+        return new LocalFileVerifier(paths, manifest, setLastModifiedTime, WINDOW_SIZE);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileVerifier.class);
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final long WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<SHA256Digest> digests = ThreadLocal.withInitial(SHA256Digest::new);
+    private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final Function<ICloud.MBSFile, Path> paths;
+    private final Manifest manifest;
+    private final boolean setLastModifiedTime;
+    private final long windowSize;
+
+    LocalFileVerifier(
+            Function<ICloud.MBSFile, Path> paths,
+            Manifest manifest,
+            boolean setLastModifiedTime,
+            long windowSize) {
+
+        this.paths = Objects.requireNonNull(paths);
+        this.manifest = manifest;
+        this.setLastModifiedTime = setLastModifiedTime;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Verifies the specified files against their chunk lists.
+     * <p>
+     * A signature is verified only if all the specified files that reference it are unencrypted and match.
+     *
+     * @param files the candidate files, not null
+     * @param fileGroups the file groups, not null
+     * @return map of verified files to {@link Outcome#VERIFIED}, not null
+     */
+    public Map<ICloud.MBSFile, Outcome>
+            verify(Collection<ICloud.MBSFile> files, List<ChunkServer.FileChecksumStorageHostChunkLists> fileGroups) {
+
+        logger.trace("<< verify() < files: {}", files.size());
+
+        Map<ByteString, List<ChunkServer.ChunkInfo>> signatureToChunkInfos = signatureToChunkInfos(fileGroups);
+
+        Map<ByteString, List<ICloud.MBSFile>> signatureToFiles = files.stream()
+                .filter(file -> signatureToChunkInfos.containsKey(file.getSignature()))
+                .collect(Collectors.groupingBy(ICloud.MBSFile::getSignature));
+
+        Set<ByteString> verified = signatureToFiles.entrySet().parallelStream()
+                .filter(entry -> entry.getValue().stream().allMatch(file
+                                -> verify(file, signatureToChunkInfos.get(entry.getKey()))))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+
+        Map<ICloud.MBSFile, Outcome> outcomes = verified.stream()
+                .map(signatureToFiles::get)
+                .flatMap(Collection::stream)
+                .collect(Collectors.toMap(Function.identity(), file -> Outcome.VERIFIED));
+
+        outcomes.keySet().forEach(this::complete);
+
+        logger.trace(">> verify() > verified signatures: {} files: {}", verified.size(), outcomes.size());
+        return outcomes;
+    }
+
+    boolean verify(ICloud.MBSFile file, List<ChunkServer.ChunkInfo> chunkInfos) {
+        if (file.getAttributes().hasEncryptionKey()) {
+            return false;
+        }
+
+        Path path = paths.apply(file);
+        long length = chunkInfos.stream().mapToLong(ChunkServer.ChunkInfo::getChunkLength).sum();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size != length) {
+                logger.debug("-- verify() > size mismatch: {} expected: {} file: {}", size, length, path);
+                return false;
+            }
+
+            MappedByteBuffer buffer = null;
+            long window = 0;
+            long offset = 0;
+            for (ChunkServer.ChunkInfo chunkInfo : chunkInfos) {
+                if (!chunkInfo.hasChunkChecksum() || chunkInfo.getChunkChecksum().size() < 2) {
+                    logger.debug("-- verify() > missing chunk checksum at offset: {} file: {}", offset, path);
+                    return false;
+                }
+
+                if (buffer == null || offset + chunkInfo.getChunkLength() > window + buffer.capacity()) {
+                    window = offset;
+                    long mapped = Math.min(Math.max(windowSize, chunkInfo.getChunkLength()), size - window);
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, window, mapped);
+                }
+
+                ByteString checksum = checksum(buffer, (int) (offset - window), chunkInfo.getChunkLength());
+
+                if (!checksum.equals(chunkInfo.getChunkChecksum().substring(1))) {
+                    logger.debug("-- verify() > checksum mismatch at offset: {} file: {}", offset, path);
+                    return false;
+                }
+                offset += chunkInfo.getChunkLength();
+            }
+
+            logger.debug("-- verify() > verified: {}", path);
+            return true;
+
+        } catch (NoSuchFileException ex) {
+            logger.debug("-- verify() > no such file: {}", path);
+            return false;
+
+        } catch (IOException ex) {
+            logger.warn("-- verify() > file: {} exception: {}", path, ex);
+            return false;
+        }
+    }
+
+    void complete(ICloud.MBSFile file) {
+        Path path = paths.apply(file);
+        try {
+            if (setLastModifiedTime) {
+                FileTime fileTime = FileTime.from(file.getAttributes().getLastModified(), TimeUnit.SECONDS);
+                Files.setLastModifiedTime(path, fileTime);
+            }
+
+            if (manifest != null) {
+                manifest.put(path, Files.readAttributes(path, BasicFileAttributes.class), file.getSignature());
+            }
+        } catch (IOException ex) {
+            logger.warn("-- complete() > file: {} exception: {}", path, ex);
+        }
+    }
+
+    static ByteString checksum(ByteBuffer buffer, int offset, int length) {
+        SHA256Digest digest = digests.get();
+        byte[] bytes = buffers.get();
+        byte[] hash = new byte[digest.getDigestSize()];
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.limit(offset + length);
+
+        digest.reset();
+        while (slice.hasRemaining()) {
+            int n = Math.min(bytes.length, slice.remaining());
+            slice.get(bytes, 0, n);
+            digest.update(bytes, 0, n);
+        }
+        digest.doFinal(hash, 0);
+        digest.update(hash, 0, hash.length);
+        digest.doFinal(hash, 0);
+
+        return ByteString.copyFrom(hash, 0, 20);
+    }
+
+    static Map<ByteString, List<ChunkServer.ChunkInfo>>
+            signatureToChunkInfos(List<ChunkServer.FileChecksumStorageHostChunkLists> fileGroups) {
+
+        Map<ByteString, List<ChunkServer.ChunkInfo>> signatureToChunkInfos = new HashMap<>();
+
+        for (ChunkServer.FileChecksumStorageHostChunkLists fileGroup : fileGroups) {
+            List<ChunkServer.StorageHostChunkList> containers = fileGroup.getStorageHostChunkListList();
+
+            for (ChunkServer.FileChecksumChunkReferences references : fileGroup.getFileChecksumChunkReferencesList()) {
+                List<ChunkServer.ChunkInfo> chunkInfos = new ArrayList<>();
+
+                for (ChunkServer.ChunkReference reference : references.getChunkReferencesList()) {
+                    int container = (int) reference.getContainerIndex();
+                    int index = (int) reference.getChunkIndex();
+
+                    if (container >= containers.size() || index >= containers.get(container).getChunkInfoCount()) {
+                        logger.warn("-- signatureToChunkInfos() > out of bounds: {} signature: {}",
+                                reference, Bytes.hex(references.getFileChecksum()));
+                        chunkInfos = null;
+                        break;
+                    }
+                    chunkInfos.add(containers.get(container).getChunkInfo(index));
+                }
+
+                if (chunkInfos != null) {
+                    signatureToChunkInfos.put(references.getFileChecksum(), chunkInfos);
+                }
+            }
+        }
+        return signatureToChunkInfos;
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import com.github.horrorho.liquiddonkey.util.Bytes;
+import com.google.protobuf.ByteString;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manifest.
+ * <p>
+ * Persistent index of the files written into a snapshot folder, mapping the path relative to the folder to the file
+ * size, last-modified timestamp and signature. Stored as a compact binary file alongside the snapshot folder, e.g.
+ * {@code base/udid/1.manifest}, and replaced atomically on write.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Manifest {
+
+    /**
+     * Returns a new instance, loading the manifest for the specified snapshot folder if it exists. Unreadable
+     * manifests are discarded.
+     *
+     * @param folder the snapshot folder, not null
+     * @return a new instance, not null
+     */
+    public static Manifest from(Path folder) {
+        logger.trace("<< from() < folder: {}", folder);
+
+        Path file = folder.resolveSibling(folder.getFileName() + EXTENSION);
+        ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+        boolean exists;
+
+        try (DataInputStream input
+                = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+
+            read(input, entries);
+            exists = true;
+
+        } catch (NoSuchFileException ex) {
+            exists = false;
+
+        } catch (IOException ex) {
+            // Corrupt or truncated, the manifest is only an optimization so we start afresh.
+            logger.warn("-- from() > unreadable manifest, discarding: {} exception: {}", file, ex);
+            entries.clear();
+            exists = false;
+        }
+
+        Manifest instance = new Manifest(folder, file, entries, exists, new AtomicBoolean(false));
+
+        logger.trace(">> from() > {}", instance);
+        return instance;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Manifest.class);
+
+    private static final String EXTENSION = ".manifest";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int MAGIC = 0x4C444D46; // LDMF
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Path folder;
+    private final Path file;
+    private final ConcurrentMap<String, Entry> entries;
+    private final boolean exists;
+    private final AtomicBoolean isDirty;
+
+    Manifest(Path folder, Path file, ConcurrentMap<String, Entry> entries, boolean exists, AtomicBoolean isDirty) {
+        this.folder = Objects.requireNonNull(folder);
+        this.file = Objects.requireNonNull(file);
+        this.entries = Objects.requireNonNull(entries);
+        this.exists = exists;
+        this.isDirty = Objects.requireNonNull(isDirty);
+    }
+
+    /**
+     * Returns whether the manifest was loaded from disk.
+     *
+     * @return true if the manifest was loaded from disk
+     */
+    public boolean exists() {
+        return exists;
+    }
+
+    /**
+     * Returns the entry for the specified path.
+     *
+     * @param path not null
+     * @return the entry, or null if none exists
+     */
+    public Entry get(Path path) {
+        return entries.get(key(path));
+    }
+
+    /**
+     * Records the specified path.
+     *
+     * @param path not null
+     * @param size the file size in bytes
+     * @param lastModified the file last-modified timestamp in milliseconds
+     * @param signature the file signature, not null
+     */
+    public void put(Path path, long size, long lastModified, ByteString signature) {
+        entries.put(key(path), new Entry(size, lastModified, signature));
+        isDirty.set(true);
+    }
+
+    /**
+     * Records the specified path.
+     *
+     * @param path not null
+     * @param attributes not null
+     * @param signature the file signature, not null
+     */
+    public void put(Path path, BasicFileAttributes attributes, ByteString signature) {
+        put(path, attributes.size(), attributes.lastModifiedTime().toMillis(), signature);
+    }
+
+    /**
+     * Removes the specified path.
+     *
+     * @param path not null
+     */
+    public void remove(Path path) {
+        if (entries.remove(key(path)) != null) {
+            isDirty.set(true);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes entries that no longer match the local file system. File attributes are read in parallel.
+     *
+     * @return the number of entries removed
+     */
+    public int reconcile() {
+        logger.trace("<< reconcile() < entries: {}", entries.size());
+
+        int removed = (int) entries.entrySet().parallelStream()
+                .filter(entry -> !matches(folder.resolve(entry.getKey()), entry.getValue()))
+                .map(Map.Entry::getKey)
+                .filter(key -> entries.remove(key) != null)
+                .count();
+
+        if (removed != 0) {
+            isDirty.set(true);
+        }
+
+        logger.trace(">> reconcile() > removed: {}", removed);
+        return removed;
+    }
+
+    /**
+     * Writes the manifest, if modified, atomically replacing any existing manifest.
+     *
+     * @throws IOException
+     */
+    public void write() throws IOException {
+        logger.trace("<< write() < file: {} entries: {}", file, entries.size());
+
+        if (!isDirty.getAndSet(false)) {
+            logger.trace(">> write() > unmodified");
+            return;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_EXTENSION);
+        Files.createDirectories(file.getParent());
+
+        try {
+            try (DataOutputStream output
+                    = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                write(output, entries);
+            }
+
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                logger.debug("-- write() > atomic move not supported: {}", ex);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException ex) {
+            isDirty.set(true);
+            Files.deleteIfExists(temp);
+            throw ex;
+        }
+
+        logger.trace(">> write()");
+    }
+
+    String key(Path path) {
+        return folder.relativize(path).toString();
+    }
+
+    static boolean matches(Path path, Entry entry) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            boolean matches = attributes.size() == entry.size()
+                    && attributes.lastModifiedTime().toMillis() == entry.lastModified();
+
+            logger.debug("-- matches() > path: {} match: {}", path, matches);
+            return matches;
+
+        } catch (IOException ex) {
+            logger.debug("-- matches() > path: {} exception: {}", path, ex);
+            return false;
+        }
+    }
+
+    static void read(DataInputStream input, Map<String, Entry> entries) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Bad manifest magic");
+        }
+
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported manifest version: " + version);
+        }
+
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = input.readUTF();
+            long size = input.readLong();
+            long lastModified = input.readLong();
+            byte[] signature = new byte[input.readUnsignedShort()];
+            input.readFully(signature);
+
+            entries.put(key, new Entry(size, lastModified, ByteString.copyFrom(signature)));
+        }
+    }
+
+    static void write(DataOutputStream output, Map<String, Entry> entries) throws IOException {
+        // Snapshot the entries as the map may be concurrently modified.
+        Map<String, Entry> copy = new HashMap<>(entries);
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(copy.size());
+
+        for (Map.Entry<String, Entry> entry : copy.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeLong(entry.getValue().size());
+            output.writeLong(entry.getValue().lastModified());
+            output.writeShort(entry.getValue().signature().size());
+            entry.getValue().signature().writeTo(output);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Manifest{"
+                + "file=" + file
+                + ", entries=" + entries.size()
+                + ", exists=" + exists
+                + ", isDirty=" + isDirty
+                + '}';
+    }
+
+    /**
+     * Manifest entry.
+     */
+    @Immutable
+    @ThreadSafe
+    public static final class Entry {
+
+        private final long size;
+        private final long lastModified;
+        private final ByteString signature;
+
+        Entry(long size, long lastModified, ByteString signature) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.signature = Objects.requireNonNull(signature);
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public long lastModified() {
+            return lastModified;
+        }
+
+        public ByteString signature() {
+            return signature;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{"
+                    + "size=" + size
+                    + ", lastModified=" + lastModified
+                    + ", signature=" + Bytes.hex(signature)
+                    + '}';
+        }
+    }
+}
@@ -38,7 +38,9 @@ import org.bouncycastle.crypto.digests.SHA1Digest;
 /**
  * SnapshotDirectory.
  * <p>
- * Handles the standard and iTunes-flat directory structures, either separating or combining snapshots.
+ * Handles the standard and iTunes-flat directory structures, either separating or combining snapshots. Flat
+ * directories may be sharded on hash prefixes, e.g. {@code ab/cd/abcd...}, to limit the number of entries per
+ * directory.
  *
  * @author Ahseya
  */
@@ -59,7 +61,18 @@ public abstract class SnapshotDirectory implements Function<ICloud.MBSFile, Path
                 Integer.toString(snapshot.snapshotID()),
                 config.isFlat(),
                 config.isCombined(),
-                config.combinedDirectory());
+                config.combinedDirectory(),
+                config.shardDepth());
+    }
+
+    /**
+     * Returns a new instance with the same layout as the specified instance.
+     *
+     * @param directory not null
+     * @return new instance, not null
+     */
+    public static SnapshotDirectory from(SnapshotDirectory directory) {
+        return directory.copy();
     }
 
     static SnapshotDirectory from(
@@ -70,6 +83,22 @@ public abstract class SnapshotDirectory implements Function<ICloud.MBSFile, Path
             boolean isCombined,
             String combinedDirectory) {
 
+        return from(base, udidStr, snapshotIdStr, isFlat, isCombined, combinedDirectory, 0);
+    }
+
+    static SnapshotDirectory from(
+            Path base,
+            String udidStr,
+            String snapshotIdStr,
+            boolean isFlat,
+            boolean isCombined,
+            String combinedDirectory,
+            int shardDepth) {
+
+        if (shardDepth < 0 || shardDepth > SHARD_DEPTH_MAX) {
+            throw new IllegalArgumentException("Bad shard depth: " + shardDepth);
+        }
+
         SHA1Digest sha1 = new SHA1Digest();
 
         Path folder = isCombined
@@ -77,10 +106,16 @@ public abstract class SnapshotDirectory implements Function<ICloud.MBSFile, Path
                 : base.resolve(udidStr).resolve(snapshotIdStr);
 
         return isFlat
-                ? new FlatSnapshotDirectory(folder, sha1)
+                ? new FlatSnapshotDirectory(folder, sha1, shardDepth)
                 : new NonFlatSnapshotDirectory(folder, sha1);
     }
 
+    /**
+     * Maximum flat directory shard depth.
+     */
+    public static final int SHARD_DEPTH_MAX = FileConfig.SHARD_DEPTH_MAX;
+
+    private static final int SHARD_WIDTH = 2; // Hex characters per shard level, 256 entries per directory.
     private static final String FILTER = "[\u0001-\u001f\\\\:*?\"<>|\u007f]";
     private static final String REPLACE = "_";
     private static final ByteString HYPHEN = ByteString.copyFromUtf8("-");
@@ -93,6 +128,15 @@ public abstract class SnapshotDirectory implements Function<ICloud.MBSFile, Path
         this.digest = digest;
     }
 
+    /**
+     * Returns the snapshot folder.
+     *
+     * @return the snapshot folder, not null
+     */
+    public Path folder() {
+        return folder;
+    }
+
     @NotThreadSafe
     public static final class NonFlatSnapshotDirectory extends SnapshotDirectory {
 
@@ -100,6 +144,11 @@ public abstract class SnapshotDirectory implements Function<ICloud.MBSFile, Path
             super(folder, sha1);
         }
 
+        @Override
+        SnapshotDirectory copy() {
+            return new NonFlatSnapshotDirectory(super.folder, new SHA1Digest());
+        }
+
         @Override
         public Path apply(ICloud.MBSFile file) {
             return super.folder
@@ -111,8 +160,20 @@ public abstract class SnapshotDirectory implements Function<ICloud.MBSFile, Path
     @NotThreadSafe
     public static final class FlatSnapshotDirectory extends SnapshotDirectory {
 
-        FlatSnapshotDirectory(Path folder, SHA1Digest sha1) {
+        private final int shardDepth;
+
+        FlatSnapshotDirectory(Path folder, SHA1Digest sha1, int shardDepth) {
             super(folder, sha1);
+            this.shardDepth = shardDepth;
+        }
+
+        FlatSnapshotDirectory(Path folder, SHA1Digest sha1) {
+            this(folder, sha1, 0);
+        }
+
+        @Override
+        SnapshotDirectory copy() {
+            return new FlatSnapshotDirectory(super.folder, new SHA1Digest(), shardDepth);
         }
 
         @Override
@@ -124,10 +185,17 @@ public abstract class SnapshotDirectory implements Function<ICloud.MBSFile, Path
             super.digest.update(array, 0, array.length);
             super.digest.doFinal(hash, 0);
 
-            return super.folder.resolve(Bytes.hex(hash));
+            String name = Bytes.hex(hash);
+            Path path = super.folder;
+            for (int i = 0; i < shardDepth; i++) {
+                path = path.resolve(name.substring(i * SHARD_WIDTH, (i + 1) * SHARD_WIDTH));
+            }
+            return path.resolve(name);
         }
     }
 
+    abstract SnapshotDirectory copy();
+
     String clean(String name) {
         return SystemUtils.IS_OS_WINDOWS
                 ? name.replaceAll(FILTER, REPLACE)
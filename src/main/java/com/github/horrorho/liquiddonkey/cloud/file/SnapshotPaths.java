@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import com.github.horrorho.liquiddonkey.cloud.data.Snapshot;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.settings.config.FileConfig;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SnapshotPaths.
+ * <p>
+ * Local file paths, resolved on demand once per {@link ICloud.MBSFile} and cached. Allows the directory tree to be
+ * created in a single pass ahead of writing.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class SnapshotPaths implements Function<ICloud.MBSFile, Path> {
+
+    /**
+     * Returns a new instance with no paths resolved. Paths are resolved and cached on demand.
+     *
+     * @param snapshot not null
+     * @param config not null
+     * @return a new instance, not null
+     */
+    public static SnapshotPaths lazy(Snapshot snapshot, FileConfig config) {
+        // SnapshotDirectory is not thread safe.
+        ThreadLocal<SnapshotDirectory> directories
+                = ThreadLocal.withInitial(() -> SnapshotDirectory.from(snapshot, config));
+
+        return new SnapshotPaths(new ConcurrentHashMap<>(), directories);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotPaths.class);
+
+    private final ConcurrentMap<ICloud.MBSFile, Path> paths;
+    private final ThreadLocal<SnapshotDirectory> directories;
+
+    SnapshotPaths(ConcurrentMap<ICloud.MBSFile, Path> paths, ThreadLocal<SnapshotDirectory> directories) {
+        this.paths = Objects.requireNonNull(paths);
+        this.directories = Objects.requireNonNull(directories);
+    }
+
+    /**
+     * Returns the local path of the specified file, resolving and caching it if required.
+     *
+     * @param file not null
+     * @return the local path, not null
+     */
+    @Override
+    public Path apply(ICloud.MBSFile file) {
+        Path path = paths.get(file);
+        return path == null
+                ? paths.computeIfAbsent(file, f -> directories.get().apply(f))
+                : path;
+    }
+
+    /**
+     * Creates the parent directories of the specified files.
+     * <p>
+     * Only the deepest distinct directories are created, intermediate directories are created along with them.
+     *
+     * @param files not null
+     * @return the number of leaf directories
+     * @throws IOException
+     */
+    public int createDirectories(Collection<ICloud.MBSFile> files) throws IOException {
+        logger.trace("<< createDirectories() < files: {}", files.size());
+
+        Set<Path> directories = files.parallelStream()
+                .map(this)
+                .map(Path::getParent)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Set<Path> ancestors = new HashSet<>();
+        directories.forEach(directory -> {
+            Path parent = directory.getParent();
+            while (parent != null && ancestors.add(parent)) {
+                parent = parent.getParent();
+            }
+        });
+        directories.removeAll(ancestors);
+
+        try {
+            directories.parallelStream().forEach(directory -> {
+                try {
+                    Files.createDirectories(directory);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        logger.trace(">> createDirectories() > leaf directories: {}", directories.size());
+        return directories.size();
+    }
+
+    /**
+     * Returns the snapshot folder.
+     *
+     * @return the snapshot folder, not null
+     */
+    public Path folder() {
+        return directories.get().folder();
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotPaths{" + "paths=" + paths.size() + '}';
+    }
+}
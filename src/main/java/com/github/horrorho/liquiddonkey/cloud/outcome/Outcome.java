@@ -37,7 +37,9 @@ public enum Outcome {
 
     WRITTEN("Written(unencrypted)", true),
     WRITTEN_DECRYPT("Written(decrypted)", true),
+    VERIFIED("Verified(local)", true),
     FAILED_DOWNLOAD("Failed(download)", false),
+    FAILED_SERVER("Failed(server)", false),
     FAILED_DECRYPT_ERROR("Failed(decrypt)", false),
     FAILED_DECRYPT_NO_FILE("Failed(internal)", false),
     FAILED_DECRYPT_NO_KEY("Failed(key)", false);
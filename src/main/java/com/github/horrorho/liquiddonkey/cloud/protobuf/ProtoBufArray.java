@@ -30,8 +30,11 @@ import com.google.protobuf.Parser;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
@@ -39,6 +42,9 @@ import net.jcip.annotations.ThreadSafe;
  * ProfoBuf Arrays.
  *
  * iCloud array encoding. 32 bit varint n (denoting array size) followed by n items. 
+ * <p>
+ * Items are parsed in place from the underlying stream using {@link CodedInputStream#pushLimit(int)}, without
+ * intermediate byte arrays, and are encoded directly to the output stream.
  *
  * @author ahseya
  */
@@ -57,15 +63,43 @@ public final class ProtoBufArray {
      * @throws NullPointerException if any arguments are null
      */
     public static <T> List<T> decode(InputStream data, Parser<T> parser) throws IOException {
-        CodedInputStream stream = CodedInputStream.newInstance(data);
         List<T> list = new ArrayList<>();
+        decode(data, parser, list::add);
+        return list;
+    }
+
+    /**
+     * Decode custom protobuf variable length array, passing each item to the specified consumer as it is parsed.
+     *
+     * @param <T> the item type
+     * @param data the raw input, not null
+     * @param parser the parser to decode each message, not null
+     * @param consumer the item consumer, not null
+     * @return the number of items decoded
+     * @throws IOException
+     * @throws NullPointerException if any arguments are null
+     */
+    public static <T> int decode(InputStream data, Parser<T> parser, Consumer<? super T> consumer)
+            throws IOException {
+
+        Objects.requireNonNull(consumer);
+        CodedInputStream stream = CodedInputStream.newInstance(data);
+        int count = 0;
         while (!stream.isAtEnd()) {
-            int size = stream.readRawVarint32();
-            byte[] element = stream.readRawBytes(size);
-            T decoded = parser.parseFrom(element);
-            list.add(decoded);
+            consumer.accept(next(stream, parser));
+            count++;
         }
-        return list;
+        return count;
+    }
+
+    static <T> T next(CodedInputStream stream, Parser<T> parser) throws IOException {
+        int size = stream.readRawVarint32();
+        int limit = stream.pushLimit(size);
+        T decoded = parser.parseFrom(stream);
+        stream.popLimit(limit);
+        // Size limits apply per item rather than to the array as a whole.
+        stream.resetSizeCounter();
+        return decoded;
     }
 
     /**
@@ -78,14 +112,44 @@ public final class ProtoBufArray {
      * @throws NullPointerException if any arguments are null
      */
     public static <T extends GeneratedMessage> byte[] encode(List<T> items) throws IOException {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        CodedOutputStream stream = CodedOutputStream.newInstance(bytes);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) size(items));
+        encode(items, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode custom protobuf variable length array directly to the specified output stream. The stream is flushed but
+     * not closed.
+     *
+     * @param <T> the item type
+     * @param items the list of items, not null
+     * @param output the output stream, not null
+     * @throws IOException
+     * @throws NullPointerException if any arguments are null
+     */
+    public static <T extends GeneratedMessage> void encode(List<T> items, OutputStream output) throws IOException {
+        CodedOutputStream stream = CodedOutputStream.newInstance(output);
         for (T item : items) {
-            byte[] encoded = item.toByteArray();
-            stream.writeRawVarint32(encoded.length);
-            stream.writeRawBytes(encoded);
+            stream.writeRawVarint32(item.getSerializedSize());
+            item.writeTo(stream);
         }
         stream.flush();
-        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the encoded size of the custom protobuf variable length array.
+     *
+     * @param <T> the item type
+     * @param items the list of items, not null
+     * @return the encoded size in bytes
+     * @throws NullPointerException if any arguments are null
+     */
+    public static <T extends GeneratedMessage> long size(List<T> items) {
+        long size = 0;
+        for (T item : items) {
+            int length = item.getSerializedSize();
+            size += CodedOutputStream.computeRawVarint32Size(length) + length;
+        }
+        return size;
     }
 }
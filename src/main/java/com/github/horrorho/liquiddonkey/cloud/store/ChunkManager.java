@@ -26,11 +26,13 @@ package com.github.horrorho.liquiddonkey.cloud.store;
 import com.github.horrorho.liquiddonkey.util.BiMapSet;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
 import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
 import com.github.horrorho.liquiddonkey.settings.Markers;
 import com.github.horrorho.liquiddonkey.util.Bytes;
 import com.google.protobuf.ByteString;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -166,12 +168,35 @@ public final class ChunkManager {
     public Map<ByteString, DataWriter> put(List<ChunkServer.ChunkInfo> chunkInfoList, byte[] chunkData)
             throws BadDataException {
 
+        return put(chunkInfoList, chunkData, chunkData.length);
+    }
+
+    /**
+     * Decrypts and stores the specified container chunks. The chunk data array is not retained.
+     *
+     * @param chunkInfoList the container chunk info list, not null
+     * @param chunkData the container data, not null
+     * @param length the length of the valid container data
+     * @return completed signatures to data writers, not null
+     * @throws BadDataException if the container data is truncated or fails to decrypt
+     */
+    public Map<ByteString, DataWriter> put(List<ChunkServer.ChunkInfo> chunkInfoList, byte[] chunkData, int length)
+            throws BadDataException {
+
         Objects.requireNonNull(chunkInfoList);
         Objects.requireNonNull(chunkData);
 
-        logger.trace("<< put() < chunkInfoList length: {} chunkData length: {}", chunkInfoList.size(), chunkData.length);
+        logger.trace("<< put() < chunkInfoList length: {} chunkData length: {}", chunkInfoList.size(), length);
+
+        long expected = chunkInfoList.stream().mapToLong(ChunkServer.ChunkInfo::getChunkLength).sum();
+        if (length < expected) {
+            throw new BadDataException("Truncated container: " + length + " expected: " + expected);
+        }
 
+        long started = System.nanoTime();
         List<byte[]> chunks = decrypters.get().decrypt(chunkInfoList, chunkData);
+        DownloadMetrics.DECRYPT_CHUNK_TIME.recordSince(started);
+        DownloadMetrics.DECRYPTED_CHUNK_BYTES.add(expected);
 
         for (int i = 0; i < chunkInfoList.size(); i++) {
             if (!store.put(chunkInfoList.get(i).getChunkChecksum(), chunks.get(i))) {
@@ -223,6 +248,51 @@ public final class ChunkManager {
         return failed;
     }
 
+    /**
+     * Excludes the specified signatures, e.g. those already available locally. Chunks no longer referenced are
+     * released.
+     *
+     * @param signatures not null
+     * @return the excluded signatures, not null
+     */
+    public Set<ByteString> exclude(Collection<ByteString> signatures) {
+        logger.trace("<< exclude() < signatures: {}", signatures.size());
+
+        Set<ByteString> excluded = signatures.stream()
+                .filter(signature -> signatureToChunks.remove(signature) != null)
+                .collect(Collectors.toSet());
+
+        excluded.forEach(signature -> signaturesChunks.removeKey(signature).forEach(store::remove));
+
+        logger.trace(">> exclude() > signatures: {}", excluded.size());
+        return excluded;
+    }
+
+    /**
+     * Returns whether any of the specified container's chunks are referenced by the remaining signatures.
+     *
+     * @param container not null
+     * @return true if referenced
+     */
+    public boolean isReferenced(ChunkServer.StorageHostChunkList container) {
+        return container.getChunkInfoList().stream()
+                .map(ChunkServer.ChunkInfo::getChunkChecksum)
+                .anyMatch(chunk -> !signaturesChunks.keys(chunk).isEmpty());
+    }
+
+    /**
+     * Returns whether any of the specified container's chunks are referenced by the remaining signatures and are not
+     * yet stored.
+     *
+     * @param container not null
+     * @return true if required
+     */
+    public boolean isRequired(ChunkServer.StorageHostChunkList container) {
+        return container.getChunkInfoList().stream()
+                .map(ChunkServer.ChunkInfo::getChunkChecksum)
+                .anyMatch(chunk -> !signaturesChunks.keys(chunk).isEmpty() && !store.contains(chunk));
+    }
+
     Set<ByteString> signatures(List<ChunkServer.ChunkInfo> chunkInfoList) {
         return chunkInfoList.stream()
                 .map(ChunkServer.ChunkInfo::getChunkChecksum)
@@ -235,6 +305,33 @@ public final class ChunkManager {
         return new HashSet<>(signatureToChunks.keySet());
     }
 
+    /**
+     * Returns the remaining signatures to their chunk checksums.
+     *
+     * @return the remaining signatures to chunk checksums, not null
+     */
+    public Map<ByteString, List<ByteString>> remainingSignatureToChunks() {
+        return new HashMap<>(signatureToChunks);
+    }
+
+    /**
+     * Returns the store size.
+     *
+     * @return the store size in bytes
+     */
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * Returns the peak store size.
+     *
+     * @return the peak store size in bytes
+     */
+    public long peak() {
+        return store.peak();
+    }
+
     public List<ByteString> remainingChunks() {
         return signatureToChunks.values()
                 .stream()
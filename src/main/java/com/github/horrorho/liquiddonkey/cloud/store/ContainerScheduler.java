@@ -0,0 +1,332 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.store;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ContainerScheduler.
+ * <p>
+ * Orders containers using the chunk to signature dependency graph so that signatures complete, and their chunks leave
+ * the {@link Store}, as early as possible. Greedy: the next container is that which supplies the signature with the
+ * fewest outstanding containers, ties broken by the original order. The peak store size of both the original and the
+ * scheduled order are predicted by simulation.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class ContainerScheduler {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param signatureToChunks the outstanding signatures to chunk checksums, not null
+     * @return a new instance, not null
+     */
+    public static ContainerScheduler from(Map<ByteString, List<ByteString>> signatureToChunks) {
+        return new ContainerScheduler(signatureToChunks);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerScheduler.class);
+
+    private final Map<ByteString, List<ByteString>> signatureToChunks;
+
+    ContainerScheduler(Map<ByteString, List<ByteString>> signatureToChunks) {
+        this.signatureToChunks = Objects.requireNonNull(signatureToChunks);
+    }
+
+    /**
+     * Schedules the specified containers.
+     *
+     * @param containers not null
+     * @return the schedule, not null
+     */
+    public Schedule schedule(List<ChunkServer.StorageHostChunkList> containers) {
+        logger.trace("<< schedule() < containers: {}", containers.size());
+
+        Graph graph = new Graph(containers, signatureToChunks);
+        int[] order = graph.order();
+
+        List<ChunkServer.StorageHostChunkList> scheduled = new ArrayList<>(containers.size());
+        for (int container : order) {
+            scheduled.add(containers.get(container));
+        }
+
+        int[] unscheduled = new int[containers.size()];
+        Arrays.setAll(unscheduled, i -> i);
+
+        Schedule schedule = new Schedule(
+                Collections.unmodifiableList(scheduled),
+                graph.peak(order),
+                graph.peak(unscheduled));
+
+        logger.trace(">> schedule() > {}", schedule);
+        return schedule;
+    }
+
+    /**
+     * Chunk to signature dependency graph, indexed by int.
+     */
+    static final class Graph {
+
+        private final int[][] containerChunks;
+        private final int[][] containerSignatures;
+        private final int[][] signatureChunks;
+        private final int[][] signatureContainers;
+        private final int[] chunkLengths;
+        private final int[] chunkReferences;
+
+        Graph(List<ChunkServer.StorageHostChunkList> containers, Map<ByteString, List<ByteString>> signatureToChunks) {
+            Map<ByteString, Integer> chunkIndex = new HashMap<>();
+            List<Integer> lengths = new ArrayList<>();
+            List<Integer> providers = new ArrayList<>();
+
+            containerChunks = new int[containers.size()][];
+            for (int i = 0; i < containers.size(); i++) {
+                List<ChunkServer.ChunkInfo> chunkInfos = containers.get(i).getChunkInfoList();
+                containerChunks[i] = new int[chunkInfos.size()];
+
+                for (int j = 0; j < chunkInfos.size(); j++) {
+                    ChunkServer.ChunkInfo chunkInfo = chunkInfos.get(j);
+                    Integer chunk = chunkIndex.get(chunkInfo.getChunkChecksum());
+                    if (chunk == null) {
+                        chunk = lengths.size();
+                        chunkIndex.put(chunkInfo.getChunkChecksum(), chunk);
+                        lengths.add(chunkInfo.getChunkLength());
+                        // Duplicated chunks are provided by the first container that holds them.
+                        providers.add(i);
+                    }
+                    containerChunks[i][j] = chunk;
+                }
+            }
+
+            chunkLengths = lengths.stream().mapToInt(Integer::intValue).toArray();
+            chunkReferences = new int[chunkLengths.length];
+
+            List<int[]> signatureChunkList = new ArrayList<>();
+            List<int[]> signatureContainerList = new ArrayList<>();
+            List<List<Integer>> containerSignatureList = new ArrayList<>();
+            for (int i = 0; i < containers.size(); i++) {
+                containerSignatureList.add(new ArrayList<>());
+            }
+
+            for (List<ByteString> chunks : signatureToChunks.values()) {
+                Set<Integer> signatureChunkSet = new LinkedHashSet<>();
+                Set<Integer> signatureContainerSet = new LinkedHashSet<>();
+
+                for (ByteString checksum : chunks) {
+                    Integer chunk = chunkIndex.get(checksum);
+                    if (chunk == null) {
+                        // Not available from the specified containers, the signature cannot complete.
+                        signatureChunkSet = null;
+                        break;
+                    }
+                    signatureChunkSet.add(chunk);
+                    signatureContainerSet.add(providers.get(chunk));
+                }
+
+                if (signatureChunkSet == null) {
+                    continue;
+                }
+
+                int signature = signatureChunkList.size();
+                signatureChunkList.add(signatureChunkSet.stream().mapToInt(Integer::intValue).toArray());
+                signatureContainerList.add(signatureContainerSet.stream().mapToInt(Integer::intValue).toArray());
+                signatureContainerSet.forEach(container -> containerSignatureList.get(container).add(signature));
+                signatureChunkSet.forEach(chunk -> chunkReferences[chunk]++);
+            }
+
+            signatureChunks = signatureChunkList.toArray(new int[0][]);
+            signatureContainers = signatureContainerList.toArray(new int[0][]);
+            containerSignatures = containerSignatureList.stream()
+                    .map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+                    .toArray(int[][]::new);
+        }
+
+        int[] order() {
+            int[] remaining = new int[signatureContainers.length];
+            Arrays.setAll(remaining, signature -> signatureContainers[signature].length);
+
+            // Key: the fewest outstanding containers of the container's incomplete signatures. Keys only decrease, a
+            // fresh entry is queued on each decrease and stale entries are discarded when polled.
+            int[] keys = new int[containerChunks.length];
+            Arrays.fill(keys, Integer.MAX_VALUE);
+            for (int container = 0; container < containerSignatures.length; container++) {
+                for (int signature : containerSignatures[container]) {
+                    keys[container] = Math.min(keys[container], remaining[signature]);
+                }
+            }
+
+            PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, keys.length));
+            for (int container = 0; container < keys.length; container++) {
+                queue.add(entry(keys[container], container));
+            }
+
+            boolean[] isScheduled = new boolean[keys.length];
+            int[] order = new int[keys.length];
+            int n = 0;
+
+            while (!queue.isEmpty()) {
+                long entry = queue.poll();
+                int container = (int) entry;
+                if (isScheduled[container] || keys[container] != (int) (entry >>> 32)) {
+                    continue;
+                }
+
+                isScheduled[container] = true;
+                order[n++] = container;
+
+                for (int signature : containerSignatures[container]) {
+                    int outstanding = --remaining[signature];
+                    if (outstanding == 0) {
+                        continue;
+                    }
+
+                    for (int other : signatureContainers[signature]) {
+                        if (!isScheduled[other] && outstanding < keys[other]) {
+                            keys[other] = outstanding;
+                            queue.add(entry(outstanding, other));
+                        }
+                    }
+                }
+            }
+            return order;
+        }
+
+        static long entry(int key, int container) {
+            return ((long) key << 32) | container;
+        }
+
+        /**
+         * Simulates the store for the specified container order. Chunks not referenced by an incomplete signature are
+         * retained, as they are by the ChunkManager.
+         *
+         * @param order the container order, not null
+         * @return the predicted peak store size in bytes
+         */
+        long peak(int[] order) {
+            int[] remaining = new int[signatureContainers.length];
+            Arrays.setAll(remaining, signature -> signatureContainers[signature].length);
+            int[] references = chunkReferences.clone();
+            boolean[] isStored = new boolean[chunkLengths.length];
+
+            long size = 0;
+            long peak = 0;
+
+            for (int container : order) {
+                for (int chunk : containerChunks[container]) {
+                    if (!isStored[chunk]) {
+                        isStored[chunk] = true;
+                        size += chunkLengths[chunk];
+                    }
+                }
+                peak = Math.max(peak, size);
+
+                for (int signature : containerSignatures[container]) {
+                    if (--remaining[signature] != 0) {
+                        continue;
+                    }
+
+                    for (int chunk : signatureChunks[signature]) {
+                        if (--references[chunk] == 0 && isStored[chunk]) {
+                            isStored[chunk] = false;
+                            size -= chunkLengths[chunk];
+                        }
+                    }
+                }
+            }
+            return peak;
+        }
+    }
+
+    /**
+     * Container schedule.
+     */
+    @Immutable
+    @ThreadSafe
+    public static final class Schedule {
+
+        private final List<ChunkServer.StorageHostChunkList> containers;
+        private final long predictedPeak;
+        private final long unscheduledPeak;
+
+        Schedule(List<ChunkServer.StorageHostChunkList> containers, long predictedPeak, long unscheduledPeak) {
+            this.containers = Objects.requireNonNull(containers);
+            this.predictedPeak = predictedPeak;
+            this.unscheduledPeak = unscheduledPeak;
+        }
+
+        /**
+         * Returns the scheduled containers.
+         *
+         * @return the scheduled containers, unmodifiable, not null
+         */
+        public List<ChunkServer.StorageHostChunkList> containers() {
+            return containers;
+        }
+
+        /**
+         * Returns the predicted peak store size of the scheduled order, assuming containers complete in order.
+         *
+         * @return the predicted peak store size in bytes
+         */
+        public long predictedPeak() {
+            return predictedPeak;
+        }
+
+        /**
+         * Returns the predicted peak store size of the original order, assuming containers complete in order.
+         *
+         * @return the predicted peak store size in bytes
+         */
+        public long unscheduledPeak() {
+            return unscheduledPeak;
+        }
+
+        @Override
+        public String toString() {
+            return "Schedule{"
+                    + "containers=" + containers.size()
+                    + ", predictedPeak=" + predictedPeak
+                    + ", unscheduledPeak=" + unscheduledPeak
+                    + '}';
+        }
+    }
+}
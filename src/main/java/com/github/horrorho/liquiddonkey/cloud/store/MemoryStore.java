@@ -58,14 +58,16 @@ public final class MemoryStore<K> implements Store<K> {
 
     private final ConcurrentMap<K, byte[]> containers;
     private final AtomicLong size;
+    private final AtomicLong peak;
 
-    MemoryStore(ConcurrentMap<K, byte[]> containers, AtomicLong size) {
+    MemoryStore(ConcurrentMap<K, byte[]> containers, AtomicLong size, AtomicLong peak) {
         this.containers = Objects.requireNonNull(containers);
         this.size = Objects.requireNonNull(size);
+        this.peak = Objects.requireNonNull(peak);
     }
 
     MemoryStore() {
-        this(new ConcurrentHashMap<>(), new AtomicLong(0));
+        this(new ConcurrentHashMap<>(), new AtomicLong(0), new AtomicLong(0));
     }
 
     @Override
@@ -84,6 +86,7 @@ public final class MemoryStore<K> implements Store<K> {
 
         long delta = in - out;
         long instant = size.addAndGet(delta);
+        peak.accumulateAndGet(instant, Math::max);
 
         logger.debug("-- put() > in: {} out: {} size: {}", in, out, instant);
         return oldData == null;
@@ -111,6 +114,11 @@ public final class MemoryStore<K> implements Store<K> {
         return size.get();
     }
 
+    @Override
+    public long peak() {
+        return peak.get();
+    }
+
     @Override
     public DataWriter writer(K key) {
         return new Writer(key);
@@ -82,6 +82,13 @@ public interface Store<K> {
      */
     long size();
 
+    /**
+     * Returns the peak size of the Store in bytes.
+     *
+     * @return peak size of the store in bytes
+     */
+    long peak();
+
     /**
      * Returns a DataWriter that writes the referenced containers bytes to the specified output stream. Subsequent
      * modifications to the Store will not alter its output. This writer should be closed when no longer required to
@@ -0,0 +1,204 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ConnectionWarmer.
+ * <p>
+ * Opens pooled connections to the specified hosts ahead of use, so DNS resolution, TCP connection and TLS handshakes
+ * are paid up front and in parallel rather than by the first requests to each host. Per route limits are set to the
+ * expected request concurrency.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class ConnectionWarmer {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param connectionManager the connection pool, not null
+     * @param connections the connections to open per host, or 0 to disable
+     * @param maxPerRoute the connection limit per host
+     * @param timeoutMs the connection timeout in milliseconds
+     * @return a new instance, not null
+     */
+    public static ConnectionWarmer from(
+            PoolingHttpClientConnectionManager connectionManager,
+            int connections,
+            int maxPerRoute,
+            int timeoutMs) {
+
+        return new ConnectionWarmer(connectionManager, connections, maxPerRoute, timeoutMs);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionWarmer.class);
+
+    private static final int THREADS_MAX = 32;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final int connections;
+    private final int maxPerRoute;
+    private final int timeoutMs;
+
+    ConnectionWarmer(
+            PoolingHttpClientConnectionManager connectionManager,
+            int connections,
+            int maxPerRoute,
+            int timeoutMs) {
+
+        this.connectionManager = Objects.requireNonNull(connectionManager);
+        this.connections = connections;
+        this.maxPerRoute = maxPerRoute;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Sets the route limits for, and opens pooled connections to, the specified hosts. Failures are logged and
+     * otherwise ignored.
+     *
+     * @param hosts not null
+     * @return the number of connections opened
+     * @throws InterruptedException
+     */
+    public int warm(Collection<HttpHost> hosts) throws InterruptedException {
+        logger.trace("<< warm() < hosts: {}", hosts.size());
+
+        Set<HttpRoute> routes = new LinkedHashSet<>();
+        for (HttpHost host : hosts) {
+            try {
+                routes.add(route(host));
+            } catch (UnsupportedSchemeException ex) {
+                logger.warn("-- warm() > host: {} exception: {}", host, ex);
+            }
+        }
+
+        if (maxPerRoute > 0) {
+            routes.forEach(route -> connectionManager.setMaxPerRoute(route, maxPerRoute));
+        }
+
+        // Connections are held until all are open, otherwise idle connections would be leased again.
+        int perRoute = maxPerRoute > 0 ? Math.min(connections, maxPerRoute) : connections;
+        List<Callable<HttpClientConnection>> tasks = new ArrayList<>();
+        for (int i = 0; i < perRoute; i++) {
+            routes.forEach(route -> tasks.add(() -> open(route)));
+        }
+        List<Callable<HttpClientConnection>> limited
+                = tasks.subList(0, Math.min(tasks.size(), connectionManager.getMaxTotal()));
+
+        if (limited.isEmpty()) {
+            logger.trace(">> warm() > opened: 0");
+            return 0;
+        }
+
+        long a = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(limited.size(), THREADS_MAX));
+        List<HttpClientConnection> opened = new ArrayList<>();
+        try {
+            for (Future<HttpClientConnection> future : executor.invokeAll(limited)) {
+                try {
+                    opened.add(future.get());
+                } catch (ExecutionException ex) {
+                    logger.debug("-- warm() > exception: {}", ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            opened.forEach(connection
+                    -> connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS));
+        }
+        long b = System.currentTimeMillis();
+
+        logger.info("-- warm() > hosts: {} connections opened: {} delay(ms): {}", routes.size(), opened.size(), b - a);
+        logger.trace(">> warm() > opened: {}", opened.size());
+        return opened.size();
+    }
+
+    HttpClientConnection open(HttpRoute route)
+            throws InterruptedException, ExecutionException, IOException, TimeoutException {
+
+        ConnectionRequest request = connectionManager.requestConnection(route, null);
+        HttpClientConnection connection = request.get(timeoutMs, TimeUnit.MILLISECONDS);
+
+        try {
+            if (!connection.isOpen()) {
+                HttpClientContext context = HttpClientContext.create();
+                connectionManager.connect(connection, route, timeoutMs, context);
+                connectionManager.routeComplete(connection, route, context);
+            }
+            return connection;
+
+        } catch (IOException | RuntimeException ex) {
+            connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+            throw ex;
+        }
+    }
+
+    static HttpRoute route(HttpHost host) throws UnsupportedSchemeException {
+        // As resolved by the client's DefaultRoutePlanner for direct routes.
+        HttpHost target = host.getPort() > 0
+                ? host
+                : new HttpHost(
+                        host.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(host), host.getSchemeName());
+
+        return new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionWarmer{"
+                + "connections=" + connections
+                + ", maxPerRoute=" + maxPerRoute
+                + ", timeoutMs=" + timeoutMs
+                + '}';
+    }
+}
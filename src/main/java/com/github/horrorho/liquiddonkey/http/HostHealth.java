@@ -0,0 +1,195 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HostHealth.
+ * <p>
+ * Per host circuit breakers fed by request outcomes. A circuit opens after consecutive failures and refuses requests
+ * until its open period has elapsed, it then half-opens and admits a single probe request. A successful probe closes
+ * the circuit, a failed probe reopens it.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class HostHealth {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param failureThreshold the consecutive failures that open a circuit, or 0 to disable
+     * @param openMs the period an open circuit refuses requests
+     * @return a new instance, not null
+     */
+    public static HostHealth from(int failureThreshold, long openMs) {
+        return new HostHealth(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openMs));
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(HostHealth.class);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ConcurrentMap<String, Circuit> circuits;
+
+    HostHealth(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.circuits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns whether a request to the specified host is admitted. A half-open circuit admits a single probe.
+     *
+     * @param host not null
+     * @return true if admitted
+     */
+    public boolean isAvailable(String host) {
+        return failureThreshold <= 0 || circuit(host).isAvailable(System.nanoTime());
+    }
+
+    /**
+     * Returns the delay until the specified host's circuit may admit a request.
+     *
+     * @param host not null
+     * @return the delay in milliseconds, or 0 if the circuit is closed
+     */
+    public long retryAfterMs(String host) {
+        return failureThreshold <= 0
+                ? 0
+                : TimeUnit.NANOSECONDS.toMillis(circuit(host).retryAfterNanos(System.nanoTime()));
+    }
+
+    /**
+     * Records a successful request to the specified host.
+     *
+     * @param host not null
+     */
+    public void success(String host) {
+        circuit(host).success();
+    }
+
+    /**
+     * Records a failed request to the specified host.
+     *
+     * @param host not null
+     */
+    public void failure(String host) {
+        circuit(host).failure(host, System.nanoTime());
+    }
+
+    Circuit circuit(String host) {
+        return circuits.computeIfAbsent(host, key -> new Circuit());
+    }
+
+    @Override
+    public String toString() {
+        return "HostHealth{"
+                + "failureThreshold=" + failureThreshold
+                + ", openMs=" + TimeUnit.NANOSECONDS.toMillis(openNanos)
+                + ", circuits=" + circuits
+                + '}';
+    }
+
+    /**
+     * Circuit states.
+     */
+    enum State {
+
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @ThreadSafe
+    final class Circuit {
+
+        @GuardedBy("this")
+        private State state = State.CLOSED;
+        @GuardedBy("this")
+        private int failures = 0;
+        // Open circuits, the time the circuit half-opens. Half-open circuits, the time the probe expires.
+        @GuardedBy("this")
+        private long untilNanos = 0;
+
+        synchronized boolean isAvailable(long now) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+
+                case OPEN:
+                case HALF_OPEN:
+                    if (now - untilNanos < 0) {
+                        return false;
+                    }
+                    // Admit a probe. An unreported probe expires after the open period.
+                    state = State.HALF_OPEN;
+                    untilNanos = now + openNanos;
+                    return true;
+
+                default:
+                    throw new IllegalStateException("Unknown state: " + state);
+            }
+        }
+
+        synchronized long retryAfterNanos(long now) {
+            return state == State.CLOSED ? 0 : Math.max(0, untilNanos - now);
+        }
+
+        synchronized void success() {
+            failures = 0;
+            state = State.CLOSED;
+        }
+
+        synchronized void failure(String host, long now) {
+            failures++;
+
+            if (failureThreshold <= 0) {
+                return;
+            }
+
+            if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+                logger.warn("-- failure() > circuit open, host: {} failures: {}", host, failures);
+                state = State.OPEN;
+                untilNanos = now + openNanos;
+            }
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return state + "(" + failures + ")";
+        }
+    }
+}
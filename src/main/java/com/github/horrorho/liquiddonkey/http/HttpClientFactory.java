@@ -24,6 +24,7 @@
 package com.github.horrorho.liquiddonkey.http;
 
 import com.github.horrorho.liquiddonkey.settings.config.HttpConfig;
+import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -35,6 +36,7 @@ import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
@@ -42,6 +44,15 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,8 +83,15 @@ public final class HttpClientFactory {
     }
 
     public CloseableHttpClient client() {
-        logger.trace("<< client()");
+        return client(connectionManager());
+    }
 
+    /**
+     * Returns a new connection manager, as used by {@link #client()}.
+     *
+     * @return a new connection manager, not null
+     */
+    public PoolingHttpClientConnectionManager connectionManager() {
         PoolingHttpClientConnectionManager connectionManager = config.isRelaxedSSL()
                 ? new PoolingHttpClientConnectionManager(relaxedSocketFactoryRegistry())
                 : new PoolingHttpClientConnectionManager();
@@ -81,6 +99,20 @@ public final class HttpClientFactory {
         connectionManager.setMaxTotal(config.maxConnections());
         connectionManager.setDefaultMaxPerRoute(config.maxConnections());
         connectionManager.setValidateAfterInactivity(config.validateAfterInactivityMs());
+        // Bounds TLS handshakes on connect, before the request socket timeout applies.
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(config.timeoutMs()).build());
+
+        return connectionManager;
+    }
+
+    /**
+     * Returns a new client using the specified connection manager.
+     *
+     * @param connectionManager not null
+     * @return a new client, not null
+     */
+    public CloseableHttpClient client(PoolingHttpClientConnectionManager connectionManager) {
+        logger.trace("<< client()");
 
         RequestConfig requestConfig = RequestConfig.custom()
                 .setConnectionRequestTimeout(config.timeoutMs())
@@ -91,9 +123,7 @@ public final class HttpClientFactory {
         HttpRequestRetryHandler httpRequestRetryHandler = config.isPersistent()
                 ? new PersistentHttpRequestRetryHandler(
                         config.retryCount(),
-                        config.retryDelayMs(),
-                        config.timeoutMs(),
-                        true )
+                        true)
                 : new DefaultHttpRequestRetryHandler(
                         config.retryCount(),
                         false);
@@ -109,6 +139,57 @@ public final class HttpClientFactory {
         return client;
     }
 
+    /**
+     * Returns a new, unstarted, non-blocking client. Connection limits and timeouts are as for {@link #client()}.
+     *
+     * @return a new client, not null
+     * @throws IOException if the I/O reactor could not be created
+     */
+    public CloseableHttpAsyncClient asyncClient() throws IOException {
+        logger.trace("<< asyncClient()");
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(config.timeoutMs())
+                .setSoTimeout(config.timeoutMs())
+                .build();
+        ConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
+
+        PoolingNHttpClientConnectionManager connectionManager = config.isRelaxedSSL()
+                ? new PoolingNHttpClientConnectionManager(ioReactor, relaxedSessionStrategyRegistry())
+                : new PoolingNHttpClientConnectionManager(ioReactor);
+
+        connectionManager.setMaxTotal(config.maxConnections());
+        connectionManager.setDefaultMaxPerRoute(config.maxConnections());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(config.timeoutMs())
+                .setConnectTimeout(config.timeoutMs())
+                .setSocketTimeout(config.timeoutMs())
+                .build();
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setUserAgent(config.userAgent())
+                .build();
+
+        logger.trace(">> asyncClient()");
+        return client;
+    }
+
+    Registry<SchemeIOSessionStrategy> relaxedSessionStrategyRegistry() {
+        return RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register(
+                        "http",
+                        NoopIOSessionStrategy.INSTANCE)
+                .register(
+                        "https",
+                        new SSLIOSessionStrategy(
+                                relaxedSSLContext(),
+                                (hostname, session) -> true))
+                .build();
+    }
+
     Registry<ConnectionSocketFactory> relaxedSocketFactoryRegistry() {
         return RegistryBuilder.<ConnectionSocketFactory>create()
                 .register(
@@ -0,0 +1,126 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import com.github.horrorho.liquiddonkey.util.ByteArrayPool;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import net.jcip.annotations.NotThreadSafe;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * LeaseResponseConsumer.
+ * <p>
+ * Non-blocking counterpart of {@link ResponseHandlerFactory#toLease(ByteArrayPool, int)}. Content is decoded
+ * directly into a pooled array, sized from the entity content length or failing that the length hint. Non 2xx
+ * responses complete with an {@link HttpResponseException}. The caller must close the resulting lease once done.
+ *
+ * @author Ahseya
+ */
+@NotThreadSafe
+public final class LeaseResponseConsumer extends AbstractAsyncResponseConsumer<ByteArrayPool.Lease> {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param pool the array pool, not null
+     * @param lengthHint the expected length, or zero if unknown
+     * @return a new instance, not null
+     */
+    public static LeaseResponseConsumer from(ByteArrayPool pool, int lengthHint) {
+        return new LeaseResponseConsumer(pool, lengthHint);
+    }
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final ByteArrayPool pool;
+    private final int lengthHint;
+    private HttpResponse response;
+    private ByteArrayPool.Lease lease;
+
+    LeaseResponseConsumer(ByteArrayPool pool, int lengthHint) {
+        this.pool = Objects.requireNonNull(pool);
+        this.lengthHint = lengthHint;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        long contentLength = entity.getContentLength();
+        lease = pool.leaseOf(contentLength >= 0 && contentLength < Integer.MAX_VALUE
+                ? (int) contentLength
+                : lengthHint);
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        while (true) {
+            int length = lease.length();
+            byte[] array = length == lease.array().length
+                    ? lease.ensureCapacity(length + BUFFER_SIZE)
+                    : lease.array();
+
+            int n = decoder.read(ByteBuffer.wrap(array, length, array.length - length));
+            if (n <= 0) {
+                break;
+            }
+            lease.length(length + n);
+        }
+    }
+
+    @Override
+    protected ByteArrayPool.Lease buildResult(HttpContext context) throws Exception {
+        StatusLine statusLine = response.getStatusLine();
+        if (statusLine.getStatusCode() >= 300) {
+            throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+        }
+
+        ByteArrayPool.Lease result = lease == null
+                ? pool.leaseOf(0)
+                : lease;
+        lease = null;
+        return result;
+    }
+
+    @Override
+    protected void releaseResources() {
+        if (lease != null) {
+            lease.close();
+            lease = null;
+        }
+    }
+}
@@ -25,7 +25,6 @@ package com.github.horrorho.liquiddonkey.http;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
-import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLException;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
@@ -39,6 +38,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Aggressive HttpRequestRetryHandler.
+ * <p>
+ * Retries are immediate, the handler never sleeps as it would block the pooled connection's thread. Delayed retries
+ * are left to the caller.
  *
  * @author cain
  */
@@ -49,27 +51,16 @@ public final class PersistentHttpRequestRetryHandler implements HttpRequestRetry
     private static final Logger logger = LoggerFactory.getLogger(PersistentHttpRequestRetryHandler.class);
 
     private final int retryCount;
-    private final int retryDelayMs;
-    private final int timeOutMs;
     private final boolean requestSentRetryEnabled;
 
     /**
      * Returns a new instance.
      *
      * @param retryCount maximum retry count
-     * @param retryDelayMs retry in milliseconds
-     * @param timeOutMs timeout in milliseconds
      * @param requestSentRetryEnabled true to retry requests that have been sent
      */
-    public PersistentHttpRequestRetryHandler(
-            int retryCount,
-            int retryDelayMs,
-            int timeOutMs,
-            boolean requestSentRetryEnabled) {
-
+    public PersistentHttpRequestRetryHandler(int retryCount, boolean requestSentRetryEnabled) {
         this.retryCount = retryCount;
-        this.retryDelayMs = retryDelayMs;
-        this.timeOutMs = timeOutMs;
         this.requestSentRetryEnabled = requestSentRetryEnabled;
     }
 
@@ -100,16 +91,11 @@ public final class PersistentHttpRequestRetryHandler implements HttpRequestRetry
             return false;
         }
 
-        if (exception instanceof UnknownHostException && retryCount > 3) {
-            logger.debug("-- doRetryRequest() > {} {} > UnknownHostException sleep({})",
-                    request.getRequestLine(), exception.toString(), retryDelayMs);
-            sleep(timeOutMs);
-        }
-
-        if (retryCount > 3) {
-            logger.debug("-- doRetryRequest() > {} {} > sleep({})",
-                    request.getRequestLine(), exception.toString(), retryDelayMs);
-            sleep(timeOutMs);
+        if (exception instanceof UnknownHostException) {
+            // Immediate retries won't resolve, delayed retries are left to the caller.
+            logger.debug("-- doRetryRequest() > {} {} > false (UnknownHostException)",
+                    request.getRequestLine(), exception.toString());
+            return false;
         }
 
         if (!(request instanceof HttpEntityEnclosingRequest)) {
@@ -128,13 +114,4 @@ public final class PersistentHttpRequestRetryHandler implements HttpRequestRetry
                 request.getRequestLine(), exception.toString());
         return false;
     }
-
-    private void sleep(int timeMs) {
-        try {
-            TimeUnit.MILLISECONDS.sleep(timeMs);
-        } catch (InterruptedException ex) {
-            logger.warn("-- sleep() > interrupted: ", ex);
-            Thread.currentThread().interrupt();
-        }
-    }
 }
@@ -0,0 +1,127 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Progress.
+ * <p>
+ * Tracks the bytes received by a request. Throughput is checked over successive windows, excluding the time spent paused
+ * by a {@link Throttle}.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Progress {
+
+    public static Progress create() {
+        return new Progress(System.nanoTime());
+    }
+
+    private final long startNanos;
+    private final AtomicLong bytes;
+    private final AtomicLong pausedNanos;
+    // Window start, accessed only under lock.
+    private long windowNanos;
+    private long windowBytes;
+    private long windowPausedNanos;
+
+    Progress(long startNanos) {
+        this.startNanos = startNanos;
+        this.bytes = new AtomicLong(0);
+        this.pausedNanos = new AtomicLong(0);
+        this.windowNanos = startNanos;
+        this.windowBytes = 0;
+        this.windowPausedNanos = 0;
+    }
+
+    /**
+     * Records the specified bytes as received.
+     *
+     * @param count the byte count
+     */
+    public void add(long count) {
+        bytes.addAndGet(count);
+    }
+
+    /**
+     * Records the specified time as paused, such as a throttle wait, ahead of the pause. Paused time does not count
+     * against the throughput.
+     *
+     * @param nanos the time paused in nanoseconds
+     */
+    public void pause(long nanos) {
+        if (nanos > 0) {
+            pausedNanos.addAndGet(nanos);
+        }
+    }
+
+    /**
+     * Returns the time elapsed since the start.
+     *
+     * @return the time elapsed in milliseconds
+     */
+    public long elapsedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Checks the throughput once the current window, less any time paused, has passed, opening a new window if
+     * sufficient.
+     *
+     * @param windowMs the window length in milliseconds
+     * @param minimumBytesPerSecond the minimum throughput in bytes per second
+     * @return true if the throughput over the window fell below the minimum
+     */
+    public synchronized boolean isBelow(long windowMs, long minimumBytesPerSecond) {
+        long now = System.nanoTime();
+        long paused = pausedNanos.get();
+        long elapsedNanos = now - windowNanos - (paused - windowPausedNanos);
+        if (elapsedNanos < TimeUnit.MILLISECONDS.toNanos(windowMs)) {
+            return false;
+        }
+
+        long received = bytes.get() - windowBytes;
+        if (received * TimeUnit.SECONDS.toNanos(1) < minimumBytesPerSecond * elapsedNanos) {
+            return true;
+        }
+
+        windowNanos = now;
+        windowBytes = bytes.get();
+        windowPausedNanos = paused;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "Progress{"
+                + "bytes=" + bytes
+                + ", elapsedMs=" + elapsedMs()
+                + ", pausedNanos=" + pausedNanos
+                + '}';
+    }
+}
@@ -0,0 +1,146 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import net.jcip.annotations.NotThreadSafe;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * ProgressEntity.
+ * <p>
+ * Counts the bytes read from the wrapped entity's content into a {@link Progress} and optionally paces them to a
+ * {@link Throttle}'s bandwidth limit. Time spent waiting on the throttle is recorded as paused in the progress, so that
+ * throttled requests are not taken as stalled.
+ *
+ * @author Ahseya
+ */
+@NotThreadSafe
+public final class ProgressEntity extends HttpEntityWrapper {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param entity the wrapped entity, not null
+     * @param progress not null
+     * @return a new instance, not null
+     */
+    public static ProgressEntity from(HttpEntity entity, Progress progress) {
+        return new ProgressEntity(entity, progress, null);
+    }
+
+    /**
+     * Returns a new instance.
+     *
+     * @param entity the wrapped entity, not null
+     * @param progress not null
+     * @param throttle the throttle, or null if unthrottled
+     * @return a new instance, not null
+     */
+    public static ProgressEntity from(HttpEntity entity, Progress progress, Throttle throttle) {
+        return new ProgressEntity(entity, progress, throttle);
+    }
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Progress progress;
+    private final Throttle throttle;
+    private final LongConsumer waits;
+
+    ProgressEntity(HttpEntity entity, Progress progress, Throttle throttle) {
+        super(entity);
+        this.progress = Objects.requireNonNull(progress);
+        this.throttle = throttle;
+        this.waits = progress::pause;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new ProgressInputStream(super.getContent());
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try (InputStream inputStream = getContent()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, n);
+            }
+        }
+    }
+
+    final class ProgressInputStream extends FilterInputStream {
+
+        ProgressInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        void count(long count) throws InterruptedIOException {
+            progress.add(count);
+            if (throttle == null) {
+                return;
+            }
+
+            try {
+                throttle.bytes(count, waits);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted");
+            }
+        }
+    }
+}
@@ -24,6 +24,8 @@
 package com.github.horrorho.liquiddonkey.http;
 
 import com.github.horrorho.liquiddonkey.iofunction.IOFunction;
+import com.github.horrorho.liquiddonkey.util.ByteArrayPool;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Objects;
@@ -47,6 +49,8 @@ public class ResponseHandlerFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(ResponseHandlerFactory.class);
 
+    private static final int BUFFER_SIZE = 65536;
+
     /**
      * Returns an entity to function result response handler.
      *
@@ -69,7 +73,8 @@ public class ResponseHandlerFactory {
     }
 
     /**
-     * Returns an entity to byte array response handler.
+     * Returns an entity to byte array response handler. Entities of known length are read directly into an exactly
+     * sized array.
      *
      * @return an entity to byte array response handler, not null
      */
@@ -78,8 +83,76 @@ public class ResponseHandlerFactory {
 
             @Override
             public byte[] handleEntity(HttpEntity entity) throws IOException {
-                return EntityUtils.toByteArray(entity);
+                long contentLength = entity.getContentLength();
+                if (contentLength < 0 || contentLength > Integer.MAX_VALUE) {
+                    return EntityUtils.toByteArray(entity);
+                }
+
+                try (InputStream inputStream = entity.getContent()) {
+                    byte[] data = new byte[(int) contentLength];
+                    int length = read(inputStream, data, 0);
+                    if (length != data.length) {
+                        throw new EOFException("Truncated entity: " + length + " expected: " + data.length);
+                    }
+                    return data;
+                }
             }
         };
     }
+
+    /**
+     * Returns an entity to pooled array lease response handler. The array is sized from the entity content length
+     * if known, otherwise from the specified length hint. The caller must close the lease once done.
+     *
+     * @param pool the array pool, not null
+     * @param lengthHint the expected length, or zero if unknown
+     * @return an entity to pooled array lease response handler, not null
+     */
+    public static ResponseHandler<ByteArrayPool.Lease> toLease(ByteArrayPool pool, int lengthHint) {
+        Objects.requireNonNull(pool);
+
+        return new AbstractResponseHandler<ByteArrayPool.Lease>() {
+
+            @Override
+            public ByteArrayPool.Lease handleEntity(HttpEntity entity) throws IOException {
+                long contentLength = entity.getContentLength();
+                int length = contentLength >= 0 && contentLength < Integer.MAX_VALUE
+                        ? (int) contentLength
+                        : lengthHint;
+
+                ByteArrayPool.Lease lease = pool.leaseOf(length);
+                try (InputStream inputStream = entity.getContent()) {
+                    int offset = 0;
+                    while (true) {
+                        offset = read(inputStream, lease.array(), offset);
+                        lease.length(offset);
+                        if (offset < lease.array().length) {
+                            break;
+                        }
+                        int next = inputStream.read();
+                        if (next == -1) {
+                            break;
+                        }
+                        // Underestimated, grow.
+                        byte[] array = lease.ensureCapacity(offset + 1 + BUFFER_SIZE);
+                        array[offset++] = (byte) next;
+                        lease.length(offset);
+                    }
+                    return lease;
+
+                } catch (IOException | RuntimeException ex) {
+                    lease.close();
+                    throw ex;
+                }
+            }
+        };
+    }
+
+    static int read(InputStream inputStream, byte[] data, int offset) throws IOException {
+        int n;
+        while (offset < data.length && (n = inputStream.read(data, offset, data.length - offset)) != -1) {
+            offset += n;
+        }
+        return offset;
+    }
 }
@@ -0,0 +1,149 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import com.github.horrorho.liquiddonkey.util.TokenBucket;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Throttle.
+ * <p>
+ * Bandwidth and request rate limits. Each job's throttle is bound by its own limits and by the process wide
+ * {@link #global()} throttle shared by all jobs. Limits default to unlimited, allow a burst of one second's worth and
+ * may be adjusted at runtime.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Throttle {
+
+    /**
+     * Returns the process wide throttle shared by all jobs.
+     *
+     * @return the global throttle, not null
+     */
+    public static Throttle global() {
+        return global;
+    }
+
+    /**
+     * Returns a new job throttle, also bound by the global throttle.
+     *
+     * @param bytesPerSecond the bandwidth limit, or 0 if unlimited
+     * @param requestsPerSecond the request rate limit, or 0 if unlimited
+     * @return a new instance, not null
+     */
+    public static Throttle from(long bytesPerSecond, long requestsPerSecond) {
+        return new Throttle(
+                global,
+                TokenBucket.from(bytesPerSecond, bytesPerSecond),
+                TokenBucket.from(requestsPerSecond, requestsPerSecond));
+    }
+
+    private static final Throttle global = new Throttle(null, TokenBucket.unlimited(), TokenBucket.unlimited());
+
+    private final Throttle parent;
+    private final TokenBucket bytes;
+    private final TokenBucket requests;
+
+    Throttle(Throttle parent, TokenBucket bytes, TokenBucket requests) {
+        this.parent = parent;
+        this.bytes = Objects.requireNonNull(bytes);
+        this.requests = Objects.requireNonNull(requests);
+    }
+
+    /**
+     * Accounts for a request, sleeping if the request rate is exceeded.
+     *
+     * @throws InterruptedException
+     */
+    public void request() throws InterruptedException {
+        if (parent != null) {
+            parent.request();
+        }
+        requests.acquire(1);
+    }
+
+    /**
+     * Accounts for the specified bytes received, sleeping if the bandwidth is exceeded.
+     *
+     * @param count the bytes received
+     * @throws InterruptedException
+     */
+    public void bytes(long count) throws InterruptedException {
+        bytes(count, null);
+    }
+
+    /**
+     * Accounts for the specified bytes received, sleeping if the bandwidth is exceeded. Each wait is passed to the
+     * specified consumer before sleeping.
+     *
+     * @param count the bytes received
+     * @param waits the wait consumer in nanoseconds, may be null
+     * @throws InterruptedException
+     */
+    public void bytes(long count, LongConsumer waits) throws InterruptedException {
+        if (parent != null) {
+            parent.bytes(count, waits);
+        }
+        bytes.acquire(count, waits);
+    }
+
+    /**
+     * Sets the bandwidth limit.
+     *
+     * @param bytesPerSecond the bandwidth limit, or 0 if unlimited
+     */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        bytes.set(bytesPerSecond, bytesPerSecond);
+    }
+
+    /**
+     * Sets the request rate limit.
+     *
+     * @param requestsPerSecond the request rate limit, or 0 if unlimited
+     */
+    public void setRequestsPerSecond(long requestsPerSecond) {
+        requests.set(requestsPerSecond, requestsPerSecond);
+    }
+
+    public long bytesPerSecond() {
+        return bytes.ratePerSecond();
+    }
+
+    public long requestsPerSecond() {
+        return requests.ratePerSecond();
+    }
+
+    @Override
+    public String toString() {
+        return "Throttle{"
+                + "bytesPerSecond=" + bytesPerSecond()
+                + ", requestsPerSecond=" + requestsPerSecond()
+                + ", isGlobal=" + (parent == null)
+                + '}';
+    }
+}
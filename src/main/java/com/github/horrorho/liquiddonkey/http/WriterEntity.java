@@ -0,0 +1,101 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import com.github.horrorho.liquiddonkey.iofunction.IOConsumer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * WriterEntity.
+ * <p>
+ * Repeatable HttpEntity of known length whose content is written directly to the request output stream on demand,
+ * rather than buffered ahead into a byte array.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class WriterEntity extends AbstractHttpEntity {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param writer writes the content to the specified output stream, must be repeatable, not null
+     * @param length the content length in bytes, or a negative number if unknown
+     * @return a new instance, not null
+     */
+    public static WriterEntity from(IOConsumer<OutputStream> writer, long length) {
+        return new WriterEntity(writer, length);
+    }
+
+    private final IOConsumer<OutputStream> writer;
+    private final long length;
+
+    WriterEntity(IOConsumer<OutputStream> writer, long length) {
+        this.writer = Objects.requireNonNull(writer);
+        this.length = length;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.accept(bytes);
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(outputStream);
+        writer.accept(outputStream);
+        outputStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "WriterEntity{" + "length=" + length + '}';
+    }
+}
@@ -0,0 +1,90 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import com.github.horrorho.liquiddonkey.http.HttpClientFactory;
+import java.io.IOException;
+import java.util.Objects;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * ApacheTransport.
+ * <p>
+ * Apache HttpClient transport, HTTP/1.1 over a pooled connection manager. The default.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class ApacheTransport implements HttpTransport {
+
+    public static final String NAME = "apache";
+
+    public static ApacheTransport from(HttpClientFactory clients) {
+        PoolingHttpClientConnectionManager connectionManager = clients.connectionManager();
+        return new ApacheTransport(clients.client(connectionManager), connectionManager);
+    }
+
+    private final CloseableHttpClient client;
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    ApacheTransport(CloseableHttpClient client, PoolingHttpClientConnectionManager connectionManager) {
+        this.client = Objects.requireNonNull(client);
+        this.connectionManager = Objects.requireNonNull(connectionManager);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        return client.execute(request);
+    }
+
+    @Override
+    public CloseableHttpClient client() {
+        return client;
+    }
+
+    public PoolingHttpClientConnectionManager connectionManager() {
+        return connectionManager;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ApacheTransport{" + "connectionManager=" + connectionManager.getTotalStats() + '}';
+    }
+}
@@ -0,0 +1,65 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * HttpTransport.
+ * <p>
+ * Executes requests over a particular HTTP implementation. Requests and responses are expressed with the HttpCore
+ * types used throughout, so the existing clients and response handlers run unchanged over any transport via
+ * {@link #client()}. Aborting a request aborts its exchange.
+ *
+ * @author Ahseya
+ */
+public interface HttpTransport extends Closeable {
+
+    /**
+     * Returns the transport name, as selected by the HTTP_TRANSPORT property.
+     *
+     * @return the name, not null
+     */
+    String name();
+
+    /**
+     * Executes the specified request. The caller must close the returned response.
+     *
+     * @param request the request with an absolute URI, not null
+     * @return the response, not null
+     * @throws IOException
+     */
+    CloseableHttpResponse execute(HttpUriRequest request) throws IOException;
+
+    /**
+     * Returns an HttpClient view of this transport. Closing the client closes the transport.
+     *
+     * @return the client, not null
+     */
+    CloseableHttpClient client();
+}
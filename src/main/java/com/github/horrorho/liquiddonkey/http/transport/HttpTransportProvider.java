@@ -0,0 +1,54 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import com.github.horrorho.liquiddonkey.settings.config.HttpConfig;
+import java.io.IOException;
+
+/**
+ * HttpTransportProvider.
+ * <p>
+ * Service provider interface for {@link HttpTransport}s, registered in
+ * {@code META-INF/services/com.github.horrorho.liquiddonkey.http.transport.HttpTransportProvider}.
+ *
+ * @author Ahseya
+ */
+public interface HttpTransportProvider {
+
+    /**
+     * Returns the name of the transports provided.
+     *
+     * @return the name, not null
+     */
+    String name();
+
+    /**
+     * Returns a new transport.
+     *
+     * @param config not null
+     * @return a new transport, not null
+     * @throws IOException
+     */
+    HttpTransport create(HttpConfig config) throws IOException;
+}
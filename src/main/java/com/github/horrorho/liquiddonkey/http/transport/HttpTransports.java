@@ -0,0 +1,116 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import com.github.horrorho.liquiddonkey.http.HttpClientFactory;
+import com.github.horrorho.liquiddonkey.settings.config.HttpConfig;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HttpTransports.
+ * <p>
+ * Selects {@link HttpTransport}s by name from the registered {@link HttpTransportProvider}s. Providers that fail to
+ * load, e.g. the JDK transport on runtimes prior to Java 11, are skipped.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class HttpTransports {
+
+    /**
+     * Returns a new transport as selected by the configuration, falling back to the Apache transport if unavailable.
+     *
+     * @param config not null
+     * @return a new transport, not null
+     * @throws IOException
+     */
+    public static HttpTransport from(HttpConfig config) throws IOException {
+        return from(config.transport(), config);
+    }
+
+    /**
+     * Returns a new transport of the specified name, falling back to the Apache transport if unavailable.
+     *
+     * @param name not null
+     * @param config not null
+     * @return a new transport, not null
+     * @throws IOException
+     */
+    public static HttpTransport from(String name, HttpConfig config) throws IOException {
+        logger.trace("<< from() < name: {}", name);
+
+        HttpTransport transport = null;
+        for (HttpTransportProvider provider : providers()) {
+            if (provider.name().equalsIgnoreCase(name)) {
+                transport = provider.create(config);
+                break;
+            }
+        }
+
+        if (transport == null) {
+            logger.warn("-- from() > unavailable transport: {}, using: {}", name, ApacheTransport.NAME);
+            transport = ApacheTransport.from(HttpClientFactory.from(config));
+        }
+
+        logger.trace(">> from() > {}", transport.name());
+        return transport;
+    }
+
+    /**
+     * Returns the available providers.
+     *
+     * @return the available providers, not null
+     */
+    public static List<HttpTransportProvider> providers() {
+        List<HttpTransportProvider> providers = new ArrayList<>();
+
+        Iterator<HttpTransportProvider> iterator = ServiceLoader.load(HttpTransportProvider.class).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                providers.add(iterator.next());
+            } catch (ServiceConfigurationError | LinkageError ex) {
+                logger.debug("-- providers() > unavailable provider: {}", ex.toString());
+            }
+        }
+        return providers;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpTransports.class);
+
+    HttpTransports() {
+    }
+}
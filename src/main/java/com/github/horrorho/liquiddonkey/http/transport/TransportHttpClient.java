@@ -0,0 +1,148 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * TransportHttpClient.
+ * <p>
+ * HttpClient view of an {@link HttpTransport}, so response handlers are shared with the Apache client.
+ * <p>
+ * The deprecated HttpClient 4.0 API is implemented as in Apache's own minimal client: parameters are held but unused,
+ * and the connection manager view only supports shutdown, which closes the transport.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class TransportHttpClient extends CloseableHttpClient {
+
+    public static TransportHttpClient from(HttpTransport transport) {
+        return new TransportHttpClient(transport);
+    }
+
+    private final HttpTransport transport;
+    @SuppressWarnings("deprecation")
+    private final org.apache.http.params.HttpParams params;
+
+    @SuppressWarnings("deprecation")
+    TransportHttpClient(HttpTransport transport) {
+        this.transport = Objects.requireNonNull(transport);
+        this.params = new org.apache.http.params.BasicHttpParams();
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException, ClientProtocolException {
+
+        HttpUriRequest uriRequest = request instanceof HttpUriRequest
+                ? (HttpUriRequest) request
+                : HttpRequestWrapper.wrap(request, target);
+
+        if (!uriRequest.getURI().isAbsolute()) {
+            if (target == null) {
+                throw new ClientProtocolException("Relative URI with no target host: " + uriRequest.getURI());
+            }
+            HttpRequestWrapper wrapper = HttpRequestWrapper.wrap(uriRequest, target);
+            wrapper.setURI(URI.create(target.toURI()).resolve(uriRequest.getURI()));
+            uriRequest = wrapper;
+        }
+
+        return transport.execute(uriRequest);
+    }
+
+    @Override
+    public void close() throws IOException {
+        transport.close();
+    }
+
+    // Required by the HttpClient interface, fully qualified so the deprecation suppression stays local.
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public org.apache.http.params.HttpParams getParams() {
+        return params;
+    }
+
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+        return new org.apache.http.conn.ClientConnectionManager() {
+
+            @Override
+            public void shutdown() {
+                try {
+                    transport.close();
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+
+            @Override
+            public void closeIdleConnections(long idletime, TimeUnit tunit) {
+                // Connections are pooled by the transport.
+            }
+
+            @Override
+            public void closeExpiredConnections() {
+                // Connections are pooled by the transport.
+            }
+
+            @Override
+            public org.apache.http.conn.scheme.SchemeRegistry getSchemeRegistry() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public org.apache.http.conn.ClientConnectionRequest
+                    requestConnection(org.apache.http.conn.routing.HttpRoute route, Object state) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void releaseConnection(
+                    org.apache.http.conn.ManagedClientConnection conn, long validDuration, TimeUnit timeUnit) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "TransportHttpClient{" + "transport=" + transport.name() + '}';
+    }
+}
@@ -0,0 +1,114 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+import org.apache.http.HttpEntity;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+
+/**
+ * TransportResponse.
+ * <p>
+ * Streamed response from a non-Apache {@link HttpTransport}. Closing the response closes the body stream.
+ *
+ * @author Ahseya
+ */
+@NotThreadSafe
+public final class TransportResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param status the status code
+     * @param version the protocol version, not null
+     * @param headers the headers, HTTP/2 pseudo-headers are skipped, not null
+     * @param body the body stream, may be null
+     * @return a new instance, not null
+     */
+    public static TransportResponse from(
+            int status,
+            ProtocolVersion version,
+            Map<String, List<String>> headers,
+            InputStream body) {
+
+        TransportResponse response = new TransportResponse(status, version);
+
+        headers.forEach((name, values) -> {
+            if (!name.startsWith(":")) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+
+        if (body != null) {
+            BasicHttpEntity entity = new BasicHttpEntity();
+            entity.setContent(body);
+            entity.setContentLength(contentLength(response));
+            if (response.getFirstHeader("Content-Type") != null) {
+                entity.setContentType(response.getFirstHeader("Content-Type"));
+            }
+            if (response.getFirstHeader("Content-Encoding") != null) {
+                entity.setContentEncoding(response.getFirstHeader("Content-Encoding"));
+            }
+            response.setEntity(entity);
+        }
+
+        return response;
+    }
+
+    static long contentLength(TransportResponse response) {
+        if (response.getFirstHeader("Content-Length") == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(response.getFirstHeader("Content-Length").getValue().trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    TransportResponse(int status, ProtocolVersion version) {
+        super(new BasicStatusLine(
+                version,
+                status,
+                EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        HttpEntity entity = getEntity();
+        if (entity != null && entity.isStreaming()) {
+            entity.getContent().close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.metrics;
+
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * DownloadMetrics.
+ * <p>
+ * The download pipeline metrics, registered with {@link Metrics#global()}.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class DownloadMetrics {
+
+    public static final Counter FETCHED_BYTES
+            = counter("fetched_bytes_total", "Container bytes fetched from chunk servers.");
+
+    public static final Counter WRITTEN_BYTES
+            = counter("written_bytes_total", "File bytes written.");
+
+    public static final Counter DECRYPTED_CHUNK_BYTES
+            = counter("decrypted_bytes_total", "Bytes decrypted.", "stage", "chunk");
+
+    public static final Counter DECRYPTED_FILE_BYTES
+            = counter("decrypted_bytes_total", "Bytes decrypted.", "stage", "file");
+
+    public static final Counter CONTAINERS_COMPLETED
+            = counter("containers_total", "Containers by outcome.", "outcome", "completed");
+
+    public static final Counter CONTAINERS_RETRIED
+            = counter("containers_total", "Containers by outcome.", "outcome", "retried");
+
+    public static final Counter CONTAINERS_FAILED
+            = counter("containers_total", "Containers by outcome.", "outcome", "failed");
+
+    public static final Counter REQUEST_RETRIES
+            = counter("request_retries_total", "HTTP requests retried by the agent.");
+
+    public static final Counter UNAUTHORIZED
+            = counter("unauthorized_total", "HTTP 401 responses.");
+
+    public static final Timer REQUEST_LATENCY
+            = timer("request_latency_seconds", "HTTP request latency, including response consumption.");
+
+    public static final Timer DECRYPT_CHUNK_TIME
+            = timer("decrypt_seconds", "Decryption time.", "stage", "chunk");
+
+    public static final Timer DECRYPT_FILE_TIME
+            = timer("decrypt_seconds", "Decryption time.", "stage", "file");
+
+    public static final Timer WRITE_TIME
+            = timer("write_seconds", "File write time, excluding decryption.");
+
+    public static final Gauge STORE_BYTES
+            = gauge("store_bytes", "Chunk store size in bytes.");
+
+    public static final Gauge ACTIVE_RUNNERS
+            = gauge("active_runners", "Engine runners active.");
+
+    public static final Gauge QUEUE_DEPTH
+            = gauge("queue_depth", "Containers queued or awaiting retry.");
+
+    private static final Map<Outcome, Counter> files = new EnumMap<>(Outcome.class);
+
+    static {
+        for (Outcome outcome : Outcome.values()) {
+            files.put(outcome, counter(
+                    "files_total",
+                    "Files by outcome.",
+                    "outcome", outcome.name().toLowerCase(Locale.US)));
+        }
+    }
+
+    /**
+     * Returns the file counter for the specified outcome.
+     *
+     * @param outcome not null
+     * @return the counter, not null
+     */
+    public static Counter files(Outcome outcome) {
+        return files.get(outcome);
+    }
+
+    /**
+     * Counts the specified file outcomes.
+     *
+     * @param outcomes file to outcome map, not null
+     */
+    public static void record(Map<?, Outcome> outcomes) {
+        outcomes.values().forEach(outcome -> files.get(outcome).increment());
+    }
+
+    static Counter counter(String name, String help, String... labels) {
+        return Metrics.global().counter(name, help, labels);
+    }
+
+    static Timer timer(String name, String help, String... labels) {
+        return Metrics.global().timer(name, help, labels);
+    }
+
+    static Gauge gauge(String name, String help, String... labels) {
+        return Metrics.global().gauge(name, help, labels);
+    }
+
+    DownloadMetrics() {
+    }
+}
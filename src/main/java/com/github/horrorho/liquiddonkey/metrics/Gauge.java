@@ -0,0 +1,74 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Gauge.
+ * <p>
+ * Instantaneous value, either held or sampled from a supplier.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Gauge {
+
+    private final AtomicLong value = new AtomicLong();
+    private volatile LongSupplier supplier;
+
+    Gauge() {
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void decrement() {
+        value.decrementAndGet();
+    }
+
+    /**
+     * Samples the value from the specified supplier, replacing any previous supplier.
+     *
+     * @param supplier the supplier, or null to revert to the held value
+     */
+    public void set(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public long value() {
+        LongSupplier local = supplier;
+        return local == null
+                ? value.get()
+                : local.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return "Gauge{" + "value=" + value() + '}';
+    }
+}
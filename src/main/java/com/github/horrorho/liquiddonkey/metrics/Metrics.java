@@ -0,0 +1,221 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Metrics.
+ * <p>
+ * Registry of named, optionally labelled, {@link Counter}s, {@link Timer}s and {@link Gauge}s. Metrics are created on
+ * first request and are shared thereafter. Samples are named as in the Prometheus text format, e.g.
+ * {@code files_total{outcome="written"}}, and are exposed via {@link MetricsJmx} and {@link MetricsServer}.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class Metrics {
+
+    /**
+     * Returns the process-wide registry.
+     *
+     * @return the process-wide registry, not null
+     */
+    public static Metrics global() {
+        return global;
+    }
+
+    /**
+     * Returns a new, empty registry.
+     *
+     * @return a new instance, not null
+     */
+    public static Metrics create() {
+        return new Metrics(new ConcurrentSkipListMap<>());
+    }
+
+    private static final Metrics global = create();
+
+    static final String PREFIX = "liquiddonkey_";
+
+    private final ConcurrentMap<String, Family> families;
+
+    Metrics(ConcurrentMap<String, Family> families) {
+        this.families = Objects.requireNonNull(families);
+    }
+
+    /**
+     * Returns the specified counter, creating it if absent.
+     *
+     * @param name the name, conventionally suffixed _total, not null
+     * @param help the description, not null
+     * @param labels label name and value pairs, not null
+     * @return the counter, not null
+     * @throws IllegalArgumentException if the name is registered to a different type or the labels are unpaired
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return metric(name, help, Type.COUNTER, labels, Counter::new, Counter.class);
+    }
+
+    /**
+     * Returns the specified timer, creating it if absent.
+     *
+     * @param name the name, conventionally suffixed _seconds, not null
+     * @param help the description, not null
+     * @param labels label name and value pairs, not null
+     * @return the timer, not null
+     * @throws IllegalArgumentException if the name is registered to a different type or the labels are unpaired
+     */
+    public Timer timer(String name, String help, String... labels) {
+        return metric(name, help, Type.SUMMARY, labels, Timer::new, Timer.class);
+    }
+
+    /**
+     * Returns the specified gauge, creating it if absent.
+     *
+     * @param name the name, not null
+     * @param help the description, not null
+     * @param labels label name and value pairs, not null
+     * @return the gauge, not null
+     * @throws IllegalArgumentException if the name is registered to a different type or the labels are unpaired
+     */
+    public Gauge gauge(String name, String help, String... labels) {
+        return metric(name, help, Type.GAUGE, labels, Gauge::new, Gauge.class);
+    }
+
+    <T> T metric(String name, String help, Type type, String[] labels, Supplier<T> factory, Class<T> cls) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric: " + name + " registered as: " + family.type);
+        }
+        return cls.cast(family.metrics.computeIfAbsent(labels(labels), key -> factory.get()));
+    }
+
+    /**
+     * Returns the current samples, sample name to value. Timers contribute _count and _sum samples, the latter in
+     * seconds.
+     *
+     * @return the samples, not null
+     */
+    public SortedMap<String, Number> samples() {
+        SortedMap<String, Number> samples = new TreeMap<>();
+        families.values().forEach(family -> family.samples(samples));
+        return samples;
+    }
+
+    /**
+     * Returns the current samples in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @return the samples, not null
+     */
+    public String prometheus() {
+        StringBuilder builder = new StringBuilder();
+
+        for (Family family : families.values()) {
+            builder.append("# HELP ").append(PREFIX).append(family.name).append(' ')
+                    .append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            builder.append("# TYPE ").append(PREFIX).append(family.name).append(' ')
+                    .append(family.type.name().toLowerCase(Locale.US)).append('\n');
+
+            SortedMap<String, Number> samples = new TreeMap<>();
+            family.samples(samples);
+            samples.forEach((sample, value)
+                    -> builder.append(PREFIX).append(sample).append(' ').append(value).append('\n'));
+        }
+        return builder.toString();
+    }
+
+    static String labels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Unpaired labels: " + labels.length);
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i != 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics{" + "families=" + families.keySet() + '}';
+    }
+
+    enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    @Immutable
+    @ThreadSafe
+    static final class Family {
+
+        private final String name;
+        private final String help;
+        private final Type type;
+        // Rendered labels to metric.
+        private final ConcurrentMap<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = Objects.requireNonNull(name);
+            this.help = Objects.requireNonNull(help);
+            this.type = Objects.requireNonNull(type);
+        }
+
+        void samples(Map<String, Number> samples) {
+            metrics.forEach((labels, metric) -> {
+                if (metric instanceof Counter) {
+                    samples.put(name + labels, ((Counter) metric).count());
+
+                } else if (metric instanceof Gauge) {
+                    samples.put(name + labels, ((Gauge) metric).value());
+
+                } else {
+                    Timer timer = (Timer) metric;
+                    samples.put(name + "_count" + labels, timer.count());
+                    samples.put(name + "_sum" + labels, timer.totalSeconds());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MetricsJmx.
+ * <p>
+ * Exposes a {@link Metrics} registry as a read-only dynamic MBean, one attribute per sample.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class MetricsJmx implements DynamicMBean, AutoCloseable {
+
+    public static final String OBJECT_NAME = "com.github.horrorho.liquiddonkey:type=Metrics";
+
+    /**
+     * Registers the specified metrics with the platform MBean server, replacing any existing registration.
+     *
+     * @param metrics not null
+     * @return the registered MBean, not null
+     * @throws JMException
+     */
+    public static MetricsJmx register(Metrics metrics) throws JMException {
+        logger.trace("<< register()");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        MetricsJmx instance = new MetricsJmx(metrics, server, name);
+
+        try {
+            server.registerMBean(instance, name);
+        } catch (InstanceAlreadyExistsException ex) {
+            logger.debug("-- register() > replacing: {}", name);
+            server.unregisterMBean(name);
+            server.registerMBean(instance, name);
+        }
+
+        logger.trace(">> register() > {}", name);
+        return instance;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsJmx.class);
+
+    private final Metrics metrics;
+    private final MBeanServer server;
+    private final ObjectName name;
+
+    MetricsJmx(Metrics metrics, MBeanServer server, ObjectName name) {
+        this.metrics = Objects.requireNonNull(metrics);
+        this.server = Objects.requireNonNull(server);
+        this.name = Objects.requireNonNull(name);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = metrics.samples().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Read only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> samples = metrics.samples();
+        AttributeList list = new AttributeList();
+
+        for (String attribute : attributes) {
+            if (samples.containsKey(attribute)) {
+                list.add(new Attribute(attribute, samples.get(attribute)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+            throws MBeanException, ReflectionException {
+
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        // Metrics may be added at any time, so the attributes are listed afresh.
+        MBeanAttributeInfo[] attributes = metrics.samples().entrySet().stream()
+                .map(entry -> new MBeanAttributeInfo(
+                                entry.getKey(),
+                                entry.getValue().getClass().getName(),
+                                entry.getKey(),
+                                true,
+                                false,
+                                false))
+                .toArray(MBeanAttributeInfo[]::new);
+
+        return new MBeanInfo(getClass().getName(), "LiquidDonkey metrics", attributes, null, null, null);
+    }
+
+    /**
+     * Unregisters the MBean.
+     */
+    @Override
+    public void close() {
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException ex) {
+            logger.debug("-- close() > not registered: {}", name);
+        } catch (JMException ex) {
+            logger.warn("-- close() > exception: {}", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsJmx{" + "name=" + name + '}';
+    }
+}
@@ -40,31 +40,56 @@ public enum Property {
     AUTHENTICATION_APPLEID(null),
     AUTHENTICATION_PASSWORD(null),
     AUTHENTICATION_TOKEN(null),
+    CLIENT_CACHE("true"),
+    CLIENT_CACHE_DIRECTORY("cache"),
+    CLIENT_CACHE_SIZE_MAX_MB("256"),
     CLIENT_LIST_LIMIT("4096"),
     COMMAND_LINE_HELP(null),
     COMMAND_LINE_VERSION(null),
     CONFIG_PREFIX_ITEM_TYPE("ITEM_TYPE_"),
     DEBUG_MEMORY_MONITOR_INTERVAL_MS("10000"),
+    DEBUG_METRICS_JMX("false"),
+    DEBUG_METRICS_PORT("0"),
     DEBUG_MONITOR_MEMORY("false"),
     DEBUG_PRINT_STACK_TRACE("false"),
     DEBUG_REPORT("false"),
     ENGINE_AGGRESSIVE("false"),
+    ENGINE_ASYNC("false"),
     ENGINE_BATCH_SIZE_MINIMUM_BYTES("4194304"),
+    ENGINE_CIRCUIT_FAILURE_THRESHOLD("5"),
+    ENGINE_CIRCUIT_OPEN_MS("30000"),
     ENGINE_FORCE_OVERWRITE("false"),
     ENGINE_DOWNLOAD_RETRY("1"),
     ENGINE_DOWNLOAD_RETRY_AGGRESSIVE("2"),
     ENGINE_DUMP_TOKEN(null),
+    ENGINE_HEDGE("true"),
+    ENGINE_HEDGE_DELAY_MINIMUM_MS("5000"),
+    ENGINE_HEDGE_PERCENTILE("95"),
+    ENGINE_HOST_RETRY_BUDGET("64"),
+    ENGINE_PREWARM_CONNECTIONS("2"),
+    ENGINE_REAUTHORIZE_MAX("3"),
+    ENGINE_RETRY_BACKOFF_BASE_MS("500"),
+    ENGINE_RETRY_BACKOFF_MAX_MS("30000"),
+    ENGINE_RETRY_ROUNDS("1"),
+    ENGINE_SCHEDULE_CONTAINERS("true"),
     ENGINE_SET_LAST_MODIFIED_TIMESTAMP("true"),
     ENGINE_PERSISTENT("false"),
     ENGINE_RETRY_DELAY_MS("1000"),
     ENGINE_THREAD_STAGGER_DELAY_MS("1000"),
     ENGINE_THREAD_COUNT("4"),
     ENGINE_TIMEOUT_MS("1800000"),
+    ENGINE_VERIFY_LOCAL("false"),
+    ENGINE_VIRTUAL_THREADS("false"),
+    ENGINE_WATCHDOG_MINIMUM_BYTES_PER_SECOND("1024"),
+    ENGINE_WATCHDOG_WINDOW_MS("30000"),
     FILE_COMBINED("false"),
     FILE_COMBINED_DIRECTORY("combined"),
     FILE_FLAT("false"),
+    FILE_MANIFEST("true"),
+    FILE_MANIFEST_RECONCILE("false"),
     FILE_OUTPUT_DIRECTORY("output"),
     FILE_REPORTS_DIRECTORY("reports"),
+    FILE_SHARD_DEPTH("0"),
     FILTER_DATE_MIN("0000-01-01"),
     FILTER_DATE_MAX("9999-01-01"),
     FILTER_DOMAIN(null),
@@ -73,8 +98,12 @@ public enum Property {
     FILTER_RELATIVE_PATH(null),
     FILTER_SIZE_MIN("0"),
     FILTER_SIZE_MAX(Long.toString(Long.MAX_VALUE / 1024)),
+    HTTP_BYTES_PER_SECOND("0"),
     HTTP_DEFAULT_USER_AGENT("Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:37.0) Gecko/20100101 Firefox/37.0"),
+    HTTP_GLOBAL_BYTES_PER_SECOND("0"),
+    HTTP_GLOBAL_REQUESTS_PER_SECOND("0"),
     HTTP_MAX_CONNECTIONS("32"),
+    HTTP_REQUESTS_PER_SECOND("0"),
     HTTP_RETRY_COUNT("3"),
     HTTP_RETRY_COUNT_PERSISTENT("60"),
     HTTP_RETRY_DELAY_MS("100"),
@@ -83,6 +112,7 @@ public enum Property {
     HTTP_SOCKET_TIMEOUT_RETRY_COUNT("1"),
     HTTP_SOCKET_TIMEOUT_RETRY_COUNT_PERSISTENT("12"),
     HTTP_TIMEOUT_MS("30000"),
+    HTTP_TRANSPORT("apache"),
     HTTP_VALID_AFTER_INACTIVITY_MS("30000"),
     ITEM_TYPE_ADDRESS_BOOK("addressbook.sqlitedb"),
     ITEM_TYPE_CALENDAR("calendar.sqlitedb"),
@@ -134,6 +134,30 @@ public final class CommandLineOptions {
         options.put(ENGINE_FORCE_OVERWRITE,
                 new Option("f", "force", false, "Download files regardless of whether a local version exists."));
 
+        options.put(FILE_MANIFEST_RECONCILE,
+                new Option(null, "reconcile", false,
+                        "Check the local file manifest against the file system before downloading."));
+
+        options.put(FILE_SHARD_DEPTH,
+                Option.builder().longOpt("shard-depth")
+                .desc("Shard flat directories on file hash prefixes, 0 (none) to 8 levels deep.")
+                .argName("int")
+                .hasArg().build());
+
+        options.put(ENGINE_VERIFY_LOCAL,
+                new Option(null, "verify", false,
+                        "Verify existing local files against their chunk checksums rather than their timestamps."));
+
+        options.put(ENGINE_ASYNC,
+                new Option(null, "async", false,
+                        "Download chunk containers over non-blocking connections rather than one thread each. "
+                        + "Stalled connections are not watched, hosts are not circuit broken and stragglers are "
+                        + "not hedged."));
+
+        options.put(ENGINE_VIRTUAL_THREADS,
+                new Option(null, "virtual-threads", false,
+                        "Download each chunk container on a virtual thread, Java 21+. Threads bounds concurrency."));
+
         options.put(ENGINE_PERSISTENT,
                 new Option("p", "persistent", false,
                         "More persistent in the handling of network errors, for unstable connections."));
@@ -156,6 +180,15 @@ public final class CommandLineOptions {
         options.put(DEBUG_PRINT_STACK_TRACE,
                 new Option("x", "stack-trace", false, "Print stack trace on errors, useful for debugging."));
 
+        options.put(DEBUG_METRICS_PORT,
+                Option.builder().longOpt("metrics-port")
+                .desc("Serve Prometheus metrics on localhost at the specified port.")
+                .argName("int")
+                .hasArg().build());
+
+        options.put(DEBUG_METRICS_JMX,
+                new Option(null, "metrics-jmx", false, "Expose metrics as a JMX MBean."));
+
         options.put(ENGINE_DUMP_TOKEN,
                 new Option(null, "token", false,
                         "Output authentication token and exit."));
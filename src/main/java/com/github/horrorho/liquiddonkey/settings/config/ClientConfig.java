@@ -25,6 +25,7 @@ package com.github.horrorho.liquiddonkey.settings.config;
  
 import com.github.horrorho.liquiddonkey.util.Props;
 import com.github.horrorho.liquiddonkey.settings.Property; 
+import java.util.Objects;
 import java.util.Properties;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
@@ -41,25 +42,62 @@ public final class ClientConfig {
     public static ClientConfig from(Properties properties) { 
         Props<Property> props = Props.from(properties);
         
-        return from(props.getProperty(Property.CLIENT_LIST_LIMIT, props::asInteger));
+        return from(
+                props.getProperty(Property.CLIENT_LIST_LIMIT, props::asInteger),
+                props.getProperty(Property.CLIENT_CACHE, props::asBoolean),
+                props.getProperty(Property.CLIENT_CACHE_DIRECTORY),
+                props.getProperty(Property.CLIENT_CACHE_SIZE_MAX_MB, props::asLong) * 1024 * 1024);
     }
 
-    public static ClientConfig from(int listLimit) {
-        return new ClientConfig(listLimit);
+    public static ClientConfig from(int listLimit, boolean toCache, String cacheDirectory, long cacheSizeMaxBytes) {
+        return new ClientConfig(listLimit, toCache, cacheDirectory, cacheSizeMaxBytes);
     }
 
     private final int listLimit;
+    private final boolean toCache;
+    private final String cacheDirectory;
+    private final long cacheSizeMaxBytes;
 
-    ClientConfig(int listLimit) {
+    ClientConfig(int listLimit, boolean toCache, String cacheDirectory, long cacheSizeMaxBytes) {
         this.listLimit = listLimit;
+        this.toCache = toCache;
+        this.cacheDirectory = Objects.requireNonNull(cacheDirectory);
+        this.cacheSizeMaxBytes = cacheSizeMaxBytes;
     }
 
     public int listLimit() {
         return listLimit;
     }
 
+    /**
+     * Returns whether committed snapshot listings are cached.
+     *
+     * @return true if listings are cached
+     */
+    public boolean toCache() {
+        return toCache;
+    }
+
+    /**
+     * Returns the cache directory, relative to the output directory.
+     *
+     * @return the cache directory, not null
+     */
+    public String cacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public long cacheSizeMaxBytes() {
+        return cacheSizeMaxBytes;
+    }
+
     @Override
     public String toString() {
-        return "ClientConfig{" + "listLimit=" + listLimit + '}';
+        return "ClientConfig{"
+                + "listLimit=" + listLimit
+                + ", toCache=" + toCache
+                + ", cacheDirectory=" + cacheDirectory
+                + ", cacheSizeMaxBytes=" + cacheSizeMaxBytes
+                + '}';
     }
 }
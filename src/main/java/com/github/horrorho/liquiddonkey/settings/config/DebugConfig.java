@@ -47,16 +47,26 @@ public class DebugConfig {
                 props.getProperty(Property.DEBUG_PRINT_STACK_TRACE, props::asBoolean),
                 props.getProperty(Property.DEBUG_MONITOR_MEMORY, props::asBoolean) || logger.isDebugEnabled(),
                 props.getProperty(Property.DEBUG_REPORT, props::asBoolean),
-                props.getProperty(Property.DEBUG_MEMORY_MONITOR_INTERVAL_MS, props::asLong));
+                props.getProperty(Property.DEBUG_MEMORY_MONITOR_INTERVAL_MS, props::asLong),
+                props.getProperty(Property.DEBUG_METRICS_JMX, props::asBoolean),
+                props.getProperty(Property.DEBUG_METRICS_PORT, props::asInteger));
     }
 
     static DebugConfig from(
             boolean toPrintStackTrace,
             boolean toMonitorMemory,
             boolean toReport,
-            long memoryMonitorIntervalMs) {
+            long memoryMonitorIntervalMs,
+            boolean toRegisterMetricsJmx,
+            int metricsPort) {
 
-        return new DebugConfig(toPrintStackTrace, toMonitorMemory, toReport, memoryMonitorIntervalMs);
+        return new DebugConfig(
+                toPrintStackTrace,
+                toMonitorMemory,
+                toReport,
+                memoryMonitorIntervalMs,
+                toRegisterMetricsJmx,
+                metricsPort);
     }
 
     private static final Logger logger = LoggerFactory.getLogger(DebugConfig.class);
@@ -65,17 +75,23 @@ public class DebugConfig {
     private final boolean toMonitorMemory;
     private final boolean toReport;
     private final long memoryMonitorIntervalMs;
+    private final boolean toRegisterMetricsJmx;
+    private final int metricsPort;
 
     private DebugConfig(
             boolean toPrintStackTrace,
             boolean toMonitorMemory,
             boolean toReport,
-            long memoryMonitorIntervalMs) {
+            long memoryMonitorIntervalMs,
+            boolean toRegisterMetricsJmx,
+            int metricsPort) {
 
         this.toPrintStackTrace = toPrintStackTrace;
         this.toMonitorMemory = toMonitorMemory;
         this.toReport = toReport;
         this.memoryMonitorIntervalMs = memoryMonitorIntervalMs;
+        this.toRegisterMetricsJmx = toRegisterMetricsJmx;
+        this.metricsPort = metricsPort;
     }
 
     public boolean toPrintStackTrace() {
@@ -94,6 +110,19 @@ public class DebugConfig {
         return memoryMonitorIntervalMs;
     }
 
+    public boolean toRegisterMetricsJmx() {
+        return toRegisterMetricsJmx;
+    }
+
+    /**
+     * Returns the local Prometheus metrics port.
+     *
+     * @return the port, or 0 if disabled
+     */
+    public int metricsPort() {
+        return metricsPort;
+    }
+
     @Override
     public String toString() {
         return "DebugConfig{"
@@ -101,6 +130,8 @@ public class DebugConfig {
                 + ", toMonitorMemory=" + toMonitorMemory
                 + ", toReportCsv=" + toReport
                 + ", memoryMonitorInterval=" + memoryMonitorIntervalMs
+                + ", toRegisterMetricsJmx=" + toRegisterMetricsJmx
+                + ", metricsPort=" + metricsPort
                 + '}';
     }
 }
@@ -28,9 +28,14 @@ import com.github.horrorho.liquiddonkey.settings.Property;
 import java.util.Properties;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * EngineConfig configuration.
+ * <p>
+ * The asynchronous engine does not support the stall watchdog, per-host circuit breakers or hedging. They are ignored,
+ * with a warning, if configured along with it.
  *
  * @author Ahseya
  */
@@ -54,7 +59,24 @@ public final class EngineConfig {
                 props.getProperty(Property.ENGINE_FORCE_OVERWRITE, props::asBoolean),
                 props.getProperty(Property.ENGINE_SET_LAST_MODIFIED_TIMESTAMP, props::asBoolean),
                 props.getProperty(Property.ENGINE_DUMP_TOKEN, props::asBoolean),
-                props.getProperty(Property.ENGINE_BATCH_SIZE_MINIMUM_BYTES, props::asLong)
+                props.getProperty(Property.ENGINE_BATCH_SIZE_MINIMUM_BYTES, props::asLong),
+                props.getProperty(Property.ENGINE_VERIFY_LOCAL, props::asBoolean),
+                props.getProperty(Property.ENGINE_ASYNC, props::asBoolean),
+                props.getProperty(Property.ENGINE_VIRTUAL_THREADS, props::asBoolean),
+                props.getProperty(Property.ENGINE_SCHEDULE_CONTAINERS, props::asBoolean),
+                props.getProperty(Property.ENGINE_RETRY_BACKOFF_BASE_MS, props::asLong),
+                props.getProperty(Property.ENGINE_RETRY_BACKOFF_MAX_MS, props::asLong),
+                props.getProperty(Property.ENGINE_HOST_RETRY_BUDGET, props::asInteger),
+                props.getProperty(Property.ENGINE_HEDGE, props::asBoolean),
+                props.getProperty(Property.ENGINE_HEDGE_PERCENTILE, props::asInteger),
+                props.getProperty(Property.ENGINE_HEDGE_DELAY_MINIMUM_MS, props::asLong),
+                props.getProperty(Property.ENGINE_WATCHDOG_MINIMUM_BYTES_PER_SECOND, props::asLong),
+                props.getProperty(Property.ENGINE_WATCHDOG_WINDOW_MS, props::asLong),
+                props.getProperty(Property.ENGINE_REAUTHORIZE_MAX, props::asInteger),
+                props.getProperty(Property.ENGINE_RETRY_ROUNDS, props::asInteger),
+                props.getProperty(Property.ENGINE_CIRCUIT_FAILURE_THRESHOLD, props::asInteger),
+                props.getProperty(Property.ENGINE_CIRCUIT_OPEN_MS, props::asLong),
+                props.getProperty(Property.ENGINE_PREWARM_CONNECTIONS, props::asInteger)
         );
     }
 
@@ -68,7 +90,33 @@ public final class EngineConfig {
             boolean toForceOverwrite,
             boolean toSetLastModifiedTimestamp,
             boolean toDumpToken,
-            long batchSizeMinimumBytes) {
+            long batchSizeMinimumBytes,
+            boolean toVerifyLocal,
+            boolean toAsync,
+            boolean toUseVirtualThreads,
+            boolean toScheduleContainers,
+            long retryBackoffBaseMs,
+            long retryBackoffMaxMs,
+            int hostRetryBudget,
+            boolean toHedge,
+            int hedgePercentile,
+            long hedgeDelayMinimumMs,
+            long watchdogMinimumBytesPerSecond,
+            long watchdogWindowMs,
+            int reauthorizeMax,
+            int retryRounds,
+            int circuitFailureThreshold,
+            long circuitOpenMs,
+            int prewarmConnections) {
+
+        if (toAsync) {
+            boolean isWatched = watchdogMinimumBytesPerSecond > 0 && watchdogWindowMs > 0;
+            boolean isCircuitBroken = circuitFailureThreshold > 0;
+            if (isWatched || isCircuitBroken || toHedge) {
+                logger.warn("-- from() > unsupported by the async engine and ignored, watchdog: {} circuit breakers: {}"
+                        + " hedging: {}", isWatched, isCircuitBroken, toHedge);
+            }
+        }
 
         return new EngineConfig(retryCount,
                 retryDelayMs,
@@ -79,9 +127,28 @@ public final class EngineConfig {
                 toForceOverwrite,
                 toSetLastModifiedTimestamp,
                 toDumpToken,
-                batchSizeMinimumBytes);
+                batchSizeMinimumBytes,
+                toVerifyLocal,
+                toAsync,
+                toUseVirtualThreads,
+                toScheduleContainers,
+                retryBackoffBaseMs,
+                retryBackoffMaxMs,
+                hostRetryBudget,
+                toHedge,
+                hedgePercentile,
+                hedgeDelayMinimumMs,
+                watchdogMinimumBytesPerSecond,
+                watchdogWindowMs,
+                reauthorizeMax,
+                retryRounds,
+                circuitFailureThreshold,
+                circuitOpenMs,
+                prewarmConnections);
     }
 
+    private static final Logger logger = LoggerFactory.getLogger(EngineConfig.class);
+
     private final int retryCount;
     private final int retryDelayMs;
     private final int threadStaggerDelayMs;
@@ -92,6 +159,23 @@ public final class EngineConfig {
     private final boolean toSetLastModifiedTimestamp;
     private final boolean toDumpToken;
     private final long batchSizeMinimumBytes;
+    private final boolean toVerifyLocal;
+    private final boolean toAsync;
+    private final boolean toUseVirtualThreads;
+    private final boolean toScheduleContainers;
+    private final long retryBackoffBaseMs;
+    private final long retryBackoffMaxMs;
+    private final int hostRetryBudget;
+    private final boolean toHedge;
+    private final int hedgePercentile;
+    private final long hedgeDelayMinimumMs;
+    private final long watchdogMinimumBytesPerSecond;
+    private final long watchdogWindowMs;
+    private final int reauthorizeMax;
+    private final int retryRounds;
+    private final int circuitFailureThreshold;
+    private final long circuitOpenMs;
+    private final int prewarmConnections;
 
     EngineConfig(
             int retryCount,
@@ -103,7 +187,24 @@ public final class EngineConfig {
             boolean toForceOverwrite,
             boolean toSetLastModifiedTimestamp,
             boolean toDumpToken,
-            long batchSizeMinimumBytes) {
+            long batchSizeMinimumBytes,
+            boolean toVerifyLocal,
+            boolean toAsync,
+            boolean toUseVirtualThreads,
+            boolean toScheduleContainers,
+            long retryBackoffBaseMs,
+            long retryBackoffMaxMs,
+            int hostRetryBudget,
+            boolean toHedge,
+            int hedgePercentile,
+            long hedgeDelayMinimumMs,
+            long watchdogMinimumBytesPerSecond,
+            long watchdogWindowMs,
+            int reauthorizeMax,
+            int retryRounds,
+            int circuitFailureThreshold,
+            long circuitOpenMs,
+            int prewarmConnections) {
 
         this.retryCount = retryCount;
         this.retryDelayMs = retryDelayMs;
@@ -115,6 +216,23 @@ public final class EngineConfig {
         this.toSetLastModifiedTimestamp = toSetLastModifiedTimestamp;
         this.toDumpToken = toDumpToken;
         this.batchSizeMinimumBytes = batchSizeMinimumBytes;
+        this.toVerifyLocal = toVerifyLocal;
+        this.toAsync = toAsync;
+        this.toUseVirtualThreads = toUseVirtualThreads;
+        this.toScheduleContainers = toScheduleContainers;
+        this.retryBackoffBaseMs = retryBackoffBaseMs;
+        this.retryBackoffMaxMs = retryBackoffMaxMs;
+        this.hostRetryBudget = hostRetryBudget;
+        this.toHedge = toHedge;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeDelayMinimumMs = hedgeDelayMinimumMs;
+        this.watchdogMinimumBytesPerSecond = watchdogMinimumBytesPerSecond;
+        this.watchdogWindowMs = watchdogWindowMs;
+        this.reauthorizeMax = reauthorizeMax;
+        this.retryRounds = retryRounds;
+        this.circuitFailureThreshold = circuitFailureThreshold;
+        this.circuitOpenMs = circuitOpenMs;
+        this.prewarmConnections = prewarmConnections;
     }
 
     public boolean isAggressive() {
@@ -157,6 +275,74 @@ public final class EngineConfig {
         return toSetLastModifiedTimestamp;
     }
 
+    public boolean toVerifyLocal() {
+        return toVerifyLocal;
+    }
+
+    public boolean toAsync() {
+        return toAsync;
+    }
+
+    public boolean toUseVirtualThreads() {
+        return toUseVirtualThreads;
+    }
+
+    public boolean toScheduleContainers() {
+        return toScheduleContainers;
+    }
+
+    public long retryBackoffBaseMs() {
+        return retryBackoffBaseMs;
+    }
+
+    public long retryBackoffMaxMs() {
+        return retryBackoffMaxMs;
+    }
+
+    public int hostRetryBudget() {
+        return hostRetryBudget;
+    }
+
+    public boolean toHedge() {
+        return toHedge;
+    }
+
+    public int hedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public long hedgeDelayMinimumMs() {
+        return hedgeDelayMinimumMs;
+    }
+
+    public long watchdogMinimumBytesPerSecond() {
+        return watchdogMinimumBytesPerSecond;
+    }
+
+    public long watchdogWindowMs() {
+        return watchdogWindowMs;
+    }
+
+    public int reauthorizeMax() {
+        return reauthorizeMax;
+    }
+
+    public int retryRounds() {
+        return retryRounds;
+    }
+
+    public int circuitFailureThreshold() {
+        return circuitFailureThreshold;
+    }
+
+    public long circuitOpenMs() {
+        return circuitOpenMs;
+    }
+
+    public int prewarmConnections() {
+        return prewarmConnections;
+    }
+
     @Override
     public String toString() {
         return "EngineConfig{"
@@ -170,6 +356,23 @@ public final class EngineConfig {
                 + ", toSetLastModifiedTimestamp=" + toSetLastModifiedTimestamp
                 + ", toDumpToken=" + toDumpToken
                 + ", batchSizeMinimumBytes=" + batchSizeMinimumBytes
+                + ", toVerifyLocal=" + toVerifyLocal
+                + ", toAsync=" + toAsync
+                + ", toUseVirtualThreads=" + toUseVirtualThreads
+                + ", toScheduleContainers=" + toScheduleContainers
+                + ", retryBackoffBaseMs=" + retryBackoffBaseMs
+                + ", retryBackoffMaxMs=" + retryBackoffMaxMs
+                + ", hostRetryBudget=" + hostRetryBudget
+                + ", toHedge=" + toHedge
+                + ", hedgePercentile=" + hedgePercentile
+                + ", hedgeDelayMinimumMs=" + hedgeDelayMinimumMs
+                + ", watchdogMinimumBytesPerSecond=" + watchdogMinimumBytesPerSecond
+                + ", watchdogWindowMs=" + watchdogWindowMs
+                + ", reauthorizeMax=" + reauthorizeMax
+                + ", retryRounds=" + retryRounds
+                + ", circuitFailureThreshold=" + circuitFailureThreshold
+                + ", circuitOpenMs=" + circuitOpenMs
+                + ", prewarmConnections=" + prewarmConnections
                 + '}';
     }
 }
@@ -41,6 +41,11 @@ import net.jcip.annotations.ThreadSafe;
 @ThreadSafe
 public final class FileConfig {
 
+    /**
+     * Maximum flat directory shard depth.
+     */
+    public static final int SHARD_DEPTH_MAX = 8;
+
     public static FileConfig from(Properties properties) {
         Props<Property> props = Props.from(properties);
 
@@ -50,7 +55,10 @@ public final class FileConfig {
                 props.getProperty(Property.FILE_FLAT, props::asBoolean),
                 props.getProperty(Property.ENGINE_SET_LAST_MODIFIED_TIMESTAMP, props::asBoolean),
                 props.getProperty(Property.FILE_COMBINED_DIRECTORY),
-                props.getProperty(Property.FILE_REPORTS_DIRECTORY));
+                props.getProperty(Property.FILE_REPORTS_DIRECTORY),
+                props.getProperty(Property.FILE_SHARD_DEPTH, props::asInteger),
+                props.getProperty(Property.FILE_MANIFEST, props::asBoolean),
+                props.getProperty(Property.FILE_MANIFEST_RECONCILE, props::asBoolean));
     }
 
     public static FileConfig from(
@@ -59,14 +67,24 @@ public final class FileConfig {
             boolean isFlat,
             boolean setLastModifiedTimestamp,
             String combinedDirectory,
-            String reportsDirectory) {
+            String reportsDirectory,
+            int shardDepth,
+            boolean toUseManifest,
+            boolean toReconcileManifest) {
+
+        if (shardDepth < 0 || shardDepth > SHARD_DEPTH_MAX) {
+            throw new IllegalArgumentException("Bad shard depth: " + shardDepth + ", expected 0 to " + SHARD_DEPTH_MAX);
+        }
 
         return new FileConfig(base,
                 isCombined,
                 isFlat,
                 setLastModifiedTimestamp,
                 combinedDirectory,
-                reportsDirectory);
+                reportsDirectory,
+                shardDepth,
+                toUseManifest,
+                toReconcileManifest);
     }
 
     private final Path base;
@@ -75,6 +93,9 @@ public final class FileConfig {
     private final boolean setLastModifiedTimestamp;
     private final String combinedDirectory;
     private final String reportsDirectory;
+    private final int shardDepth;
+    private final boolean toUseManifest;
+    private final boolean toReconcileManifest;
 
     FileConfig(
             Path base,
@@ -82,7 +103,10 @@ public final class FileConfig {
             boolean isFlat,
             boolean setLastModifiedTimestamp,
             String combinedDirectory,
-            String reportsDirectory) {
+            String reportsDirectory,
+            int shardDepth,
+            boolean toUseManifest,
+            boolean toReconcileManifest) {
 
         this.base = Objects.requireNonNull(base);
         this.isCombined = isCombined;
@@ -90,6 +114,9 @@ public final class FileConfig {
         this.setLastModifiedTimestamp = setLastModifiedTimestamp;
         this.combinedDirectory = Objects.requireNonNull(combinedDirectory);
         this.reportsDirectory = Objects.requireNonNull(reportsDirectory);
+        this.shardDepth = shardDepth;
+        this.toUseManifest = toUseManifest;
+        this.toReconcileManifest = toReconcileManifest;
     }
 
     public Path base() {
@@ -116,6 +143,18 @@ public final class FileConfig {
         return reportsDirectory;
     }
 
+    public int shardDepth() {
+        return shardDepth;
+    }
+
+    public boolean toUseManifest() {
+        return toUseManifest;
+    }
+
+    public boolean toReconcileManifest() {
+        return toReconcileManifest;
+    }
+
     @Override
     public String toString() {
         return "FileConfig{"
@@ -125,6 +164,9 @@ public final class FileConfig {
                 + ", setLastModifiedTimestamp=" + setLastModifiedTimestamp
                 + ", combinedDirectory=" + combinedDirectory
                 + ", reportsDirectory=" + reportsDirectory
+                + ", shardDepth=" + shardDepth
+                + ", toUseManifest=" + toUseManifest
+                + ", toReconcileManifest=" + toReconcileManifest
                 + '}';
     }
 }
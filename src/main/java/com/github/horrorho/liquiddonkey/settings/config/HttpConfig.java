@@ -58,7 +58,12 @@ public final class HttpConfig {
                         : props.getProperty(Property.HTTP_SOCKET_TIMEOUT_RETRY_COUNT, props::asInteger),
                 props.getProperty(Property.HTTP_TIMEOUT_MS, props::asInteger),
                 props.getProperty(Property.HTTP_VALID_AFTER_INACTIVITY_MS, props::asInteger),
-                props.getProperty(Property.HTTP_DEFAULT_USER_AGENT));
+                props.getProperty(Property.HTTP_DEFAULT_USER_AGENT),
+                props.getProperty(Property.HTTP_BYTES_PER_SECOND, props::asLong),
+                props.getProperty(Property.HTTP_REQUESTS_PER_SECOND, props::asLong),
+                props.getProperty(Property.HTTP_GLOBAL_BYTES_PER_SECOND, props::asLong),
+                props.getProperty(Property.HTTP_GLOBAL_REQUESTS_PER_SECOND, props::asLong),
+                props.getProperty(Property.HTTP_TRANSPORT));
     }
 
     public static HttpConfig from(
@@ -70,7 +75,12 @@ public final class HttpConfig {
             int socketTimeoutRetryCount,
             int timeoutMs,
             int validateAfterInactivityMs,
-            String userAgent) {
+            String userAgent,
+            long bytesPerSecond,
+            long requestsPerSecond,
+            long globalBytesPerSecond,
+            long globalRequestsPerSecond,
+            String transport) {
 
         return new HttpConfig(
                 isPersistent,
@@ -81,7 +91,12 @@ public final class HttpConfig {
                 socketTimeoutRetryCount,
                 timeoutMs,
                 validateAfterInactivityMs,
-                userAgent);
+                userAgent,
+                bytesPerSecond,
+                requestsPerSecond,
+                globalBytesPerSecond,
+                globalRequestsPerSecond,
+                transport);
     }
 
     private final boolean isPersistent;
@@ -93,6 +108,11 @@ public final class HttpConfig {
     private final int timeoutMs;
     private final int validateAfterInactivityMs;
     private final String userAgent;
+    private final long bytesPerSecond;
+    private final long requestsPerSecond;
+    private final long globalBytesPerSecond;
+    private final long globalRequestsPerSecond;
+    private final String transport;
 
     HttpConfig(
             boolean isPersistent,
@@ -103,7 +123,12 @@ public final class HttpConfig {
             int socketTimeoutRetryCount,
             int timeoutMs,
             int validateAfterInactivityMs,
-            String userAgent) {
+            String userAgent,
+            long bytesPerSecond,
+            long requestsPerSecond,
+            long globalBytesPerSecond,
+            long globalRequestsPerSecond,
+            String transport) {
 
         this.isPersistent = isPersistent;
         this.isRelaxedSSL = isRelaxedSSL;
@@ -114,6 +139,11 @@ public final class HttpConfig {
         this.timeoutMs = timeoutMs;
         this.validateAfterInactivityMs = validateAfterInactivityMs;
         this.userAgent = userAgent;
+        this.bytesPerSecond = bytesPerSecond;
+        this.requestsPerSecond = requestsPerSecond;
+        this.globalBytesPerSecond = globalBytesPerSecond;
+        this.globalRequestsPerSecond = globalRequestsPerSecond;
+        this.transport = transport;
     }
 
     public boolean isPersistent() {
@@ -152,6 +182,26 @@ public final class HttpConfig {
         return userAgent;
     }
 
+    public long bytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long requestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public long globalBytesPerSecond() {
+        return globalBytesPerSecond;
+    }
+
+    public long globalRequestsPerSecond() {
+        return globalRequestsPerSecond;
+    }
+
+    public String transport() {
+        return transport;
+    }
+
     @Override
     public String toString() {
         return "HttpConfig{"
@@ -164,6 +214,11 @@ public final class HttpConfig {
                 + ", timeoutMs=" + timeoutMs
                 + ", validateAfterInactivityMs=" + validateAfterInactivityMs
                 + ", userAgent=" + userAgent
+                + ", bytesPerSecond=" + bytesPerSecond
+                + ", requestsPerSecond=" + requestsPerSecond
+                + ", globalBytesPerSecond=" + globalBytesPerSecond
+                + ", globalRequestsPerSecond=" + globalRequestsPerSecond
+                + ", transport=" + transport
                 + '}';
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * ByteArrayPool.
+ * <p>
+ * Bounded pool of byte arrays bucketed by power of two length. Leased arrays are at least the requested length.
+ * Released arrays are retained until the retained total reaches the pool limit, beyond which they are left to the
+ * garbage collector. Requests larger than the largest bucket are allocated exactly and never retained.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class ByteArrayPool {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param retainedMaxBytes the maximum total length of retained arrays
+     * @return a new instance, not null
+     */
+    public static ByteArrayPool from(long retainedMaxBytes) {
+        return new ByteArrayPool(retainedMaxBytes);
+    }
+
+    private static final int BUCKET_MIN_SHIFT = 12;  // 4 KiB
+    private static final int BUCKET_MAX_SHIFT = 26;  // 64 MiB
+
+    private final List<ConcurrentLinkedQueue<byte[]>> buckets;
+    private final AtomicLong retained;
+    private final long retainedMaxBytes;
+
+    ByteArrayPool(long retainedMaxBytes) {
+        this.buckets = new ArrayList<>(BUCKET_MAX_SHIFT - BUCKET_MIN_SHIFT + 1);
+        for (int i = BUCKET_MIN_SHIFT; i <= BUCKET_MAX_SHIFT; i++) {
+            buckets.add(new ConcurrentLinkedQueue<>());
+        }
+        this.retained = new AtomicLong(0);
+        this.retainedMaxBytes = retainedMaxBytes;
+    }
+
+    /**
+     * Leases an array of at least the specified length.
+     *
+     * @param length the minimum length
+     * @return the array, not null
+     * @throws IllegalArgumentException if the length is negative
+     */
+    public byte[] lease(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length: " + length);
+        }
+
+        int bucket = bucket(length);
+        if (bucket >= buckets.size()) {
+            return new byte[length];
+        }
+
+        byte[] array = buckets.get(bucket).poll();
+        if (array == null) {
+            return new byte[1 << (bucket + BUCKET_MIN_SHIFT)];
+        }
+
+        retained.addAndGet(-array.length);
+        return array;
+    }
+
+    /**
+     * Returns the specified array to the pool. The caller must not use the array after release.
+     *
+     * @param array not null
+     */
+    public void release(byte[] array) {
+        int length = array.length;
+        if (Integer.bitCount(length) != 1 || length < 1 << BUCKET_MIN_SHIFT || length > 1 << BUCKET_MAX_SHIFT) {
+            return;
+        }
+
+        if (retained.addAndGet(length) > retainedMaxBytes) {
+            retained.addAndGet(-length);
+            return;
+        }
+
+        buckets.get(bucket(length)).offer(array);
+    }
+
+    /**
+     * Leases an array of at least the specified length, wrapped as a {@link Lease}.
+     *
+     * @param length the minimum length
+     * @return the lease, not null
+     * @throws IllegalArgumentException if the length is negative
+     */
+    public Lease leaseOf(int length) {
+        return new Lease(this, lease(length), 0);
+    }
+
+    /**
+     * Returns the total length of the retained arrays.
+     *
+     * @return the total length of the retained arrays in bytes
+     */
+    public long retained() {
+        return retained.get();
+    }
+
+    static int bucket(int length) {
+        return length <= 1 << BUCKET_MIN_SHIFT
+                ? 0
+                : 32 - Integer.numberOfLeadingZeros(length - 1) - BUCKET_MIN_SHIFT;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteArrayPool{" + "retained=" + retained + ", retainedMaxBytes=" + retainedMaxBytes + '}';
+    }
+
+    /**
+     * Leased array and the length of its valid content. Closing the lease releases the array back to the pool.
+     */
+    @NotThreadSafe
+    public static final class Lease implements AutoCloseable {
+
+        private final ByteArrayPool pool;
+        private final AtomicBoolean isReleased = new AtomicBoolean(false);
+        private byte[] array;
+        private int length;
+
+        Lease(ByteArrayPool pool, byte[] array, int length) {
+            this.pool = Objects.requireNonNull(pool);
+            this.array = Objects.requireNonNull(array);
+            this.length = length;
+        }
+
+        public byte[] array() {
+            return array;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public void length(int length) {
+            if (length < 0 || length > array.length) {
+                throw new IllegalArgumentException("Bad length: " + length);
+            }
+            this.length = length;
+        }
+
+        /**
+         * Ensures the array has at least the specified capacity, replacing it with a larger leased array and copying
+         * the valid content if required.
+         *
+         * @param capacity the minimum capacity
+         * @return the array, not null
+         */
+        public byte[] ensureCapacity(int capacity) {
+            if (capacity > array.length) {
+                byte[] larger = pool.lease(capacity);
+                System.arraycopy(array, 0, larger, 0, length);
+                pool.release(array);
+                array = larger;
+            }
+            return array;
+        }
+
+        @Override
+        public void close() {
+            if (!isReleased.getAndSet(true)) {
+                pool.release(array);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Lease{" + "capacity=" + array.length + ", length=" + length + '}';
+        }
+    }
+}
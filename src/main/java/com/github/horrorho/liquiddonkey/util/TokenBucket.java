@@ -0,0 +1,164 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * TokenBucket.
+ * <p>
+ * Rate limiter. Tokens accrue at the configured rate up to the burst capacity. Acquisitions are never refused, tokens
+ * are taken immediately and may run into debt, the caller then sleeping until the debt would be repaid. Subsequent
+ * callers queue behind the debt. A single short synchronized section per acquisition keeps overhead low. The rate may
+ * be adjusted at any time.
+ *
+ * @author Ahseya
+ */
+@ThreadSafe
+public final class TokenBucket {
+
+    /**
+     * Returns a new instance.
+     *
+     * @param ratePerSecond the rate in tokens per second, or 0 if unlimited
+     * @param burst the burst capacity in tokens
+     * @return a new instance, not null
+     */
+    public static TokenBucket from(long ratePerSecond, long burst) {
+        return new TokenBucket(ratePerSecond, burst, System.nanoTime());
+    }
+
+    /**
+     * Returns a new unlimited instance.
+     *
+     * @return a new instance, not null
+     */
+    public static TokenBucket unlimited() {
+        return from(0, 0);
+    }
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @GuardedBy("this")
+    private long ratePerSecond;
+    @GuardedBy("this")
+    private long burst;
+    @GuardedBy("this")
+    private double tokens;
+    @GuardedBy("this")
+    private long lastNanos;
+
+    TokenBucket(long ratePerSecond, long burst, long nanos) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastNanos = nanos;
+    }
+
+    /**
+     * Acquires the specified tokens, sleeping if necessary.
+     *
+     * @param permits the tokens to acquire
+     * @throws InterruptedException
+     */
+    public void acquire(long permits) throws InterruptedException {
+        acquire(permits, null);
+    }
+
+    /**
+     * Acquires the specified tokens, sleeping if necessary. The wait, if any, is passed to the specified consumer before
+     * sleeping.
+     *
+     * @param permits the tokens to acquire
+     * @param waits the wait consumer in nanoseconds, may be null
+     * @throws InterruptedException
+     */
+    public void acquire(long permits, LongConsumer waits) throws InterruptedException {
+        long waitNanos = reserve(permits, System.nanoTime());
+        if (waitNanos > 0) {
+            if (waits != null) {
+                waits.accept(waitNanos);
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes the specified tokens and returns the time until they are repaid.
+     *
+     * @param permits the tokens to take
+     * @param nanos the current time in nanoseconds
+     * @return the wait in nanoseconds, or 0 if none
+     */
+    synchronized long reserve(long permits, long nanos) {
+        if (ratePerSecond <= 0) {
+            return 0;
+        }
+
+        refill(nanos);
+        tokens -= permits;
+        return tokens >= 0 ? 0 : (long) (-tokens * NANOS_PER_SECOND / ratePerSecond);
+    }
+
+    @GuardedBy("this")
+    void refill(long nanos) {
+        tokens = Math.min(burst, tokens + (nanos - lastNanos) * ratePerSecond / NANOS_PER_SECOND);
+        lastNanos = nanos;
+    }
+
+    /**
+     * Sets the rate and burst capacity. Outstanding debt is retained.
+     *
+     * @param ratePerSecond the rate in tokens per second, or 0 if unlimited
+     * @param burst the burst capacity in tokens
+     */
+    public synchronized void set(long ratePerSecond, long burst) {
+        long nanos = System.nanoTime();
+        if (this.ratePerSecond > 0) {
+            refill(nanos);
+        } else {
+            tokens = burst;
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.tokens = Math.min(tokens, burst);
+        this.lastNanos = nanos;
+    }
+
+    public synchronized long ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    public synchronized long burst() {
+        return burst;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenBucket{" + "ratePerSecond=" + ratePerSecond + ", burst=" + burst + ", tokens=" + tokens + '}';
+    }
+}
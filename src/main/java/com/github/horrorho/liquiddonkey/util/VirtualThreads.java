@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.util;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * VirtualThreads.
+ * <p>
+ * Virtual thread executors, where supported. The {@link VirtualThreadsProvider} is compiled only when building on
+ * Java 21+ and fails to load on earlier runtimes, in which case virtual threads are unsupported.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final VirtualThreadsProvider provider = provider();
+
+    static VirtualThreadsProvider provider() {
+        Iterator<VirtualThreadsProvider> iterator = ServiceLoader.load(VirtualThreadsProvider.class).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                VirtualThreadsProvider provider = iterator.next();
+                logger.debug("-- provider() > virtual threads supported");
+                return provider;
+
+            } catch (ServiceConfigurationError | LinkageError ex) {
+                logger.debug("-- provider() > unavailable provider: {}", ex.toString());
+            }
+        }
+        logger.debug("-- provider() > virtual threads unsupported");
+        return null;
+    }
+
+    /**
+     * Returns whether virtual threads are supported.
+     *
+     * @return true if virtual threads are supported
+     */
+    public static boolean isSupported() {
+        return provider != null;
+    }
+
+    /**
+     * Returns a new executor that starts a virtual thread per task.
+     *
+     * @return a new executor, not null
+     * @throws UnsupportedOperationException if virtual threads are not supported
+     */
+    public static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads unsupported");
+        }
+        return provider.newExecutor();
+    }
+
+    VirtualThreads() {
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * WorkQueue. Lock-free work source.
+ * <p>
+ * Initial items are held in an array, in order, and claimed with an atomic index. Items added while running are
+ * held in a lock-free concurrent deque and take precedence over the initial items, with re-queued items placed at the
+ * head. Workers never block. Once drained, the queue is closed and supplies no further items.
+ *
+ * @author Ahseya
+ * @param <T> item type
+ */
+@ThreadSafe
+public final class WorkQueue<T> {
+
+    /**
+     * Creates and returns a new instance.
+     *
+     * @param <T> item type
+     * @param items the initial items, in order, not null
+     * @return new instance, not null
+     */
+    public static <T> WorkQueue<T> from(Collection<? extends T> items) {
+        return new WorkQueue<>(new AtomicReferenceArray<>(new ArrayList<T>(items).toArray()));
+    }
+
+    private final AtomicReferenceArray<Object> items;
+    private final AtomicInteger index;
+    private final ConcurrentLinkedDeque<T> added;
+    private volatile boolean isClosed;
+
+    WorkQueue(AtomicReferenceArray<Object> items) {
+        this.items = Objects.requireNonNull(items);
+        this.index = new AtomicInteger(0);
+        this.added = new ConcurrentLinkedDeque<>();
+        this.isClosed = false;
+    }
+
+    /**
+     * Returns the next item or null if no items remain or the queue is closed.
+     *
+     * @return next item or null if no items remain or the queue is closed
+     */
+    public T poll() {
+        if (isClosed) {
+            return null;
+        }
+
+        T item = added.pollFirst();
+        if (item != null) {
+            return item;
+        }
+
+        while (true) {
+            int i = index.get();
+            if (i >= items.length()) {
+                return null;
+            }
+
+            if (index.compareAndSet(i, i + 1)) {
+                @SuppressWarnings("unchecked")
+                T claimed = (T) items.getAndSet(i, null);
+                return claimed;
+            }
+        }
+    }
+
+    /**
+     * Re-queues the specified item, typically for a retry, ahead of all other items.
+     *
+     * @param item not null
+     */
+    public void requeue(T item) {
+        added.offerFirst(Objects.requireNonNull(item));
+    }
+
+    /**
+     * Adds the specified items, ahead of the initial items but behind re-queued items.
+     *
+     * @param items not null
+     */
+    public void addAll(Collection<? extends T> items) {
+        items.forEach(item -> added.offerLast(Objects.requireNonNull(item)));
+    }
+
+    /**
+     * Closes the queue and returns the items that remained unclaimed.
+     *
+     * @return the unclaimed items, not null
+     */
+    public List<T> drain() {
+        isClosed = true;
+
+        List<T> drained = new ArrayList<>();
+        T item;
+        while ((item = added.pollFirst()) != null) {
+            drained.add(item);
+        }
+
+        int i = index.getAndSet(items.length());
+        for (; i < items.length(); i++) {
+            @SuppressWarnings("unchecked")
+            T claimed = (T) items.getAndSet(i, null);
+            if (claimed != null) {
+                drained.add(claimed);
+            }
+        }
+        return drained;
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    /**
+     * Returns an estimate of the number of unclaimed items.
+     *
+     * @return an estimate of the number of unclaimed items
+     */
+    public int size() {
+        return isClosed
+                ? 0
+                : added.size() + Math.max(0, items.length() - index.get());
+    }
+
+    @Override
+    public String toString() {
+        return "WorkQueue{" + "size=" + size() + ", isClosed=" + isClosed + '}';
+    }
+}
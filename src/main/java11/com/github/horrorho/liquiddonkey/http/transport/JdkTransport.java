@@ -0,0 +1,357 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import com.github.horrorho.liquiddonkey.settings.config.HttpConfig;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JdkTransport.
+ * <p>
+ * JDK HttpClient transport (Java 11+). Negotiates HTTP/2 via ALPN, multiplexing requests to a host over a single
+ * connection, and falls back to HTTP/1.1 where the server does not support it.
+ * <p>
+ * The JDK client's request timeout only bounds the wait for the response headers. Response bodies are additionally
+ * bound by a read deadline, as with the Apache client's socket timeout: a body that receives no data for the timeout is
+ * closed and its read fails with a {@link SocketTimeoutException}. Idle bodies are detected within twice the timeout.
+ * <p>
+ * Relaxed SSL trusts all certificates and skips hostname verification. The JDK client forces HTTPS endpoint
+ * identification on its SSL parameters, which the SSL engine applies on top of a plain
+ * {@link javax.net.ssl.X509TrustManager}. An {@link X509ExtendedTrustManager} is instead trusted to perform endpoint
+ * identification itself, so the relaxed trust manager is an extended one that performs none.
+ *
+ * @author Ahseya
+ */
+@Immutable
+@ThreadSafe
+public final class JdkTransport implements HttpTransport {
+
+    public static final String NAME = "jdk";
+
+    public static JdkTransport from(HttpConfig config) throws IOException {
+        logger.trace("<< from() < config: {}", config);
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(config.timeoutMs()));
+
+        if (config.isRelaxedSSL()) {
+            builder.sslContext(relaxedSSLContext());
+        }
+
+        ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jdk-transport-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        JdkTransport instance = new JdkTransport(
+                builder.build(),
+                Duration.ofMillis(config.timeoutMs()),
+                config.userAgent(),
+                deadlines);
+
+        logger.trace(">> from() > {}", instance);
+        return instance;
+    }
+
+    static SSLContext relaxedSSLContext() throws IOException {
+        // Extended, so that the SSL engine leaves endpoint identification, and so hostname verification, to it.
+        TrustManager trustAll = new X509ExtendedTrustManager() {
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            }
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{trustAll}, new SecureRandom());
+            return sslContext;
+
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Unable to create relaxed SSL context", ex);
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(JdkTransport.class);
+
+    // Headers the JDK client manages itself and rejects if set.
+    private static final Set<String> RESTRICTED
+            = new HashSet<>(Arrays.asList("connection", "content-length", "expect", "host", "upgrade"));
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final String userAgent;
+    private final ScheduledExecutorService deadlines;
+
+    JdkTransport(HttpClient client, Duration timeout, String userAgent, ScheduledExecutorService deadlines) {
+        this.client = Objects.requireNonNull(client);
+        this.timeout = Objects.requireNonNull(timeout);
+        this.userAgent = userAgent;
+        this.deadlines = Objects.requireNonNull(deadlines);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        logger.trace("<< execute() < request: {}", request.getRequestLine());
+
+        CompletableFuture<HttpResponse<InputStream>> future
+                = client.sendAsync(request(request), HttpResponse.BodyHandlers.ofInputStream());
+
+        if (request instanceof HttpExecutionAware) {
+            ((HttpExecutionAware) request).setCancellable(() -> future.cancel(true));
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = future.get();
+
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted: " + request.getRequestLine());
+
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+
+        } catch (CancellationException ex) {
+            throw new InterruptedIOException("Aborted: " + request.getRequestLine());
+        }
+
+        CloseableHttpResponse closeable = TransportResponse.from(
+                response.statusCode(),
+                version(response.version()),
+                response.headers().map(),
+                new DeadlineInputStream(response.body()));
+
+        logger.trace(">> execute() > status: {} version: {}", response.statusCode(), response.version());
+        return closeable;
+    }
+
+    HttpRequest request(HttpUriRequest request) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getURI()).timeout(timeout);
+
+        for (Header header : request.getAllHeaders()) {
+            if (!RESTRICTED.contains(header.getName().toLowerCase(Locale.US))) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+        if (userAgent != null && !request.containsHeader("User-Agent")) {
+            builder.header("User-Agent", userAgent);
+        }
+
+        HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+                ? ((HttpEntityEnclosingRequest) request).getEntity()
+                : null;
+
+        if (entity == null) {
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            if (entity.getContentType() != null && !request.containsHeader("Content-Type")) {
+                builder.header("Content-Type", entity.getContentType().getValue());
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            entity.writeTo(body);
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+        }
+
+        return builder.build();
+    }
+
+    static ProtocolVersion version(HttpClient.Version version) {
+        return version == HttpClient.Version.HTTP_2
+                ? new ProtocolVersion("HTTP", 2, 0)
+                : HttpVersion.HTTP_1_1;
+    }
+
+    @Override
+    public CloseableHttpClient client() {
+        return TransportHttpClient.from(this);
+    }
+
+    @Override
+    public void close() {
+        // The JDK 11 client has no close, its resources are released once unreferenced.
+        deadlines.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "JdkTransport{" + "timeout=" + timeout + ", userAgent=" + userAgent + '}';
+    }
+
+    /**
+     * Response body bound by a read deadline. Closed by the deadline check once no data has been read for the timeout.
+     */
+    final class DeadlineInputStream extends FilterInputStream {
+
+        private final long timeoutNanos;
+        private final ScheduledFuture<?> check;
+        private volatile long lastNanos;
+        private volatile boolean isTimedOut;
+
+        DeadlineInputStream(InputStream in) {
+            super(in);
+            this.timeoutNanos = timeout.toNanos();
+            this.lastNanos = System.nanoTime();
+            this.isTimedOut = false;
+            this.check
+                    = deadlines.scheduleWithFixedDelay(this::check, timeoutNanos, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void check() {
+            if (System.nanoTime() - lastNanos < timeoutNanos) {
+                return;
+            }
+            isTimedOut = true;
+            check.cancel(false);
+            try {
+                in.close();
+            } catch (IOException ex) {
+                logger.debug("-- check() > exception on close: {}", ex);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return completed(super.read());
+            } catch (IOException ex) {
+                throw timedOut(ex);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return completed(super.read(b, off, len));
+            } catch (IOException ex) {
+                throw timedOut(ex);
+            }
+        }
+
+        int completed(int n) throws SocketTimeoutException {
+            if (isTimedOut) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            lastNanos = System.nanoTime();
+            if (n == -1) {
+                check.cancel(false);
+            }
+            return n;
+        }
+
+        IOException timedOut(IOException ex) {
+            if (!isTimedOut || ex instanceof SocketTimeoutException) {
+                return ex;
+            }
+            SocketTimeoutException timedOut = new SocketTimeoutException("Read timed out");
+            timedOut.initCause(ex);
+            return timedOut;
+        }
+
+        @Override
+        public void close() throws IOException {
+            check.cancel(false);
+            super.close();
+        }
+    }
+}
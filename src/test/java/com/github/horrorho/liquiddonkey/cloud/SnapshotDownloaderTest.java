@@ -0,0 +1,204 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud;
+
+import com.github.horrorho.liquiddonkey.cloud.data.Snapshot;
+import com.github.horrorho.liquiddonkey.cloud.data.TestSnapshots;
+import com.github.horrorho.liquiddonkey.cloud.engine.ConcurrentEngine;
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.metrics.DownloadMetrics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * SnapshotDownloaderTest.
+ *
+ * @author Ahseya
+ */
+public class SnapshotDownloaderTest {
+
+    static final ICloud.MBSFile a = TestSnapshots.file("domain", "a");
+    static final ICloud.MBSFile b = TestSnapshots.file("domain", "b");
+    static final ICloud.MBSFile c = TestSnapshots.file("domain", "c");
+
+    static SnapshotDownloader downloader(int retryRounds) {
+        return new SnapshotDownloader(
+                ConcurrentEngine.from(1, 0, 0, 1000), s -> null, null, false, 0, retryRounds, null);
+    }
+
+    static Map<ICloud.MBSFile, Outcome> outcomes(Object... fileOutcomes) {
+        Map<ICloud.MBSFile, Outcome> map = new HashMap<>();
+        for (int i = 0; i < fileOutcomes.length; i += 2) {
+            map.put((ICloud.MBSFile) fileOutcomes[i], (Outcome) fileOutcomes[i + 1]);
+        }
+        return map;
+    }
+
+    static Set<ICloud.MBSFile> files(Snapshot snapshot) {
+        return new HashSet<>(snapshot.files());
+    }
+
+    @Test
+    public void testDefer() {
+        List<Map<ICloud.MBSFile, Outcome>> reported = new ArrayList<>();
+        Map<ICloud.MBSFile, Outcome> failed = new HashMap<>();
+        Consumer<Map<ICloud.MBSFile, Outcome>> deferred = SnapshotDownloader.defer(reported::add, failed);
+
+        deferred.accept(outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD, c, Outcome.FAILED_SERVER));
+        deferred.accept(outcomes(c, Outcome.FAILED_DOWNLOAD));
+
+        assertThat(reported.size(), is(1));
+        assertThat(reported.get(0), is(outcomes(a, Outcome.WRITTEN, c, Outcome.FAILED_SERVER)));
+        assertThat(failed, is(outcomes(b, Outcome.FAILED_DOWNLOAD, c, Outcome.FAILED_DOWNLOAD)));
+    }
+
+    @Test
+    public void testRoundsRetried() throws BadDataException, IOException, InterruptedException {
+        Map<ICloud.MBSFile, Outcome> reported = new HashMap<>();
+        List<Set<ICloud.MBSFile>> rounds = new ArrayList<>();
+        List<Boolean> verify = new ArrayList<>();
+
+        downloader(2).rounds(TestSnapshots.from(a, b, c), reported::putAll, () -> false, (s, outcomes, toVerify) -> {
+            rounds.add(files(s));
+            verify.add(toVerify);
+            outcomes.accept(rounds.size() == 1
+                    ? outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD, c, Outcome.FAILED_DOWNLOAD)
+                    : rounds.size() == 2
+                            ? outcomes(b, Outcome.WRITTEN, c, Outcome.FAILED_DOWNLOAD)
+                            : outcomes(c, Outcome.WRITTEN));
+        });
+
+        assertThat(rounds.size(), is(3));
+        assertThat(rounds.get(1), is(new HashSet<>(Arrays.asList(b, c))));
+        assertThat(rounds.get(2), is(new HashSet<>(Arrays.asList(c))));
+        assertThat(verify, is(Arrays.asList(true, false, false)));
+        assertThat(reported, is(outcomes(a, Outcome.WRITTEN, b, Outcome.WRITTEN, c, Outcome.WRITTEN)));
+    }
+
+    @Test
+    public void testRoundsLastRoundReports() throws BadDataException, IOException, InterruptedException {
+        Map<ICloud.MBSFile, Outcome> reported = new HashMap<>();
+        int[] count = new int[1];
+
+        downloader(1).rounds(TestSnapshots.from(a, b), reported::putAll, () -> false, (s, outcomes, toVerify) -> {
+            count[0]++;
+            Map<ICloud.MBSFile, Outcome> map = new HashMap<>();
+            s.files().forEach(file -> map.put(file, file.equals(a) ? Outcome.WRITTEN : Outcome.FAILED_DOWNLOAD));
+            outcomes.accept(map);
+        });
+
+        assertThat(count[0], is(2));
+        assertThat(reported, is(outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD)));
+    }
+
+    @Test
+    public void testRoundsInvalidAuthenticator() throws BadDataException, IOException, InterruptedException {
+        Map<ICloud.MBSFile, Outcome> reported = new HashMap<>();
+        int[] count = new int[1];
+
+        downloader(3).rounds(TestSnapshots.from(a, b), reported::putAll, () -> true, (s, outcomes, toVerify) -> {
+            count[0]++;
+            outcomes.accept(outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD));
+        });
+
+        assertThat(count[0], is(1));
+        assertThat(reported, is(outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD)));
+    }
+
+    @Test
+    public void testRoundsExceptionReportsHeldBack() throws BadDataException, InterruptedException {
+        Map<ICloud.MBSFile, Outcome> reported = new HashMap<>();
+
+        Snapshot snapshot = TestSnapshots.from(a, b, c);
+
+        try {
+            downloader(2).rounds(snapshot, reported::putAll, () -> false, (s, outcomes, toVerify) -> {
+                outcomes.accept(outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD));
+                throw new IOException("test");
+            });
+            fail("expected IOException");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage(), is("test"));
+        }
+
+        assertThat(reported, is(outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD)));
+    }
+
+    @Test
+    public void testRoundsExceptionInRetryRoundReportsHeldBack() throws BadDataException, IOException {
+        Map<ICloud.MBSFile, Outcome> reported = new HashMap<>();
+        int[] count = new int[1];
+
+        Snapshot snapshot = TestSnapshots.from(a, b, c);
+
+        try {
+            downloader(2).rounds(snapshot, reported::putAll, () -> false, (s, outcomes, toVerify) -> {
+                if (++count[0] == 1) {
+                    outcomes.accept(
+                            outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD, c, Outcome.FAILED_DOWNLOAD));
+                } else {
+                    outcomes.accept(outcomes(b, Outcome.FAILED_DOWNLOAD));
+                    throw new InterruptedException();
+                }
+            });
+            fail("expected InterruptedException");
+        } catch (InterruptedException ex) {
+            // expected
+        }
+
+        assertThat(count[0], is(2));
+        assertThat(reported, is(outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD)));
+    }
+
+    @Test
+    public void testRoundsRecordsMetrics() throws BadDataException, IOException, InterruptedException {
+        long written = DownloadMetrics.files(Outcome.WRITTEN).count();
+        long failed = DownloadMetrics.files(Outcome.FAILED_DOWNLOAD).count();
+        int[] count = new int[1];
+
+        downloader(1).rounds(TestSnapshots.from(a, b, c), map -> {
+        }, () -> false, (s, outcomes, toVerify) -> {
+            outcomes.accept(++count[0] == 1
+                    ? outcomes(a, Outcome.WRITTEN, b, Outcome.FAILED_DOWNLOAD, c, Outcome.FAILED_DOWNLOAD)
+                    : outcomes(b, Outcome.WRITTEN, c, Outcome.FAILED_DOWNLOAD));
+        });
+
+        // Held back failures are only recorded once reported.
+        assertThat(DownloadMetrics.files(Outcome.WRITTEN).count() - written, is(2L));
+        assertThat(DownloadMetrics.files(Outcome.FAILED_DOWNLOAD).count() - failed, is(1L));
+    }
+}
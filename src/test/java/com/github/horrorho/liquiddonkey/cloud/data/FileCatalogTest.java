@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.data;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * FileCatalogTest.
+ *
+ * @author Ahseya
+ */
+public class FileCatalogTest {
+
+    static ICloud.MBSFile file(String domain, String relativePath, long size, long lastModified, boolean isEncrypted) {
+        ICloud.MBSFileAttributes.Builder attributes
+                = ICloud.MBSFileAttributes.newBuilder().setLastModified(lastModified);
+        if (isEncrypted) {
+            attributes.setEncryptionKey(ByteString.copyFromUtf8("key"));
+        }
+
+        ICloud.MBSFile.Builder builder = ICloud.MBSFile.newBuilder()
+                .setFileID(ByteString.copyFromUtf8(relativePath))
+                .setDomain(domain)
+                .setRelativePath(relativePath)
+                .setSize(size)
+                .setAttributes(attributes);
+        if (size > 0) {
+            builder.setSignature(ByteString.copyFromUtf8(relativePath));
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testRebuild() {
+        ICloud.MBSFile full = file("domain", "a", 1, 100, true).toBuilder()
+                .setAttributes(file("domain", "a", 1, 100, true).getAttributes().toBuilder()
+                        .setMode(0100644)
+                        .setProtectionClass(3))
+                .build();
+        ICloud.MBSFile noDomain = file("domain", "b", 0, 200, false).toBuilder().clearDomain().build();
+        List<ICloud.MBSFile> files = Arrays.asList(full, file("other", "c", 1, 0, false), noDomain);
+
+        FileCatalog catalog = FileCatalog.from(files);
+
+        // Rebuilt, equal instances.
+        assertThat(catalog.file(0), is(full));
+        assertThat(catalog.file(0), not(sameInstance(catalog.file(0))));
+        assertThat(catalog.file(1), is(files.get(1)));
+        assertThat(catalog.file(2), is(noDomain));
+        assertThat(catalog.file(2).hasDomain(), is(false));
+
+        assertThat(catalog.domain(0), is("domain"));
+        assertThat(catalog.domain(1), is("other"));
+        assertThat(catalog.domain(2), is(nullValue()));
+        assertThat(catalog.mode(0), is(0100644));
+        assertThat(catalog.protectionClass(0), is(3));
+    }
+
+    @Test
+    public void testDomains() {
+        // Equal, distinct domain strings.
+        FileCatalog catalog = FileCatalog.from(Arrays.asList(
+                file(new String("domain"), "a", 1, 0, false),
+                file(new String("domain"), "b", 1, 0, false)));
+
+        assertThat(catalog.domain(1), sameInstance(catalog.domain(0)));
+        assertThat(catalog.file(1).getDomain(), sameInstance(catalog.file(0).getDomain()));
+    }
+
+    @Test
+    public void testColumns() {
+        FileCatalog catalog = FileCatalog.from(Arrays.asList(
+                file("domain", "a", 10, 1000, true),
+                file("domain", "b", 0, 2000, false)));
+
+        assertThat(catalog.size(), is(2));
+
+        assertThat(catalog.size(0), is(10L));
+        assertThat(catalog.lastModified(0), is(1000L));
+        assertThat(catalog.hasSignature(0), is(true));
+        assertThat(catalog.isEncrypted(0), is(true));
+
+        assertThat(catalog.size(1), is(0L));
+        assertThat(catalog.lastModified(1), is(2000L));
+        assertThat(catalog.hasSignature(1), is(false));
+        assertThat(catalog.isEncrypted(1), is(false));
+    }
+
+    @Test
+    public void testIndices() {
+        ICloud.MBSFile a = file("domain", "a", 1, 0, false);
+        ICloud.MBSFile b = file("domain", "b", 2, 0, false);
+        ICloud.MBSFile c = file("domain", "c", 3, 0, false);
+
+        // Duplicates are discarded, order is retained.
+        FileCatalog catalog = FileCatalog.from(Arrays.asList(a, b, a, c));
+
+        assertThat(catalog.size(), is(3));
+        assertThat(catalog.file(0), is(a));
+        assertThat(catalog.file(1), is(b));
+        assertThat(catalog.file(2), is(c));
+
+        BitSet all = catalog.all();
+        assertThat(all.cardinality(), is(3));
+        all.clear();
+        assertThat(catalog.all().cardinality(), is(3));
+    }
+
+    @Test
+    public void testSelection() throws BadDataException {
+        ICloud.MBSFile a = file("domain", "a", 1, 0, false);
+        ICloud.MBSFile b = file("domain", "b", 2, 0, false);
+        ICloud.MBSFile c = file("domain", "c", 3, 0, false);
+        Snapshot snapshot = TestSnapshots.from(a, b, c);
+
+        Snapshot selected = Snapshots.select(snapshot, index -> snapshot.catalog().size(index) > 1, false);
+        Snapshot filtered = Snapshots.from(selected, file -> !file.equals(c));
+
+        // Derived snapshots share the catalog.
+        assertThat(selected.catalog(), sameInstance(snapshot.catalog()));
+        assertThat(filtered.catalog(), sameInstance(snapshot.catalog()));
+
+        assertThat(selected.indices().boxed().collect(Collectors.toList()), is(Arrays.asList(1, 2)));
+        assertThat(new HashSet<>(selected.files()), is(new HashSet<>(Arrays.asList(b, c))));
+        assertThat(filtered.filesCount(), is(1));
+        assertThat(filtered.files().iterator().next(), is(b));
+        assertThat(snapshot.filesCount(), is(3));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.data;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.google.protobuf.ByteString;
+import java.util.Map;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * FileGroupsTest.
+ *
+ * @author Ahseya
+ */
+public class FileGroupsTest {
+
+    static ChunkServer.ErrorResponse error(int code) {
+        return ChunkServer.ErrorResponse.newBuilder()
+                .setDomain("domain")
+                .setErrorCode(code)
+                .setErrorDescription("description")
+                .build();
+    }
+
+    @Test
+    public void testErrors() {
+        ByteString a = ByteString.copyFromUtf8("a");
+        ByteString b = ByteString.copyFromUtf8("b");
+        ByteString c = ByteString.copyFromUtf8("c");
+
+        ChunkServer.FileGroups fileGroups = ChunkServer.FileGroups.newBuilder()
+                .addFileError(ChunkServer.FileError.newBuilder()
+                        .setFileChecksum(a)
+                        .setErrorResponse(error(1)))
+                .addFileChunkError(ChunkServer.FileChunkError.newBuilder()
+                        .setFileChecksum(b)
+                        .addChunkError(ChunkServer.ChunkErrorIndex.newBuilder()
+                                .setChunkChecksum(ByteString.copyFromUtf8("chunk"))
+                                .setChunkIndex(7)
+                                .setErrorResponse(error(2))))
+                .addFileChunkError(ChunkServer.FileChunkError.newBuilder()
+                        .setFileChecksum(c))
+                .build();
+
+        Map<ByteString, String> errors = FileGroups.errors(fileGroups);
+
+        assertThat(errors.size(), is(2));
+        assertThat(errors.get(a), is("domain(1) description"));
+        assertTrue(errors.get(b).startsWith("chunk: 7 "));
+    }
+
+    @Test
+    public void testErrorsNone() {
+        assertTrue(FileGroups.errors(ChunkServer.FileGroups.getDefaultInstance()).isEmpty());
+    }
+}
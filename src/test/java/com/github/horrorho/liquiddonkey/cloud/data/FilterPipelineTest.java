@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.data;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * FilterPipelineTest.
+ *
+ * @author Ahseya
+ */
+public class FilterPipelineTest {
+
+    // Spans several chunks.
+    static final int COUNT = 3000;
+
+    static Snapshot snapshot() throws BadDataException {
+        List<ICloud.MBSFile> files = IntStream.range(0, COUNT)
+                .mapToObj(i -> TestSnapshots.file("domain", Integer.toString(i)))
+                .collect(Collectors.toList());
+        return TestSnapshots.from(files);
+    }
+
+    static int number(ICloud.MBSFile file) {
+        return Integer.parseInt(file.getRelativePath());
+    }
+
+    @Test
+    public void testApply() throws BadDataException, IOException {
+        Set<Integer> tested = ConcurrentHashMap.newKeySet();
+
+        FilterPipeline.Result result = FilterPipeline.create()
+                .filter("even", file -> number(file) % 2 == 0)
+                .filter("small", file -> tested.add(number(file)) && number(file) < 1000)
+                .apply(snapshot());
+
+        // Files rejected by a stage are not tested by later stages.
+        assertThat(tested.size(), is(COUNT / 2));
+        assertThat(tested.stream().allMatch(i -> i % 2 == 0), is(true));
+
+        assertThat(result.rejects("even"), is(1500L));
+        assertThat(result.rejects("small"), is(1000L));
+        assertThat(result.remaining("even"), is(1500L));
+        assertThat(result.remaining("small"), is(500L));
+
+        assertThat(result.retained("even").filesCount(), is(1500));
+        assertThat(result.rejected("even").filesCount(), is(1500));
+        assertThat(result.rejected("small").filesCount(), is(1000));
+        assertThat(result.rejected("small").files().stream().allMatch(file -> number(file) >= 1000), is(true));
+
+        Snapshot snapshot = result.snapshot();
+        assertThat(snapshot.filesCount(), is(500));
+        assertThat(snapshot.files().stream().allMatch(file -> number(file) % 2 == 0 && number(file) < 1000), is(true));
+    }
+
+    @Test
+    public void testApplySelection() throws BadDataException, IOException {
+        Snapshot even = FilterPipeline.create()
+                .filter("even", file -> number(file) % 2 == 0)
+                .apply(snapshot())
+                .snapshot();
+
+        FilterPipeline.Result result = FilterPipeline.create()
+                .filterIndex("small", catalog -> index -> number(catalog.file(index)) < 1000)
+                .apply(even);
+
+        assertThat(result.rejects("small"), is(1000L));
+        assertThat(result.snapshot().filesCount(), is(500));
+    }
+
+    @Test
+    public void testApplyNoStages() throws BadDataException, IOException {
+        assertThat(FilterPipeline.create().apply(snapshot()).snapshot().filesCount(), is(COUNT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateStage() {
+        FilterPipeline.create()
+                .filter("stage", file -> true)
+                .filter("stage", file -> true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSuchStage() throws BadDataException, IOException {
+        FilterPipeline.create()
+                .filter("stage", file -> true)
+                .apply(snapshot())
+                .rejects("none");
+    }
+
+    @Test(expected = IOException.class)
+    public void testUncheckedIOException() throws BadDataException, IOException {
+        FilterPipeline.create()
+                .filter("stage", file -> {
+                    throw new UncheckedIOException(new IOException("Bad file"));
+                })
+                .apply(snapshot());
+    }
+}
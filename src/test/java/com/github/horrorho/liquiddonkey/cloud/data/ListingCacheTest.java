@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.data;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ListingCacheTest.
+ *
+ * @author Ahseya
+ */
+public class ListingCacheTest {
+
+    static final List<ICloud.MBSFile> files = IntStream.range(0, 100)
+            .mapToObj(i -> ICloud.MBSFile.newBuilder()
+                    .setFileID(ByteString.copyFromUtf8("id" + i))
+                    .setDomain("domain")
+                    .setRelativePath("path/" + i)
+                    .build())
+            .collect(Collectors.toList());
+
+    static ICloud.MBSSnapshot snapshot(int id, long committed) {
+        return ICloud.MBSSnapshot.newBuilder().setSnapshotID(id).setCommitted(committed).setLastModified(1000).build();
+    }
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPutGet() throws IOException {
+        ListingCache cache = ListingCache.from(temporaryFolder.getRoot().toPath().resolve("cache"), Long.MAX_VALUE);
+
+        assertThat(cache.get("dsPrsID", "udid", snapshot(1, 1000)), is(nullValue()));
+        cache.put("dsPrsID", "udid", snapshot(1, 1000), files);
+
+        assertThat(cache.get("dsPrsID", "udid", snapshot(1, 1000)), is(files));
+        assertThat(cache.get("dsPrsID", "udid", snapshot(1, 2000)), is(nullValue()));
+        assertThat(cache.get("dsPrsID", "other", snapshot(1, 1000)), is(nullValue()));
+    }
+
+    @Test
+    public void testUncommitted() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath().resolve("cache");
+        ListingCache cache = ListingCache.from(directory, Long.MAX_VALUE);
+
+        cache.put("dsPrsID", "udid", snapshot(1, 0), files);
+        assertThat(Files.exists(directory), is(false));
+        assertThat(cache.get("dsPrsID", "udid", snapshot(1, 0)), is(nullValue()));
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        ListingCache cache = ListingCache.from(directory, Long.MAX_VALUE);
+        cache.put("dsPrsID", "udid", snapshot(1, 1000), files);
+
+        Path listing = directory.resolve(ListingCache.key("dsPrsID", "udid", snapshot(1, 1000)) + ".listing");
+        try (FileChannel channel = FileChannel.open(listing, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThat(cache.get("dsPrsID", "udid", snapshot(1, 1000)), is(nullValue()));
+        assertThat(Files.exists(listing), is(false));
+    }
+
+    @Test
+    public void testEvict() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        ListingCache unbounded = ListingCache.from(directory, Long.MAX_VALUE);
+        unbounded.put("dsPrsID", "udid", snapshot(1, 1000), files);
+        long size = Files.size(directory.resolve(ListingCache.key("dsPrsID", "udid", snapshot(1, 1000)) + ".listing"));
+
+        ListingCache cache = ListingCache.from(directory, size);
+        cache.put("dsPrsID", "udid", snapshot(2, 1000), files);
+
+        try (Stream<Path> listings = Files.list(directory)) {
+            assertThat(listings.count(), is(1L));
+        }
+    }
+}
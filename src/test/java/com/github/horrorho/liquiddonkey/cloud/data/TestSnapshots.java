@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.data;
+
+import com.github.horrorho.liquiddonkey.cloud.keybag.KeyBagManagers;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * TestSnapshots. Test support.
+ *
+ * @author Ahseya
+ */
+public final class TestSnapshots {
+
+    /**
+     * Returns a file with the specified domain and relative path, the file id being derived from both.
+     *
+     * @param domain not null
+     * @param relativePath not null
+     * @return new instance, not null
+     */
+    public static ICloud.MBSFile file(String domain, String relativePath) {
+        return ICloud.MBSFile.newBuilder()
+                .setFileID(ByteString.copyFromUtf8(domain + "/" + relativePath))
+                .setDomain(domain)
+                .setRelativePath(relativePath)
+                .setSignature(ByteString.copyFromUtf8(domain + "/" + relativePath))
+                .setSize(1)
+                .build();
+    }
+
+    public static Snapshot from(ICloud.MBSFile... files) throws BadDataException {
+        return from(Arrays.asList(files));
+    }
+
+    /**
+     * Returns a snapshot over the specified files with an empty key bag.
+     *
+     * @param files not null
+     * @return new instance, not null
+     * @throws BadDataException
+     */
+    public static Snapshot from(Collection<ICloud.MBSFile> files) throws BadDataException {
+        Account account = new Account(ICloud.MBSAccount.newBuilder().setAccountID("dsPrsID").build());
+        Backup backup = new Backup(
+                account,
+                ICloud.MBSBackup.newBuilder().setBackupUDID(ByteString.copyFromUtf8("udid")).build(),
+                ICloud.MBSKeySet.getDefaultInstance(),
+                KeyBagManagers.empty());
+        ICloud.MBSSnapshot mbsSnapshot = ICloud.MBSSnapshot.newBuilder()
+                .setSnapshotID(1)
+                .setCommitted(1000)
+                .setLastModified(1000)
+                .build();
+
+        return new Snapshot(backup, mbsSnapshot, files);
+    }
+
+    TestSnapshots() {
+    }
+}
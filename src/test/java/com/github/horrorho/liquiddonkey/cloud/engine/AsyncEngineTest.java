@@ -0,0 +1,227 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.data.TestSnapshots;
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.http.client.HttpResponseException;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * AsyncEngineTest.
+ *
+ * @author Ahseya
+ */
+public class AsyncEngineTest {
+
+    static final ChunkServer.StorageHostChunkList a = container("a.host", "a");
+    static final ChunkServer.StorageHostChunkList b = container("b.host", "b");
+
+    static final Map<ChunkServer.StorageHostChunkList, ICloud.MBSFile> files = new ConcurrentHashMap<>();
+
+    static {
+        files.put(a, TestSnapshots.file("domain", "a"));
+        files.put(b, TestSnapshots.file("domain", "b"));
+    }
+
+    static ChunkServer.StorageHostChunkList container(String hostname, String uri) {
+        return ChunkServer.StorageHostChunkList.newBuilder()
+                .setHostInfo(ChunkServer.HostInfo.newBuilder()
+                        .setHostname(hostname)
+                        .setScheme("http")
+                        .setMethod("GET")
+                        .setUri(uri)
+                        .buildPartial())
+                .buildPartial();
+    }
+
+    static Map<ICloud.MBSFile, Outcome> written(ChunkServer.StorageHostChunkList chunkList) {
+        return Collections.singletonMap(files.get(chunkList), Outcome.WRITTEN);
+    }
+
+    static Map<ICloud.MBSFile, Outcome> failed(ChunkServer.StorageHostChunkList chunkList) {
+        return Collections.singletonMap(files.get(chunkList), Outcome.FAILED_DOWNLOAD);
+    }
+
+    static Map<ICloud.MBSFile, Outcome> execute(StubAsyncClient client, Retries retries, long timeoutMs)
+            throws InterruptedException, IOException, TimeoutException {
+
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+        execute(client, retries, timeoutMs, outcomes);
+        return outcomes;
+    }
+
+    static void execute(
+            StubAsyncClient client,
+            Retries retries,
+            long timeoutMs,
+            Map<ICloud.MBSFile, Outcome> outcomes
+    ) throws InterruptedException, IOException, TimeoutException {
+
+        new AsyncEngine(() -> client, 2, 2, () -> retries, timeoutMs).execute(
+                retries,
+                () -> {
+                    try {
+                        return Donkeys.from(retries, AsyncEngineTest::written, AsyncEngineTest::failed);
+                    } catch (BadDataException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                },
+                outcomes::putAll,
+                Arrays.asList(a, b),
+                null);
+    }
+
+    static Function<String, Object> respond(Object a, Object b) {
+        return path -> path.endsWith("a") ? a : b;
+    }
+
+    @Test
+    public void testExecute() throws InterruptedException, IOException, TimeoutException {
+        StubAsyncClient client = new StubAsyncClient(respond(new byte[]{1}, new byte[]{2}));
+
+        Map<ICloud.MBSFile, Outcome> outcomes = execute(client, Retries.from(3, 0, 0, 0), 5000);
+
+        assertThat(outcomes.get(files.get(a)), is(Outcome.WRITTEN));
+        assertThat(outcomes.get(files.get(b)), is(Outcome.WRITTEN));
+        assertThat(client.requests(), is(2));
+    }
+
+    @Test
+    public void testRetry() throws InterruptedException, IOException, TimeoutException {
+        AtomicInteger attempts = new AtomicInteger(0);
+        StubAsyncClient client = new StubAsyncClient(path -> path.endsWith("a") && attempts.incrementAndGet() == 1
+                ? new IOException("Connection reset")
+                : new byte[]{1});
+
+        Map<ICloud.MBSFile, Outcome> outcomes = execute(client, Retries.from(3, 0, 0, 0), 5000);
+
+        assertThat(outcomes.get(files.get(a)), is(Outcome.WRITTEN));
+        assertThat(outcomes.get(files.get(b)), is(Outcome.WRITTEN));
+        assertThat(client.requests(), is(3));
+    }
+
+    @Test
+    public void testRetriesExhausted() throws InterruptedException, IOException, TimeoutException {
+        // Connection failures fail the container, not the run.
+        StubAsyncClient client = new StubAsyncClient(respond(new IOException("Connection refused"), new byte[]{2}));
+
+        // One retry, two attempts.
+        Map<ICloud.MBSFile, Outcome> outcomes = execute(client, Retries.from(1, 0, 0, 0), 5000);
+
+        assertThat(outcomes.get(files.get(a)), is(Outcome.FAILED_DOWNLOAD));
+        assertThat(outcomes.get(files.get(b)), is(Outcome.WRITTEN));
+        assertThat(client.requests(), is(3));
+    }
+
+    @Test
+    public void testUnauthorized() throws InterruptedException, IOException, TimeoutException {
+        StubAsyncClient client = new StubAsyncClient(
+                respond(new HttpResponseException(401, "Unauthorized"), StubAsyncClient.HUNG));
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+
+        try {
+            execute(client, Retries.from(3, 0, 0, 0), 5000, outcomes);
+            fail("Expected HttpResponseException");
+
+        } catch (HttpResponseException ex) {
+            assertThat(ex.getStatusCode(), is(401));
+        }
+        assertThat(outcomes.get(files.get(a)), is(Outcome.FAILED_DOWNLOAD));
+    }
+
+    @Test
+    public void testReauthorize() throws InterruptedException, IOException, TimeoutException {
+        ChunkServer.FileGroups expired = ReauthorizerTest.fileGroups("expired");
+        ChunkServer.FileGroups refreshed = ReauthorizerTest.fileGroups("refreshed");
+        List<ChunkServer.StorageHostChunkList> containers = expired.getFileGroups(0).getStorageHostChunkListList();
+        ChunkServer.StorageHostChunkList replacement = refreshed.getFileGroups(0).getStorageHostChunkList(0);
+
+        StubAsyncClient client = new StubAsyncClient(path -> path.endsWith("expired")
+                ? new HttpResponseException(401, "Unauthorized")
+                : new byte[]{1});
+        Reauthorizer reauthorizer = Reauthorizer.from(
+                signatures -> refreshed,
+                ChunkManager.from(expired.getFileGroupsList()),
+                containers,
+                1);
+        Retries retries = Retries.from(3, 0, 0, 0);
+        List<ChunkServer.StorageHostChunkList> written = new CopyOnWriteArrayList<>();
+
+        new AsyncEngine(() -> client, 2, 2, () -> retries, 5000).execute(
+                retries,
+                () -> {
+                    try {
+                        return Donkeys.from(retries, chunkList -> {
+                            written.add(chunkList);
+                            return Collections.emptyMap();
+                        });
+                    } catch (BadDataException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                },
+                outcomes -> {
+                },
+                containers,
+                reauthorizer);
+
+        assertThat(written, is(Arrays.asList(replacement)));
+        assertThat(reauthorizer.isStale(containers.get(0)), is(true));
+        assertThat(client.requests(), is(2));
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testTimeout() throws InterruptedException, IOException, TimeoutException {
+        StubAsyncClient client = new StubAsyncClient(respond(new byte[]{1}, StubAsyncClient.HUNG));
+
+        execute(client, Retries.from(3, 0, 0, 0), 200);
+    }
+
+    @Test
+    public void testCancelled() throws InterruptedException, IOException, TimeoutException {
+        StubAsyncClient client = new StubAsyncClient(respond(StubAsyncClient.CANCELLED, new byte[]{2}));
+
+        Map<ICloud.MBSFile, Outcome> outcomes = execute(client, Retries.from(3, 0, 0, 0), 5000);
+
+        assertThat(outcomes.get(files.get(a)), is(Outcome.FAILED_DOWNLOAD));
+        assertThat(outcomes.get(files.get(b)), is(Outcome.WRITTEN));
+    }
+}
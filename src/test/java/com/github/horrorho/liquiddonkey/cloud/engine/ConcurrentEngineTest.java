@@ -0,0 +1,292 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.data.TestSnapshots;
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.http.HostHealth;
+import com.github.horrorho.liquiddonkey.util.WorkQueue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * ConcurrentEngineTest.
+ * <p>
+ * Virtual thread execution is exercised with a platform thread executor, so as to run on runtimes without virtual
+ * threads.
+ *
+ * @author Ahseya
+ */
+public class ConcurrentEngineTest {
+
+    static final ChunkServer.StorageHostChunkList a = RetriesTest.container("a.host", "/a");
+    static final ChunkServer.StorageHostChunkList b = RetriesTest.container("b.host", "/b");
+    static final ChunkServer.StorageHostChunkList replacement = RetriesTest.container("b.host", "/b2");
+
+    static final Map<ChunkServer.StorageHostChunkList, ICloud.MBSFile> files = new ConcurrentHashMap<>();
+
+    static {
+        files.put(a, TestSnapshots.file("domain", "a"));
+        files.put(b, TestSnapshots.file("domain", "b"));
+        files.put(replacement, TestSnapshots.file("domain", "b"));
+    }
+
+    static ConcurrentEngine virtual(int concurrency, Retries retries) {
+        return new ConcurrentEngine(
+                concurrency,
+                0,
+                () -> retries,
+                () -> Hedging.from(false, 0, 0),
+                () -> Watchdog.from(0, 0),
+                () -> HostHealth.from(0, 0),
+                5000,
+                true,
+                Executors::newCachedThreadPool);
+    }
+
+    static Function<WorkQueue<ChunkServer.StorageHostChunkList>, Runner> runners(
+            Retries retries,
+            Map<ICloud.MBSFile, Outcome> outcomes,
+            AtomicReference<Exception> fatal,
+            Donkeys.Script script) {
+
+        return runners(retries, outcomes, fatal, script, false);
+    }
+
+    static Function<WorkQueue<ChunkServer.StorageHostChunkList>, Runner> runners(
+            Retries retries,
+            Map<ICloud.MBSFile, Outcome> outcomes,
+            AtomicReference<Exception> fatal,
+            Donkeys.Script script,
+            boolean toIdle) {
+
+        Hedging hedging = Hedging.from(false, 0, 0);
+        HostHealth health = HostHealth.from(0, 0);
+
+        return work -> {
+            try {
+                return new Runner(
+                        work, retries, hedging, health, toIdle, outcomes::putAll, fatal, Donkeys.from(retries, script));
+            } catch (BadDataException ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+    }
+
+    static WorkQueue<ChunkServer.StorageHostChunkList>
+            queue(Retries retries, List<ChunkServer.StorageHostChunkList> chunks) {
+
+        WorkQueue<ChunkServer.StorageHostChunkList> queue = WorkQueue.from(chunks);
+        retries.open(queue);
+        return queue;
+    }
+
+    static Map<ICloud.MBSFile, Outcome> written(ChunkServer.StorageHostChunkList chunkList) {
+        return Collections.singletonMap(files.get(chunkList), Outcome.WRITTEN);
+    }
+
+    @Test
+    public void testVirtual() throws InterruptedException, TimeoutException {
+        Retries retries = Retries.from(3, 0, 0, 0);
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+        AtomicReference<Exception> fatal = new AtomicReference<>(null);
+
+        Exception ex = virtual(2, retries).executeVirtual(
+                queue(retries, Arrays.asList(a, b)),
+                retries,
+                runners(retries, outcomes, fatal, ConcurrentEngineTest::written),
+                fatal);
+
+        assertThat(ex, is(nullValue()));
+        assertThat(outcomes.size(), is(2));
+    }
+
+    @Test
+    public void testVirtualRetries() throws InterruptedException, TimeoutException {
+        // Backed off retries and reauthorized replacements are run before the final sweep.
+        Retries retries = Retries.from(3, 50, 50, 0);
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+        AtomicReference<Exception> fatal = new AtomicReference<>(null);
+        Map<ChunkServer.StorageHostChunkList, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        Donkeys.Script script = chunkList -> {
+            int attempt = attempts.computeIfAbsent(chunkList, key -> new AtomicInteger(0)).incrementAndGet();
+            if (chunkList == a && attempt == 1) {
+                retries.retry(chunkList);
+                return Collections.emptyMap();
+            }
+            if (chunkList == b) {
+                retries.addAll(Collections.singletonList(replacement));
+                return Collections.emptyMap();
+            }
+            return written(chunkList);
+        };
+
+        Exception ex = virtual(2, retries)
+                .executeVirtual(queue(retries, Arrays.asList(a, b)), retries, runners(retries, outcomes, fatal, script),
+                        fatal);
+
+        assertThat(ex, is(nullValue()));
+        assertThat(attempts.get(a).get(), is(2));
+        assertThat(attempts.get(replacement).get(), is(1));
+        assertThat(outcomes.size(), is(2));
+        assertThat(retries.sweep(), is(Collections.<ChunkServer.StorageHostChunkList>emptyList()));
+    }
+
+    @Test
+    public void testVirtualFatal() throws InterruptedException, TimeoutException {
+        Retries retries = Retries.from(3, 0, 0, 0);
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+        AtomicReference<Exception> fatal = new AtomicReference<>(null);
+
+        Donkeys.Script script = chunkList -> {
+            throw new UncheckedIOException(new IOException("fatal"));
+        };
+
+        Exception ex = virtual(1, retries)
+                .executeVirtual(queue(retries, Arrays.asList(a, b)), retries, runners(retries, outcomes, fatal, script),
+                        fatal);
+
+        assertThat(ex instanceof UncheckedIOException, is(true));
+        assertThat(outcomes.size(), is(0));
+    }
+
+    @Test
+    public void testRetries() throws InterruptedException, TimeoutException {
+        // Platform runners idle while retries are delayed, then take them from the work queue.
+        Retries retries = Retries.from(3, 50, 50, 0);
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+        AtomicReference<Exception> fatal = new AtomicReference<>(null);
+        Map<ChunkServer.StorageHostChunkList, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        Donkeys.Script script = chunkList -> {
+            int attempt = attempts.computeIfAbsent(chunkList, key -> new AtomicInteger(0)).incrementAndGet();
+            if (chunkList == a && attempt == 1) {
+                retries.retry(chunkList);
+                return Collections.emptyMap();
+            }
+            return written(chunkList);
+        };
+
+        ConcurrentEngine engine = new ConcurrentEngine(
+                2,
+                0,
+                () -> retries,
+                () -> Hedging.from(false, 0, 0),
+                () -> Watchdog.from(0, 0),
+                () -> HostHealth.from(0, 0),
+                5000,
+                false,
+                Executors::newCachedThreadPool);
+
+        Exception ex = engine.execute(
+                queue(retries, Arrays.asList(a, b)), retries, runners(retries, outcomes, fatal, script, true), fatal);
+
+        assertThat(ex, is(nullValue()));
+        assertThat(attempts.get(a).get(), is(2));
+        assertThat(outcomes.size(), is(2));
+        retries.close();
+    }
+
+    @Test
+    public void testVirtualOrder() throws InterruptedException, TimeoutException {
+        // Containers run in dispatch order, however their threads start.
+        Retries retries = Retries.from(3, 0, 0, 0);
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+        AtomicReference<Exception> fatal = new AtomicReference<>(null);
+        List<ChunkServer.StorageHostChunkList> chunks = containers(16);
+        List<ChunkServer.StorageHostChunkList> order = Collections.synchronizedList(new ArrayList<>());
+
+        Donkeys.Script script = chunkList -> {
+            order.add(chunkList);
+            return written(chunkList);
+        };
+
+        Exception ex = virtual(1, retries)
+                .executeVirtual(queue(retries, chunks), retries, runners(retries, outcomes, fatal, script), fatal);
+
+        assertThat(ex, is(nullValue()));
+        assertThat(order, is(chunks));
+    }
+
+    @Test
+    public void testVirtualRunners() throws InterruptedException, TimeoutException {
+        // Runners are created once their container holds a permit.
+        Retries retries = Retries.from(3, 0, 0, 0);
+        Map<ICloud.MBSFile, Outcome> outcomes = new ConcurrentHashMap<>();
+        AtomicReference<Exception> fatal = new AtomicReference<>(null);
+        AtomicInteger created = new AtomicInteger(0);
+        AtomicInteger completed = new AtomicInteger(0);
+        AtomicInteger live = new AtomicInteger(0);
+
+        Donkeys.Script script = chunkList -> {
+            live.accumulateAndGet(created.get() - completed.get(), Math::max);
+            TimeUnit.MILLISECONDS.sleep(10);
+            completed.incrementAndGet();
+            return written(chunkList);
+        };
+
+        Function<WorkQueue<ChunkServer.StorageHostChunkList>, Runner> runners
+                = runners(retries, outcomes, fatal, script);
+
+        Exception ex = virtual(2, retries).executeVirtual(queue(retries, containers(16)), retries, work -> {
+            created.incrementAndGet();
+            return runners.apply(work);
+        }, fatal);
+
+        assertThat(ex, is(nullValue()));
+        assertThat(created.get(), is(16));
+        assertThat(live.get() <= 2, is(true));
+        assertThat(outcomes.size(), is(16));
+    }
+
+    static List<ChunkServer.StorageHostChunkList> containers(int count) {
+        List<ChunkServer.StorageHostChunkList> containers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ChunkServer.StorageHostChunkList container = RetriesTest.container("c.host", "/c" + i);
+            files.put(container, TestSnapshots.file("domain", "c" + i));
+            containers.add(container);
+        }
+        return containers;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.Authenticator;
+import com.github.horrorho.liquiddonkey.cloud.HttpAgent;
+import com.github.horrorho.liquiddonkey.cloud.SignatureManager;
+import com.github.horrorho.liquiddonkey.cloud.client.ChunksClient;
+import com.github.horrorho.liquiddonkey.cloud.data.Auth;
+import com.github.horrorho.liquiddonkey.cloud.data.TestSnapshots;
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.http.HostHealth;
+import com.github.horrorho.liquiddonkey.settings.PropertiesFactory;
+import com.github.horrorho.liquiddonkey.settings.config.FileConfig;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.http.impl.client.HttpClients;
+
+/**
+ * Donkeys. Test support.
+ *
+ * @author Ahseya
+ */
+final class Donkeys {
+
+    /**
+     * Scripted container processing.
+     */
+    @FunctionalInterface
+    interface Script {
+
+        Map<ICloud.MBSFile, Outcome> process(ChunkServer.StorageHostChunkList chunkList)
+                throws IOException, InterruptedException;
+    }
+
+    static HttpAgent agent() {
+        return HttpAgent.from(
+                HttpClients.createMinimal(), 0, 0, Authenticator.from(Auth.from("dsPrsID", "mmeAuthToken")));
+    }
+
+    /**
+     * Returns a Donkey that processes containers with the specified script rather than downloading them.
+     *
+     * @param retries not null
+     * @param script not null
+     * @return new instance, not null
+     * @throws BadDataException
+     */
+    static Donkey from(Retries retries, Script script) throws BadDataException {
+        return from(retries, script, chunkList -> Collections.emptyMap());
+    }
+
+    /**
+     * Returns a Donkey that processes and completes containers with the specified script rather than downloading and
+     * decrypting them, and that fails containers with the specified function.
+     *
+     * @param retries not null
+     * @param script not null
+     * @param failures not null
+     * @return new instance, not null
+     * @throws BadDataException
+     */
+    static Donkey from(
+            Retries retries,
+            Script script,
+            Function<ChunkServer.StorageHostChunkList, Map<ICloud.MBSFile, Outcome>> failures)
+            throws BadDataException {
+
+        SignatureManager signatureManager = SignatureManager.from(
+                TestSnapshots.from(), FileConfig.from(PropertiesFactory.create().fromDefaults()));
+
+        return new Donkey(
+                agent(),
+                ChunksClient.create(),
+                ChunkManager.from(Collections.emptyList()),
+                signatureManager,
+                retries,
+                Watchdog.from(0, 0),
+                HostHealth.from(0, 0),
+                null) {
+
+            @Override
+            Map<ICloud.MBSFile, Outcome> process(Hedging.InFlight flight) throws InterruptedException, IOException {
+                return script.process(flight.chunkList());
+            }
+
+            @Override
+            Map<ICloud.MBSFile, Outcome> complete(ChunkServer.StorageHostChunkList chunkList, byte[] data, int length)
+                    throws InterruptedException, IOException {
+                return script.process(chunkList);
+            }
+
+            @Override
+            Map<ICloud.MBSFile, Outcome> fail(Exception ex, ChunkServer.StorageHostChunkList chunkList) {
+                return failures.apply(chunkList);
+            }
+        };
+    }
+
+    Donkeys() {
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import java.util.stream.LongStream;
+import org.apache.http.client.methods.HttpGet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * HedgingTest.
+ *
+ * @author Ahseya
+ */
+public class HedgingTest {
+
+    @Test
+    public void testPercentile() {
+        HostLatencies latencies = HostLatencies.from(100);
+        LongStream.rangeClosed(1, 200).forEach(latency -> latencies.record("host", latency));
+
+        // Only the most recent 100 samples are retained.
+        assertThat(latencies.samples("host"), is(100));
+        assertThat(latencies.percentile("host", 50), is(150L));
+        assertThat(latencies.percentile("host", 95), is(195L));
+        assertThat(latencies.percentile("other", 95), is(-1L));
+    }
+
+    @Test
+    public void testHedge() {
+        Hedging hedging = Hedging.from(true, 95, 0);
+        ChunkServer.StorageHostChunkList chunkList = RetriesTest.container("host", "/a");
+
+        Hedging.InFlight flight = hedging.start(chunkList);
+        HttpGet primary = new HttpGet("http://host/a");
+        flight.join(primary);
+
+        // Hedged once only.
+        assertThat(hedging.hedge(), is(flight));
+        assertThat(hedging.hedge(), is(nullValue()));
+        HttpGet hedged = new HttpGet("http://host/a");
+        flight.join(hedged);
+
+        // The first response wins and aborts the other.
+        assertThat(flight.win(hedged), is(true));
+        assertThat(flight.win(primary), is(false));
+        assertThat(primary.isAborted(), is(true));
+        assertThat(hedged.isAborted(), is(false));
+
+        assertThat(flight.leave(hedged), is(false));
+        assertThat(flight.leave(primary), is(true));
+        assertThat(hedging.isHedgeable(), is(false));
+    }
+}
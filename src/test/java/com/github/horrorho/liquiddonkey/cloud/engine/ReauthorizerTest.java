@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.store.ChunkManager;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * ReauthorizerTest.
+ *
+ * @author Ahseya
+ */
+public class ReauthorizerTest {
+
+    private static final ByteString signature = ByteString.copyFrom(new byte[]{2});
+    private static final ByteString chunk = ByteString.copyFrom(new byte[]{1});
+
+    @Test
+    public void testReauthorize() throws IOException {
+        ChunkServer.FileGroups expired = fileGroups("expired");
+        ChunkServer.FileGroups refreshed = fileGroups("refreshed");
+        ChunkServer.StorageHostChunkList container = expired.getFileGroups(0).getStorageHostChunkList(0);
+
+        ChunkManager storeManager = ChunkManager.from(expired.getFileGroupsList());
+        AtomicInteger requests = new AtomicInteger(0);
+        Reauthorizer reauthorizer = Reauthorizer.from(
+                signatures -> {
+                    requests.incrementAndGet();
+                    assertThat(signatures, is(Collections.singleton(signature)));
+                    return refreshed;
+                },
+                storeManager,
+                Arrays.asList(container),
+                1);
+
+        List<ChunkServer.StorageHostChunkList> replacements = new ArrayList<>();
+        assertThat(reauthorizer.isStale(container), is(false));
+        assertThat(reauthorizer.reauthorize(container, replacements::addAll), is(true));
+        assertThat(reauthorizer.isStale(container), is(true));
+        assertThat(replacements, is(refreshed.getFileGroups(0).getStorageHostChunkListList()));
+
+        // Already refreshed, single flight.
+        assertThat(reauthorizer.reauthorize(container, replacements::addAll), is(true));
+        assertThat(requests.get(), is(1));
+
+        // Refresh limit reached.
+        assertThat(reauthorizer.reauthorize(replacements.get(0), replacements::addAll), is(false));
+        assertThat(requests.get(), is(1));
+    }
+
+    static ChunkServer.FileGroups fileGroups(String authorization) {
+        ChunkServer.StorageHostChunkList container = ChunkServer.StorageHostChunkList.newBuilder()
+                .setHostInfo(ChunkServer.HostInfo.newBuilder()
+                        .setHostname("host")
+                        .setScheme("http")
+                        .setMethod("GET")
+                        .setUri(authorization)
+                        .buildPartial())
+                .addChunkInfo(ChunkServer.ChunkInfo.newBuilder().setChunkChecksum(chunk).setChunkLength(1).buildPartial())
+                .buildPartial();
+
+        ChunkServer.FileChecksumChunkReferences references = ChunkServer.FileChecksumChunkReferences.newBuilder()
+                .setFileChecksum(signature)
+                .addChunkReferences(ChunkServer.ChunkReference.newBuilder().setContainerIndex(0).setChunkIndex(0))
+                .build();
+
+        return ChunkServer.FileGroups.newBuilder()
+                .addFileGroups(ChunkServer.FileChecksumStorageHostChunkLists.newBuilder()
+                        .addStorageHostChunkList(container)
+                        .addFileChecksumChunkReferences(references)
+                        .buildPartial())
+                .buildPartial();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.util.WorkQueue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * RetriesTest.
+ *
+ * @author Ahseya
+ */
+public class RetriesTest {
+
+    @Test
+    public void testDelayMs() {
+        Retries retries = Retries.from(8, 100, 1000, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(isBetween(retries.delayMs(1), 50, 100));
+            assertTrue(isBetween(retries.delayMs(3), 200, 400));
+            assertTrue(isBetween(retries.delayMs(64), 500, 1000));
+        }
+    }
+
+    @Test
+    public void testBackoffMs() {
+        // The retry count counts retries, not attempts.
+        Retries retries = Retries.from(1, 100, 100, 0);
+        ChunkServer.StorageHostChunkList a = container("a.host", "/a");
+
+        assertTrue(isBetween(retries.backoffMs(a), 50, 100));
+        assertThat(retries.backoffMs(a), is(-1L));
+    }
+
+    @Test
+    public void testSweep() throws InterruptedException {
+        WorkQueue<ChunkServer.StorageHostChunkList> queue = WorkQueue.from(Collections.emptyList());
+        Retries retries = Retries.from(3, 0, 0, 1).open(queue);
+        ChunkServer.StorageHostChunkList a = container("a.host", "/a");
+        ChunkServer.StorageHostChunkList b = container("a.host", "/b");
+        ChunkServer.StorageHostChunkList c = container("c.host", "/c");
+
+        // Within budget, re-queued once due.
+        assertThat(retries.retry(a), is(true));
+        assertThat(poll(queue, 1000), is(a));
+
+        // Host budget exhausted, deferred to the sweep.
+        assertThat(retries.retry(b), is(true));
+        assertThat(retries.isPending(), is(false));
+        assertThat(queue.poll(), is(nullValue()));
+
+        assertThat(retries.retry(c), is(true));
+        assertThat(poll(queue, 1000), is(c));
+
+        assertThat(retries.sweep(), is(Collections.singletonList(b)));
+        assertThat(retries.retry(c), is(false));
+        retries.close();
+    }
+
+    @Test
+    public void testSweepDelayed() throws InterruptedException {
+        // Containers still delayed are swept rather than re-queued.
+        WorkQueue<ChunkServer.StorageHostChunkList> queue = WorkQueue.from(Collections.emptyList());
+        Retries retries = Retries.from(3, 60000, 60000, 0).open(queue);
+        ChunkServer.StorageHostChunkList a = container("a.host", "/a");
+
+        assertThat(retries.retry(a), is(true));
+        assertThat(retries.isPending(), is(true));
+        assertThat(retries.size(), is(1));
+
+        assertThat(retries.sweep(), is(Collections.singletonList(a)));
+        assertThat(retries.isPending(), is(false));
+        assertThat(queue.poll(), is(nullValue()));
+        retries.close();
+    }
+
+    @Test
+    public void testAddAll() {
+        WorkQueue<ChunkServer.StorageHostChunkList> queue = WorkQueue.from(Collections.emptyList());
+        Retries retries = Retries.from(3, 0, 0, 0).open(queue);
+        ChunkServer.StorageHostChunkList a = container("a.host", "/a");
+
+        retries.addAll(Collections.singletonList(a));
+
+        assertThat(queue.poll(), is(a));
+        retries.close();
+    }
+
+    static ChunkServer.StorageHostChunkList poll(WorkQueue<ChunkServer.StorageHostChunkList> queue, long timeoutMs)
+            throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        ChunkServer.StorageHostChunkList chunkList;
+        while ((chunkList = queue.poll()) == null && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return chunkList;
+    }
+
+    static boolean isBetween(long value, long min, long max) {
+        return value >= min && value <= max;
+    }
+
+    static ChunkServer.StorageHostChunkList container(String hostname, String uri) {
+        return ChunkServer.StorageHostChunkList.newBuilder()
+                .setHostInfo(ChunkServer.HostInfo.newBuilder().setHostname(hostname).setUri(uri).buildPartial())
+                .buildPartial();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.util.ByteArrayPool;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.http.HttpException;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * StubAsyncClient. Test support.
+ * <p>
+ * Responds to requests with a script keyed by request path. The script returns response bytes, an Exception to fail
+ * the request, {@link #CANCELLED} to cancel it or {@link #HUNG} to never respond. Responses are delivered on the
+ * client's own thread, as an I/O reactor would.
+ *
+ * @author Ahseya
+ */
+final class StubAsyncClient extends CloseableHttpAsyncClient {
+
+    static final Object CANCELLED = new Object();
+    static final Object HUNG = new Object();
+
+    private final Function<String, Object> script;
+    private final ByteArrayPool pool = ByteArrayPool.from(0);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private volatile boolean isRunning = false;
+
+    StubAsyncClient(Function<String, Object> script) {
+        this.script = Objects.requireNonNull(script);
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public void start() {
+        isRunning = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        isRunning = false;
+        executor.shutdownNow();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Future<T> execute(
+            HttpAsyncRequestProducer requestProducer,
+            HttpAsyncResponseConsumer<T> responseConsumer,
+            HttpContext context,
+            FutureCallback<T> callback) {
+
+        BasicFuture<T> future = new BasicFuture<>(callback);
+        requests.incrementAndGet();
+
+        String path;
+        try {
+            path = URI.create(requestProducer.generateRequest().getRequestLine().getUri()).getPath();
+        } catch (IOException | HttpException ex) {
+            future.failed(ex);
+            return future;
+        }
+
+        executor.execute(() -> {
+            Object response = script.apply(path);
+
+            if (response instanceof byte[]) {
+                byte[] data = (byte[]) response;
+                ByteArrayPool.Lease lease = pool.leaseOf(data.length);
+                System.arraycopy(data, 0, lease.array(), 0, data.length);
+                lease.length(data.length);
+                future.completed((T) lease);
+
+            } else if (response instanceof Exception) {
+                future.failed((Exception) response);
+
+            } else if (response == CANCELLED) {
+                future.cancel(true);
+
+            } else if (response != HUNG) {
+                throw new IllegalArgumentException("Bad response: " + response);
+            }
+        });
+        return future;
+    }
+}
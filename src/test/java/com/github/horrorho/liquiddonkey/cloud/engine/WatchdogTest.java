@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.engine;
+
+import com.github.horrorho.liquiddonkey.http.Progress;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.methods.HttpGet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * WatchdogTest.
+ *
+ * @author Ahseya
+ */
+public class WatchdogTest {
+
+    @Test
+    public void testStalled() throws InterruptedException {
+        try (Watchdog watchdog = Watchdog.from(1024, 50)) {
+            HttpGet stalled = new HttpGet("http://host/stalled");
+            HttpGet flowing = new HttpGet("http://host/flowing");
+            watchdog.watch(stalled);
+            Progress flowingProgress = watchdog.watch(flowing);
+
+            for (int i = 0; i < 20; i++) {
+                flowingProgress.add(1024);
+                Thread.sleep(20);
+            }
+
+            assertThat(stalled.isAborted(), is(true));
+            assertThat(flowing.isAborted(), is(false));
+        }
+    }
+
+    @Test
+    public void testDisabled() throws InterruptedException {
+        try (Watchdog watchdog = Watchdog.from(0, 50)) {
+            HttpGet request = new HttpGet("http://host/stalled");
+            watchdog.watch(request);
+
+            Thread.sleep(200);
+
+            assertThat(request.isAborted(), is(false));
+        }
+    }
+
+    @Test
+    public void testPaused() throws InterruptedException {
+        try (Watchdog watchdog = Watchdog.from(1024, 50)) {
+            HttpGet throttled = new HttpGet("http://host/throttled");
+            Progress progress = watchdog.watch(throttled);
+
+            // A throttle wait credited ahead of its sleep.
+            progress.pause(TimeUnit.SECONDS.toNanos(10));
+            Thread.sleep(200);
+
+            assertThat(throttled.isAborted(), is(false));
+        }
+    }
+}
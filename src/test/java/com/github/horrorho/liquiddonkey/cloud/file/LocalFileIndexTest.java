@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * LocalFileIndexTest.
+ *
+ * @author Ahseya
+ */
+public class LocalFileIndexTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWalk() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath();
+        Path a = Files.write(folder.resolve("a"), new byte[]{1});
+        Path b = Files.write(Files.createDirectories(folder.resolve("x").resolve("y")).resolve("b"), new byte[]{1, 2});
+        Files.setLastModifiedTime(b, FileTime.fromMillis(1000));
+
+        LocalFileIndex index = LocalFileIndex.walk(folder);
+
+        assertThat(index.size(), is(2));
+        assertThat(index.get(a).size(), is(1L));
+        assertThat(index.get(b).size(), is(2L));
+        assertThat(index.get(b).lastModified(), is(1000L));
+        assertThat(index.get(folder.resolve("x")), is(nullValue()));
+    }
+
+    @Test
+    public void testWalkNoFolder() throws IOException {
+        LocalFileIndex index = LocalFileIndex.walk(temporaryFolder.getRoot().toPath().resolve("none"));
+
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    public void testWalkLinks() throws IOException {
+        Path target = temporaryFolder.newFolder("target").toPath();
+        Files.write(target.resolve("a"), new byte[]{1});
+        Path folder = temporaryFolder.newFolder("folder").toPath();
+
+        // Linked files and directories are indexed under the link path, as Files#exists would find them.
+        Path link = Files.createSymbolicLink(folder.resolve("link"), target.resolve("a"));
+        Files.createSymbolicLink(folder.resolve("directory"), target);
+        // Dangling links and cycles are skipped.
+        Files.createSymbolicLink(folder.resolve("dangling"), target.resolve("none"));
+        Files.createSymbolicLink(folder.resolve("cycle"), folder);
+
+        LocalFileIndex index = LocalFileIndex.walk(folder);
+
+        assertThat(index.size(), is(2));
+        assertThat(index.get(link).size(), is(1L));
+        assertThat(index.get(folder.resolve("directory").resolve("a")).size(), is(1L));
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        Path path = Files.write(temporaryFolder.getRoot().toPath().resolve("a"), new byte[]{1, 2, 3});
+
+        assertThat(LocalFileIndex.Attributes.read(path).size(), is(3L));
+        assertThat(LocalFileIndex.Attributes.read(path.resolveSibling("none")), is(nullValue()));
+    }
+}
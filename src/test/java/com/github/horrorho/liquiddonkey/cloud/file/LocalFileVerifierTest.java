@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import com.github.horrorho.liquiddonkey.cloud.outcome.Outcome;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * LocalFileVerifierTest.
+ *
+ * @author Ahseya
+ */
+public class LocalFileVerifierTest {
+
+    static final byte[] one = "The quick brown fox ".getBytes();
+    static final byte[] two = "jumps over the lazy dog".getBytes();
+    static final ByteString signature = ByteString.copyFromUtf8("signature");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testVerify() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("file");
+        Files.write(path, concat(one, two));
+
+        Map<ICloud.MBSFile, Outcome> result = verify(path, file(false));
+        assertThat(result, is(Collections.singletonMap(file(false), Outcome.VERIFIED)));
+    }
+
+    @Test
+    public void testVerifyMismatch() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("file");
+        Files.write(path, concat(two, one));
+
+        assertThat(verify(path, file(false)).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testVerifyEncrypted() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("file");
+        Files.write(path, concat(one, two));
+
+        assertThat(verify(path, file(true)).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testVerifyNoFile() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("file");
+
+        assertThat(verify(path, file(false)).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testVerifyWindowed() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("file");
+        Files.write(path, concat(one, two));
+        List<ChunkServer.ChunkInfo> chunkInfos = Arrays.asList(chunkInfo(one), chunkInfo(two));
+
+        // Windows smaller than, and spanning, chunks.
+        for (long windowSize : new long[]{1, 25, 43}) {
+            LocalFileVerifier verifier = new LocalFileVerifier(f -> path, null, false, windowSize);
+            assertThat(verifier.verify(file(false), chunkInfos), is(true));
+        }
+    }
+
+    @Test
+    public void testVerifyNoChecksum() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("file");
+        Files.write(path, concat(one, two));
+        ChunkServer.ChunkInfo noChecksum = chunkInfo(two).toBuilder().clearChunkChecksum().buildPartial();
+        ChunkServer.ChunkInfo emptyChecksum = chunkInfo(two).toBuilder().setChunkChecksum(ByteString.EMPTY).build();
+
+        LocalFileVerifier verifier = LocalFileVerifier.from(f -> path, null, false);
+        assertThat(verifier.verify(file(false), Arrays.asList(chunkInfo(one), noChecksum)), is(false));
+        assertThat(verifier.verify(file(false), Arrays.asList(chunkInfo(one), emptyChecksum)), is(false));
+    }
+
+    Map<ICloud.MBSFile, Outcome> verify(Path path, ICloud.MBSFile file) {
+        return LocalFileVerifier.from(f -> path, null, false)
+                .verify(Arrays.asList(file), fileGroups());
+    }
+
+    static ICloud.MBSFile file(boolean isEncrypted) {
+        ICloud.MBSFileAttributes.Builder attributes = ICloud.MBSFileAttributes.newBuilder();
+        if (isEncrypted) {
+            attributes.setEncryptionKey(ByteString.copyFromUtf8("key"));
+        }
+        return ICloud.MBSFile.newBuilder()
+                .setDomain("domain")
+                .setRelativePath("file")
+                .setSignature(signature)
+                .setAttributes(attributes.buildPartial())
+                .buildPartial();
+    }
+
+    static List<ChunkServer.FileChecksumStorageHostChunkLists> fileGroups() {
+        // Chunks stored in reverse order within the container.
+        ChunkServer.StorageHostChunkList container = ChunkServer.StorageHostChunkList.newBuilder()
+                .addChunkInfo(chunkInfo(two))
+                .addChunkInfo(chunkInfo(one))
+                .buildPartial();
+
+        ChunkServer.FileChecksumChunkReferences references = ChunkServer.FileChecksumChunkReferences.newBuilder()
+                .setFileChecksum(signature)
+                .addChunkReferences(ChunkServer.ChunkReference.newBuilder().setContainerIndex(0).setChunkIndex(1))
+                .addChunkReferences(ChunkServer.ChunkReference.newBuilder().setContainerIndex(0).setChunkIndex(0))
+                .build();
+
+        return Arrays.asList(ChunkServer.FileChecksumStorageHostChunkLists.newBuilder()
+                .addStorageHostChunkList(container)
+                .addFileChecksumChunkReferences(references)
+                .buildPartial());
+    }
+
+    static ChunkServer.ChunkInfo chunkInfo(byte[] data) {
+        SHA256Digest digest = new SHA256Digest();
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.update(data, 0, data.length);
+        digest.doFinal(hash, 0);
+        digest.update(hash, 0, hash.length);
+        digest.doFinal(hash, 0);
+
+        ByteString checksum = ByteString.copyFrom(new byte[]{1}).concat(ByteString.copyFrom(hash, 0, 20));
+
+        return ChunkServer.ChunkInfo.newBuilder()
+                .setChunkChecksum(checksum)
+                .setChunkLength(data.length)
+                .build();
+    }
+
+    static byte[] concat(byte[] a, byte[] b) {
+        byte[] bytes = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, bytes, a.length, b.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ManifestTest.
+ *
+ * @author Ahseya
+ */
+public class ManifestTest {
+
+    static final ByteString signature = ByteString.copyFromUtf8("signature");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteRead() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath().resolve("1");
+        Path one = folder.resolve("domain").resolve("one.txt");
+
+        Manifest manifest = Manifest.from(folder);
+        assertThat(manifest.exists(), is(false));
+
+        manifest.put(one, 123, 456000, signature);
+        manifest.write();
+        assertThat(Files.exists(folder.resolveSibling("1.manifest")), is(true));
+
+        Manifest result = Manifest.from(folder);
+        assertThat(result.exists(), is(true));
+        assertThat(result.size(), is(1));
+        assertThat(result.get(one).size(), is(123L));
+        assertThat(result.get(one).lastModified(), is(456000L));
+        assertThat(result.get(one).signature(), is(signature));
+        assertThat(result.get(folder.resolve("two.txt")), is(nullValue()));
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath().resolve("1");
+        Files.write(folder.resolveSibling("1.manifest"), new byte[]{1, 2, 3});
+
+        Manifest manifest = Manifest.from(folder);
+        assertThat(manifest.exists(), is(false));
+        assertThat(manifest.size(), is(0));
+    }
+
+    @Test
+    public void testReconcile() throws IOException {
+        Path folder = temporaryFolder.newFolder("1").toPath();
+        Path one = Files.write(folder.resolve("one.txt"), new byte[]{1, 2, 3});
+        Path two = Files.write(folder.resolve("two.txt"), new byte[]{1, 2, 3});
+        Path three = folder.resolve("three.txt");
+
+        Manifest manifest = Manifest.from(folder);
+        manifest.put(one, Files.readAttributes(one, BasicFileAttributes.class), signature);
+        manifest.put(two, Files.readAttributes(two, BasicFileAttributes.class), signature);
+        manifest.put(three, 3, 0, signature);
+
+        Files.setLastModifiedTime(two, FileTime.fromMillis(0));
+
+        assertThat(manifest.reconcile(), is(2));
+        assertThat(manifest.get(one), is(notNullValue()));
+        assertThat(manifest.get(two), is(nullValue()));
+        assertThat(manifest.get(three), is(nullValue()));
+    }
+
+    @Test
+    public void testFilterStat() throws IOException {
+        Path folder = temporaryFolder.newFolder("1").toPath();
+        Path one = Files.write(folder.resolve("one.txt"), new byte[]{1, 2, 3});
+        Path two = Files.write(folder.resolve("two.txt"), new byte[]{1, 2, 3});
+        Path three = Files.write(folder.resolve("three.txt"), new byte[]{1, 2, 3});
+
+        Manifest written = Manifest.from(folder);
+        written.put(one, Files.readAttributes(one, BasicFileAttributes.class), signature);
+        written.put(two, Files.readAttributes(two, BasicFileAttributes.class), signature);
+        written.put(three, Files.readAttributes(three, BasicFileAttributes.class), signature);
+        written.write();
+
+        // Deleted and truncated by the user.
+        Files.delete(two);
+        Files.write(three, new byte[]{1});
+
+        Manifest manifest = Manifest.from(folder);
+        LocalFileFilter filter
+                = new LocalFileFilter(file -> folder.resolve(file.getRelativePath()), folder, manifest, false, false);
+
+        assertThat(filter.test(file("one.txt")), is(true));
+        assertThat(filter.test(file("two.txt")), is(false));
+        assertThat(filter.test(file("three.txt")), is(false));
+        assertThat(manifest.get(one), is(notNullValue()));
+        assertThat(manifest.get(two), is(nullValue()));
+        assertThat(manifest.get(three), is(nullValue()));
+    }
+
+    static ICloud.MBSFile file(String relativePath) {
+        return ICloud.MBSFile.newBuilder()
+                .setDomain("domain")
+                .setRelativePath(relativePath)
+                .setSignature(signature)
+                .setSize(3)
+                .build();
+    }
+}
@@ -25,8 +25,12 @@ package com.github.horrorho.liquiddonkey.cloud.file;
 
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
 import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud.MBSFile;
+import com.github.horrorho.liquiddonkey.settings.Property;
+import com.github.horrorho.liquiddonkey.settings.PropertiesFactory;
+import com.github.horrorho.liquiddonkey.settings.config.FileConfig;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Properties;
 import junitparams.JUnitParamsRunner;
 import static junitparams.JUnitParamsRunner.$;
 import junitparams.Parameters;
@@ -83,4 +87,45 @@ public class SnapshotDirectoryTest {
             $("base", "udid", "4", two, true, true, "c", "base/udid/c/5119a6cfa5210717a5597cb0f7298aac437f5ad0")
         };
     }
+
+    @Test
+    @Parameters
+    public void testShardedInstance(
+            ICloud.MBSFile file,
+            boolean isFlat,
+            int shardDepth,
+            String expected) {
+
+        Path expectedPath = Paths.get(expected);
+
+        SnapshotDirectory snapshotDirectory
+                = SnapshotDirectory.from(Paths.get("base"), "udid", "1", isFlat, false, "", shardDepth);
+
+        Path result = snapshotDirectory.apply(file);
+        assertThat(result, is(expectedPath));
+    }
+
+    public static Object[] parametersForTestShardedInstance() {
+        return new Object[]{
+            $(one, true, 0, "base/udid/1/8b28fc3a3e71ee69369a06822d400babc5c850b4"),
+            $(one, true, 1, "base/udid/1/8b/8b28fc3a3e71ee69369a06822d400babc5c850b4"),
+            $(one, true, 2, "base/udid/1/8b/28/8b28fc3a3e71ee69369a06822d400babc5c850b4"),
+            $(two, true, 2, "base/udid/1/51/19/5119a6cfa5210717a5597cb0f7298aac437f5ad0"),
+            $(two, false, 2, "base/udid/1/domain/one/two.db")
+        };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadShardDepth() {
+        SnapshotDirectory.from(Paths.get("base"), "udid", "1", true, false, "", -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadShardDepthConfig() {
+        Properties properties = PropertiesFactory.create().fromDefaults();
+        int shardDepth = SnapshotDirectory.SHARD_DEPTH_MAX + 1;
+        properties.setProperty(Property.FILE_SHARD_DEPTH.name(), Integer.toString(shardDepth));
+
+        FileConfig.from(properties);
+    }
 }
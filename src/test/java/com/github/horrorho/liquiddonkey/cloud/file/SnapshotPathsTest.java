@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.file;
+
+import com.github.horrorho.liquiddonkey.cloud.data.TestSnapshots;
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ICloud;
+import com.github.horrorho.liquiddonkey.exception.BadDataException;
+import com.github.horrorho.liquiddonkey.settings.Property;
+import com.github.horrorho.liquiddonkey.settings.PropertiesFactory;
+import com.github.horrorho.liquiddonkey.settings.config.FileConfig;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * SnapshotPathsTest.
+ *
+ * @author Ahseya
+ */
+public class SnapshotPathsTest {
+
+    static final ICloud.MBSFile a = TestSnapshots.file("domain", "a/b/c");
+    static final ICloud.MBSFile b = TestSnapshots.file("domain", "a/d");
+    static final ICloud.MBSFile c = TestSnapshots.file("domain", "e");
+    static final ICloud.MBSFile d = TestSnapshots.file("other", "f/g");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    SnapshotPaths paths(Path folder) {
+        return new SnapshotPaths(
+                new ConcurrentHashMap<>(),
+                ThreadLocal.withInitial(() -> SnapshotDirectory.from(folder, "udid", "1", false, false, "")));
+    }
+
+    @Test
+    public void testApply() {
+        Path base = temporaryFolder.getRoot().toPath();
+        SnapshotPaths paths = paths(base);
+
+        assertThat(paths.size(), is(0));
+
+        Path path = paths.apply(a);
+        assertThat(path, is(base.resolve("udid").resolve("1").resolve("domain").resolve("a/b/c")));
+        assertThat(paths.apply(a), is(sameInstance(path)));
+        assertThat(paths.size(), is(1));
+    }
+
+    @Test
+    public void testCreateDirectories() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath().resolve("udid").resolve("1");
+        SnapshotPaths paths = paths(temporaryFolder.getRoot().toPath());
+
+        // Ancestors of deeper directories are created along with them.
+        assertThat(paths.createDirectories(Arrays.asList(a, b, c, d)), is(2));
+
+        assertThat(Files.isDirectory(folder.resolve("domain").resolve("a").resolve("b")), is(true));
+        assertThat(Files.isDirectory(folder.resolve("other").resolve("f")), is(true));
+        assertThat(Files.exists(paths.apply(a)), is(false));
+        assertThat(paths.size(), is(4));
+    }
+
+    @Test
+    public void testLazy() throws BadDataException {
+        Properties properties = PropertiesFactory.create().fromDefaults();
+        properties.setProperty(Property.FILE_OUTPUT_DIRECTORY.name(), temporaryFolder.getRoot().toString());
+
+        SnapshotPaths paths = SnapshotPaths.lazy(TestSnapshots.from(a), FileConfig.from(properties));
+
+        assertThat(paths.size(), is(0));
+        assertThat(paths.folder().startsWith(temporaryFolder.getRoot().toPath()), is(true));
+        assertThat(paths.apply(a).startsWith(paths.folder()), is(true));
+        assertThat(paths.size(), is(1));
+    }
+}
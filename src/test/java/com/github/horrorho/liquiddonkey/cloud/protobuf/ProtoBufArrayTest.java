@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * ProtoBufArrayTest.
+ *
+ * @author Ahseya
+ */
+public class ProtoBufArrayTest {
+
+    static final List<ICloud.MBSFile> files = IntStream.range(0, 1000)
+            .mapToObj(i -> ICloud.MBSFile.newBuilder()
+                    .setFileID(ByteString.copyFromUtf8("id" + i))
+                    .setDomain("domain" + i % 7)
+                    .setRelativePath("path/" + i)
+                    .setSize(i)
+                    .build())
+            .collect(Collectors.toList());
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] encoded = ProtoBufArray.encode(files);
+        assertThat((long) encoded.length, is(ProtoBufArray.size(files)));
+
+        List<ICloud.MBSFile> decoded = ProtoBufArray.decode(new ByteArrayInputStream(encoded), ICloud.MBSFile.PARSER);
+        assertThat(decoded, is(files));
+    }
+
+    @Test
+    public void testConsumer() throws IOException {
+        List<ICloud.MBSFile> decoded = new ArrayList<>();
+        InputStream input = new ByteArrayInputStream(ProtoBufArray.encode(files));
+
+        assertThat(ProtoBufArray.decode(input, ICloud.MBSFile.PARSER, decoded::add), is(files.size()));
+        assertThat(decoded, is(files));
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testTruncated() throws IOException {
+        byte[] encoded = ProtoBufArray.encode(files);
+        InputStream input = new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1));
+
+        ProtoBufArray.decode(input, ICloud.MBSFile.PARSER);
+    }
+}
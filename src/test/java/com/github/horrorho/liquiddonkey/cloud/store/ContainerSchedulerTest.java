@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.cloud.store;
+
+import com.github.horrorho.liquiddonkey.cloud.protobuf.ChunkServer;
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * ContainerSchedulerTest.
+ *
+ * @author Ahseya
+ */
+public class ContainerSchedulerTest {
+
+    @Test
+    public void testSchedule() {
+        // Four single chunk containers. Signature A spans the first and last, signature B the middle two.
+        List<ChunkServer.StorageHostChunkList> containers = IntStream.range(0, 4)
+                .mapToObj(i -> container(chunk(i)))
+                .collect(Collectors.toList());
+
+        Map<ByteString, List<ByteString>> signatureToChunks = new HashMap<>();
+        signatureToChunks.put(signature(0), Arrays.asList(checksum(0), checksum(3)));
+        signatureToChunks.put(signature(1), Arrays.asList(checksum(1), checksum(2)));
+
+        ContainerScheduler.Schedule schedule = ContainerScheduler.from(signatureToChunks).schedule(containers);
+
+        assertThat(schedule.containers(), is(Arrays.asList(
+                containers.get(0), containers.get(3), containers.get(1), containers.get(2))));
+        assertThat(schedule.predictedPeak(), is(20L));
+        assertThat(schedule.unscheduledPeak(), is(30L));
+    }
+
+    @Test
+    public void testScheduleUnreferenced() {
+        // The second container is referenced by no signature and is retained by the store.
+        List<ChunkServer.StorageHostChunkList> containers = Arrays.asList(
+                container(chunk(0)),
+                container(chunk(1)),
+                container(chunk(2)));
+
+        Map<ByteString, List<ByteString>> signatureToChunks = new HashMap<>();
+        signatureToChunks.put(signature(0), Arrays.asList(checksum(0), checksum(2)));
+        signatureToChunks.put(signature(1), Arrays.asList(checksum(9)));
+
+        ContainerScheduler.Schedule schedule = ContainerScheduler.from(signatureToChunks).schedule(containers);
+
+        assertThat(schedule.containers().size(), is(3));
+        assertThat(schedule.containers().get(2), is(containers.get(1)));
+        assertThat(schedule.predictedPeak(), is(20L));
+        assertThat(schedule.unscheduledPeak(), is(30L));
+    }
+
+    static ChunkServer.StorageHostChunkList container(ChunkServer.ChunkInfo... chunkInfos) {
+        return ChunkServer.StorageHostChunkList.newBuilder()
+                .addAllChunkInfo(Arrays.asList(chunkInfos))
+                .buildPartial();
+    }
+
+    static ChunkServer.ChunkInfo chunk(int i) {
+        return ChunkServer.ChunkInfo.newBuilder()
+                .setChunkChecksum(checksum(i))
+                .setChunkLength(10)
+                .build();
+    }
+
+    static ByteString checksum(int i) {
+        return ByteString.copyFrom(new byte[]{1, (byte) i});
+    }
+
+    static ByteString signature(int i) {
+        return ByteString.copyFrom(new byte[]{2, (byte) i});
+    }
+}
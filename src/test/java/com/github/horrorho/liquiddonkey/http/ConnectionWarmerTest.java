@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * ConnectionWarmerTest.
+ *
+ * @author Ahseya
+ */
+public class ConnectionWarmerTest {
+
+    @Test
+    public void testWarm() throws IOException, InterruptedException {
+        List<Socket> accepted = new CopyOnWriteArrayList<>();
+
+        try (ServerSocket server = new ServerSocket(0, 16, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        accepted.add(server.accept());
+                    }
+                } catch (IOException ex) {
+                    // Closed.
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            HttpHost host = new HttpHost(InetAddress.getLoopbackAddress().getHostAddress(), server.getLocalPort());
+
+            int opened = ConnectionWarmer.from(connectionManager, 3, 2, 5000).warm(Arrays.asList(host, host));
+            HttpRoute route = ConnectionWarmer.route(host);
+
+            assertThat(opened, is(2));
+            assertThat(connectionManager.getMaxPerRoute(route), is(2));
+            assertThat(connectionManager.getStats(route).getAvailable(), is(2));
+            assertThat(connectionManager.getStats(route).getLeased(), is(0));
+
+            connectionManager.close();
+        } finally {
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRoute() throws IOException {
+        HttpRoute route = ConnectionWarmer.route(new HttpHost("host", -1, "https"));
+
+        assertThat(route.getTargetHost(), is(new HttpHost("host", 443, "https")));
+        assertThat(route.isSecure(), is(true));
+    }
+}
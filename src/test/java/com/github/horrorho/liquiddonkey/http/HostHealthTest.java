@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * HostHealthTest.
+ *
+ * @author Ahseya
+ */
+public class HostHealthTest {
+
+    @Test
+    public void testCircuit() {
+        HostHealth health = HostHealth.from(2, 1000);
+        HostHealth.Circuit circuit = health.circuit("host");
+
+        circuit.failure("host", 0);
+        assertThat(circuit.state(), is(HostHealth.State.CLOSED));
+        assertThat(circuit.isAvailable(0), is(true));
+
+        circuit.failure("host", 0);
+        assertThat(circuit.state(), is(HostHealth.State.OPEN));
+        assertThat(circuit.isAvailable(999_999_999L), is(false));
+        assertThat(circuit.retryAfterNanos(500_000_000L), is(500_000_000L));
+
+        // Single probe.
+        assertThat(circuit.isAvailable(1_000_000_000L), is(true));
+        assertThat(circuit.state(), is(HostHealth.State.HALF_OPEN));
+        assertThat(circuit.isAvailable(1_000_000_001L), is(false));
+
+        // Failed probe reopens.
+        circuit.failure("host", 1_500_000_000L);
+        assertThat(circuit.state(), is(HostHealth.State.OPEN));
+        assertThat(circuit.isAvailable(2_000_000_000L), is(false));
+
+        // Successful probe closes.
+        assertThat(circuit.isAvailable(2_500_000_000L), is(true));
+        circuit.success();
+        assertThat(circuit.state(), is(HostHealth.State.CLOSED));
+        assertThat(circuit.retryAfterNanos(2_500_000_000L), is(0L));
+    }
+
+    @Test
+    public void testDisabled() {
+        HostHealth health = HostHealth.from(0, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            health.failure("host");
+        }
+        assertThat(health.circuit("host").state(), is(HostHealth.State.CLOSED));
+        assertThat(health.isAvailable("host"), is(true));
+        assertThat(health.retryAfterMs("host"), is(0L));
+    }
+}
@@ -0,0 +1,130 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import com.github.horrorho.liquiddonkey.settings.PropertiesFactory;
+import com.github.horrorho.liquiddonkey.settings.config.HttpConfig;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * HttpTransportBenchmark.
+ * <p>
+ * Compares the available transports fetching from a local server. Not run as part of the test suite:
+ * {@code java ... HttpTransportBenchmark [requests] [threads] [bytes] [uri]}. The local server is HTTP/1.1 only, so
+ * pass a remote HTTP/2 uri to compare multiplexing.
+ *
+ * @author Ahseya
+ */
+public final class HttpTransportBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int bytes = args.length > 2 ? Integer.parseInt(args[2]) : 65536;
+
+        HttpServer server = null;
+        String uri;
+        if (args.length > 3) {
+            uri = args[3];
+        } else {
+            server = server(bytes, threads);
+            uri = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+        }
+
+        HttpConfig config = HttpConfig.from(PropertiesFactory.create().fromDefaults());
+        try {
+            for (HttpTransportProvider provider : HttpTransports.providers()) {
+                // Warm up, then measure.
+                run(provider, config, uri, requests / 10, threads);
+                long elapsedNs = run(provider, config, uri, requests, threads);
+
+                System.out.printf("%-8s requests: %d threads: %d elapsed: %d ms rate: %.1f req/s%n",
+                        provider.name(),
+                        requests,
+                        threads,
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNs),
+                        requests * 1e9 / elapsedNs);
+            }
+        } finally {
+            if (server != null) {
+                server.stop(0);
+                ((ExecutorService) server.getExecutor()).shutdown();
+            }
+        }
+    }
+
+    static long run(HttpTransportProvider provider, HttpConfig config, String uri, int requests, int threads)
+            throws IOException, InterruptedException, ExecutionException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (HttpTransport transport = provider.create(config);
+                CloseableHttpClient client = transport.client()) {
+
+            long start = System.nanoTime();
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(()
+                        -> client.execute(new HttpGet(uri), response -> EntityUtils.toByteArray(response.getEntity()))));
+            }
+            for (Future<byte[]> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static HttpServer server(int bytes, int threads) throws IOException {
+        byte[] body = new byte[bytes];
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    HttpTransportBenchmark() {
+    }
+}
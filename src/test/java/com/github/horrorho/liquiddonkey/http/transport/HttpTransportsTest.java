@@ -0,0 +1,174 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.http.transport;
+
+import com.github.horrorho.liquiddonkey.settings.PropertiesFactory;
+import com.github.horrorho.liquiddonkey.settings.Property;
+import com.github.horrorho.liquiddonkey.settings.config.HttpConfig;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+/**
+ * HttpTransportsTest.
+ *
+ * @author Ahseya
+ */
+public class HttpTransportsTest {
+
+    private final HttpConfig config = HttpConfig.from(PropertiesFactory.create().fromDefaults());
+
+    @Test
+    public void testApache() throws IOException {
+        try (HttpTransport transport = HttpTransports.from("apache", config)) {
+            assertThat(transport, instanceOf(ApacheTransport.class));
+        }
+    }
+
+    @Test
+    public void testUnavailable() throws IOException {
+        try (HttpTransport transport = HttpTransports.from("unavailable", config)) {
+            assertThat(transport, instanceOf(ApacheTransport.class));
+        }
+    }
+
+    @Test
+    public void testJdk() throws IOException {
+        assumeTrue(!System.getProperty("java.specification.version").startsWith("1."));
+
+        List<String> names = HttpTransports.providers().stream()
+                .map(HttpTransportProvider::name)
+                .collect(Collectors.toList());
+
+        assertThat(names, hasItem("jdk"));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] body = read(exchange.getRequestBody());
+            exchange.getResponseHeaders().add("X-Method", exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+
+        try {
+            String uri = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/echo";
+
+            for (HttpTransportProvider provider : HttpTransports.providers()) {
+                try (HttpTransport transport = provider.create(config);
+                        CloseableHttpClient client = transport.client()) {
+
+                    HttpPost post = new HttpPost(uri);
+                    post.setEntity(new ByteArrayEntity(provider.name().getBytes(StandardCharsets.UTF_8)));
+
+                    String echo = client.execute(post, response -> {
+                        assertThat(response.getStatusLine().getStatusCode(), is(200));
+                        assertThat(response.getFirstHeader("X-Method").getValue(), is("POST"));
+                        return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                    });
+
+                    assertThat(echo, is(provider.name()));
+                }
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testJdkReadDeadline() throws IOException, InterruptedException {
+        assumeTrue(!System.getProperty("java.specification.version").startsWith("1."));
+
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/stall", exchange -> {
+            exchange.sendResponseHeaders(200, 1024);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(new byte[16]);
+                output.flush();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+
+        Properties properties = PropertiesFactory.create().fromDefaults();
+        properties.setProperty(Property.HTTP_TIMEOUT_MS.name(), "200");
+
+        try (HttpTransport transport = HttpTransports.from("jdk", HttpConfig.from(properties));
+                CloseableHttpClient client = transport.client()) {
+
+            String uri = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/stall";
+            long started = System.nanoTime();
+            try {
+                client.execute(new HttpGet(uri), response -> EntityUtils.toByteArray(response.getEntity()));
+                fail("expected SocketTimeoutException");
+            } catch (SocketTimeoutException ex) {
+                assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 5000, is(true));
+            }
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+        return output.toByteArray();
+    }
+}
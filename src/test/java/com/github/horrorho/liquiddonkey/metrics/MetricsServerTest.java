@@ -0,0 +1,70 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * MetricsServerTest.
+ *
+ * @author Ahseya
+ */
+public class MetricsServerTest {
+
+    @Test
+    public void testScrape() throws IOException {
+        Metrics metrics = Metrics.create();
+        metrics.counter("unauthorized_total", "HTTP 401 responses.").add(2);
+
+        try (MetricsServer server = MetricsServer.from(metrics, 0)) {
+            URL url = new URL("http://"
+                    + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.port() + MetricsServer.PATH);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+            assertThat(connection.getResponseCode(), is(200));
+            assertThat(connection.getContentType(), containsString("version=0.0.4"));
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream input = connection.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = input.read(buffer)) != -1) {
+                    body.write(buffer, 0, n);
+                }
+            }
+            assertThat(new String(body.toByteArray(), StandardCharsets.UTF_8),
+                    containsString("liquiddonkey_unauthorized_total 2\n"));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, of any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), of deal
+ * in the Software without restriction, including without limitation the rights
+ * of use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and of permit persons of whom the Software is
+ * furnished of do so, subject of the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * MetricsTest.
+ *
+ * @author Ahseya
+ */
+public class MetricsTest {
+
+    @Test
+    public void testCounter() {
+        Metrics metrics = Metrics.create();
+        Counter a = metrics.counter("files_total", "Files.", "outcome", "written");
+        Counter b = metrics.counter("files_total", "Files.", "outcome", "failed");
+
+        a.add(3);
+        b.increment();
+
+        assertThat(metrics.counter("files_total", "Files.", "outcome", "written"), is(sameInstance(a)));
+
+        Map<String, Number> samples = metrics.samples();
+        assertThat(samples.get("files_total{outcome=\"written\"}"), is((Number) 3L));
+        assertThat(samples.get("files_total{outcome=\"failed\"}"), is((Number) 1L));
+    }
+
+    @Test
+    public void testTimer() {
+        Metrics metrics = Metrics.create();
+        Timer timer = metrics.timer("write_seconds", "Write time.");
+
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1500));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        Map<String, Number> samples = metrics.samples();
+        assertThat(samples.get("write_seconds_count"), is((Number) 2L));
+        assertThat(samples.get("write_seconds_sum"), is((Number) 2.0));
+    }
+
+    @Test
+    public void testGauge() {
+        Metrics metrics = Metrics.create();
+        Gauge gauge = metrics.gauge("active_runners", "Runners.");
+
+        gauge.increment();
+        gauge.increment();
+        gauge.decrement();
+        assertThat(gauge.value(), is(1L));
+
+        gauge.set(() -> 42);
+        assertThat(metrics.samples().get("active_runners"), is((Number) 42L));
+
+        gauge.set(null);
+        assertThat(gauge.value(), is(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        Metrics metrics = Metrics.create();
+        metrics.counter("queue_depth", "Depth.");
+        metrics.gauge("queue_depth", "Depth.");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnpairedLabels() {
+        Metrics.create().counter("files_total", "Files.", "outcome");
+    }
+
+    @Test
+    public void testPrometheus() {
+        Metrics metrics = Metrics.create();
+        metrics.counter("fetched_bytes_total", "Bytes fetched.").add(1024);
+        metrics.counter("files_total", "Files.", "outcome", "a\"b").increment();
+
+        String text = metrics.prometheus();
+
+        assertThat(text, containsString(
+                "# HELP liquiddonkey_fetched_bytes_total Bytes fetched.\n"
+                + "# TYPE liquiddonkey_fetched_bytes_total counter\n"
+                + "liquiddonkey_fetched_bytes_total 1024\n"));
+        assertThat(text, containsString("liquiddonkey_files_total{outcome=\"a\\\"b\"} 1\n"));
+    }
+}
@@ -83,6 +83,8 @@ public class CommandLinePropertiesFactoryTest {
             $(Property.ENGINE_FORCE_OVERWRITE, "u p", null),
             $(Property.ENGINE_FORCE_OVERWRITE, "u p -f", true),
             $(Property.ENGINE_FORCE_OVERWRITE, "u p --force", true),
+            $(Property.FILE_SHARD_DEPTH, "u p", null),
+            $(Property.FILE_SHARD_DEPTH, "u p --shard-depth 2", "2"),
             $(Property.FILE_OUTPUT_DIRECTORY, "u p", null),
             $(Property.FILE_OUTPUT_DIRECTORY, "u p -o test/folder", "test/folder"),
             $(Property.FILE_OUTPUT_DIRECTORY, "u p --output test/folder", "test/folder"),
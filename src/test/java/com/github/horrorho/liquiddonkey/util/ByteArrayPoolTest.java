@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.util;
+
+import junitparams.JUnitParamsRunner;
+import static junitparams.JUnitParamsRunner.$;
+import junitparams.Parameters;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * ByteArrayPoolTest.
+ *
+ * @author Ahseya
+ */
+@RunWith(JUnitParamsRunner.class)
+public class ByteArrayPoolTest {
+
+    @Test
+    @Parameters
+    public void testLeaseLength(int length, int expected) {
+        assertThat(ByteArrayPool.from(0).lease(length).length, is(expected));
+    }
+
+    public static Object[] parametersForTestLeaseLength() {
+        return $(
+                $(0, 4096),
+                $(4096, 4096),
+                $(4097, 8192),
+                $(1 << 26, 1 << 26),
+                $((1 << 26) + 1, (1 << 26) + 1)
+        );
+    }
+
+    @Test
+    public void testReuse() {
+        ByteArrayPool pool = ByteArrayPool.from(8192);
+        byte[] array = pool.lease(5000);
+        pool.release(array);
+
+        assertThat(pool.retained(), is(8192L));
+        assertThat(pool.lease(6000), is(sameInstance(array)));
+        assertThat(pool.retained(), is(0L));
+    }
+
+    @Test
+    public void testBounded() {
+        ByteArrayPool pool = ByteArrayPool.from(4096);
+        byte[] array = pool.lease(5000);
+        pool.release(array);
+
+        assertThat(pool.retained(), is(0L));
+        assertThat(pool.lease(5000), is(not(sameInstance(array))));
+    }
+}
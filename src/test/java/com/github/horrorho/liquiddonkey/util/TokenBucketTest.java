@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * TokenBucketTest.
+ *
+ * @author Ahseya
+ */
+public class TokenBucketTest {
+
+    static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testReserve() {
+        TokenBucket bucket = new TokenBucket(100, 50, 0);
+
+        // Burst.
+        assertThat(bucket.reserve(50, 0), is(0L));
+        // Debt, repaid at the rate.
+        assertThat(bucket.reserve(100, 0), is(SECOND));
+        // Refill repays the debt.
+        assertThat(bucket.reserve(0, SECOND), is(0L));
+        // Refill is capped at the burst.
+        assertThat(bucket.reserve(50, 10 * SECOND), is(0L));
+        assertThat(bucket.reserve(1, 10 * SECOND), is(SECOND / 100));
+    }
+
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = TokenBucket.unlimited();
+
+        assertThat(bucket.reserve(Long.MAX_VALUE / 2, 0), is(0L));
+    }
+
+    @Test
+    public void testSet() {
+        TokenBucket bucket = TokenBucket.unlimited();
+        bucket.set(1000, 1000);
+
+        assertThat(bucket.ratePerSecond(), is(1000L));
+        assertThat(bucket.reserve(1000, System.nanoTime()), is(0L));
+
+        bucket.set(0, 0);
+        assertThat(bucket.reserve(1_000_000, System.nanoTime()), is(0L));
+    }
+
+    @Test
+    public void testAcquireWaits() throws InterruptedException {
+        TokenBucket bucket = TokenBucket.from(1000, 10);
+        long[] waited = new long[1];
+
+        bucket.acquire(10, nanos -> waited[0] += nanos);
+        assertThat(waited[0], is(0L));
+
+        bucket.acquire(20, nanos -> waited[0] += nanos);
+        assertThat(waited[0] > 0 && waited[0] <= 20 * SECOND / 1000, is(true));
+    }
+}
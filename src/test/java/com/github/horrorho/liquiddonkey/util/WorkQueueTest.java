@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Ahseya.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.horrorho.liquiddonkey.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * WorkQueueTest.
+ *
+ * @author Ahseya
+ */
+public class WorkQueueTest {
+
+    @Test
+    public void testOrder() {
+        WorkQueue<Integer> queue = WorkQueue.from(Arrays.asList(1, 2, 3));
+
+        assertThat(queue.size(), is(3));
+        assertThat(queue.poll(), is(1));
+        queue.addAll(Arrays.asList(4, 5));
+        queue.requeue(1);
+        assertThat(queue.size(), is(5));
+
+        assertThat(queue.poll(), is(1));
+        assertThat(queue.poll(), is(4));
+        assertThat(queue.poll(), is(5));
+        assertThat(queue.poll(), is(2));
+        assertThat(queue.poll(), is(3));
+        assertThat(queue.poll(), is(nullValue()));
+        assertThat(queue.size(), is(0));
+    }
+
+    @Test
+    public void testDrain() {
+        WorkQueue<Integer> queue = WorkQueue.from(Arrays.asList(1, 2, 3));
+        queue.poll();
+        queue.addAll(Collections.singletonList(4));
+
+        assertThat(queue.drain(), is(Arrays.asList(4, 2, 3)));
+        assertThat(queue.isClosed(), is(true));
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        List<Integer> items = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+        WorkQueue<Integer> queue = WorkQueue.from(items);
+        ConcurrentLinkedQueue<Integer> polled = new ConcurrentLinkedQueue<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                Integer item;
+                while ((item = queue.poll()) != null) {
+                    polled.add(item);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(polled.stream().sorted().collect(Collectors.toList()), is(items));
+    }
+
+    @Test
+    public void testConcurrentRequeue() throws InterruptedException {
+        // Workers re-queue while others poll, as retries do.
+        List<Integer> items = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+        WorkQueue<Integer> queue = WorkQueue.from(items);
+        ConcurrentLinkedQueue<Integer> polled = new ConcurrentLinkedQueue<>();
+        Set<Integer> requeued = ConcurrentHashMap.newKeySet();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                Integer item;
+                while ((item = queue.poll()) != null) {
+                    if (item % 2 == 0 && requeued.add(item)) {
+                        queue.requeue(item);
+                    } else {
+                        polled.add(item);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(requeued.size(), is(items.size() / 2));
+        assertThat(polled.stream().sorted().collect(Collectors.toList()), is(items));
+    }
+}